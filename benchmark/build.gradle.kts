@@ -1,3 +1,6 @@
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+
 plugins {
     id("java")
     id("me.champeau.jmh") version "0.7.2"
@@ -17,9 +20,178 @@ dependencies {
     jmh(project(":lib"))
 }
 
+// Classes in src/jmh/java21 replace their counterparts in the jmh jar on Java 21, e.g. to use virtual threads
+val java21: SourceSet by sourceSets.creating {
+    java.srcDir("src/jmh/java21")
+}
+
+tasks.named<JavaCompile>("compileJava21Java") {
+    javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(JavaLanguageVersion.of(21)) })
+    options.release.set(21)
+}
+
+tasks.named<Jar>("jmhJar") {
+    into("META-INF/versions/21") {
+        from(java21.output)
+    }
+
+    manifest {
+        attributes("Multi-Release" to "true")
+    }
+}
+
+val jmhResultsFile = layout.buildDirectory.file("results/jmh/results.json")
+val shortPromptBaselineFile = file("baseline/short-prompts.json")
+
 jmh {
-    warmupIterations.set(1)
-    iterations.set(5)
+    // The benchmark mode and iterations are declared on the benchmark classes, as they differ between them
     fork.set(2)
-    benchmarkMode.set(listOf("ss"))
+    resultFormat.set("JSON")
+    resultsFile.set(jmhResultsFile)
+
+    // Allows running a subset of the benchmarks, e.g. -Pjmh.includes=ComponentBenchmark
+    (project.findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+
+    // Allows running the benchmarks with profilers, e.g. -Pjmh.profilers=gc to report the allocated bytes per call
+    (project.findProperty("jmh.profilers") as String?)?.let { profilers.set(it.split(",")) }
+
+    // Allows more samples of benchmarks that measure a single call per fork, e.g. -Pjmh.forks=20
+    (project.findProperty("jmh.forks") as String?)?.let { fork.set(it.toInt()) }
+
+    // Allows running the benchmarks on another Java version than the one they are compiled for, e.g. -Pjmh.javaVersion=21
+    (project.findProperty("jmh.javaVersion") as String?)?.let { version ->
+        jvm.set(javaToolchains.launcherFor { languageVersion.set(JavaLanguageVersion.of(version)) }
+            .map { it.executablePath.asFile.absolutePath })
+    }
+}
+
+// Writes the synthetic corpus to the data folder, e.g. to run bench.py against the same texts
+tasks.register<JavaExec>("generateCorpus") {
+    description = "Generates a deterministic synthetic corpus in the data folder."
+    group = "benchmark"
+
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.knuddels.jtokkit.CorpusGenerator")
+    args(
+            file("data").absolutePath,
+            project.findProperty("corpus.documents") ?: "400",
+            project.findProperty("corpus.documentLength") ?: "262144",
+            project.findProperty("corpus.seed") ?: "42"
+    )
+}
+
+/**
+ * Extracts the latency percentiles, the throughput and the allocated bytes per operation of the
+ * ShortPromptBenchmark from a JMH JSON report, keyed by benchmark method, parameters and mode.
+ */
+fun summarizeShortPrompts(report: File): Map<String, Map<String, Double>> {
+    fun Any?.asDouble(): Double = if (this is Number) toDouble() else toString().toDouble()
+
+    @Suppress("UNCHECKED_CAST")
+    val results = JsonSlurper().parse(report) as List<Map<String, Any?>>
+    return results
+        .filter { (it["benchmark"] as String).contains(".ShortPromptBenchmark.") }
+        .associate { result ->
+            @Suppress("UNCHECKED_CAST")
+            val params = (result["params"] as Map<String, Any?>?).orEmpty()
+                .filterKeys { it == "encodingName" }
+                .entries.joinToString(",") { "${it.key}=${it.value}" }
+            val key = "${(result["benchmark"] as String).substringAfterLast(".ShortPromptBenchmark.")}($params) ${result["mode"]}"
+
+            @Suppress("UNCHECKED_CAST")
+            val primaryMetric = result["primaryMetric"] as Map<String, Any?>
+            @Suppress("UNCHECKED_CAST")
+            val secondaryMetrics = (result["secondaryMetrics"] as Map<String, Map<String, Any?>>?).orEmpty()
+
+            val metrics = sortedMapOf<String, Double>()
+            if (result["mode"] == "sample") {
+                @Suppress("UNCHECKED_CAST")
+                val percentiles = primaryMetric["scorePercentiles"] as Map<String, Any?>
+                metrics["p50"] = percentiles["50.0"].asDouble()
+                metrics["p99"] = percentiles["99.0"].asDouble()
+                metrics["p99.9"] = percentiles["99.9"].asDouble()
+            } else {
+                metrics["throughput"] = primaryMetric["score"].asDouble()
+            }
+            secondaryMetrics.entries
+                .firstOrNull { it.key.endsWith("gc.alloc.rate.norm") }
+                ?.let { metrics["allocatedBytes"] = it.value["score"].asDouble() }
+
+            // JMH reports metrics it could not determine as NaN
+            key to metrics.filterValues { !it.isNaN() }
+        }
+}
+
+tasks.register("updateShortPromptBaseline") {
+    description = "Replaces the checked-in short prompt baseline with the results of the last jmh run."
+    group = "benchmark"
+    mustRunAfter("jmh")
+
+    doLast {
+        val summary = summarizeShortPrompts(jmhResultsFile.get().asFile)
+        if (summary.isEmpty()) {
+            throw GradleException("The last jmh run contains no results of the ShortPromptBenchmark")
+        }
+        shortPromptBaselineFile.writeText(JsonOutput.prettyPrint(JsonOutput.toJson(summary.toSortedMap())) + "\n")
+    }
+}
+
+tasks.register("compareShortPromptBaseline") {
+    description = "Fails if the latency, throughput or allocation of the ShortPromptBenchmark regressed beyond " +
+            "a tolerance compared to the checked-in baseline, or if a result or metric of the baseline is missing."
+    group = "benchmark"
+    mustRunAfter("jmh")
+
+    doLast {
+        val latencyTolerance = (project.findProperty("baseline.latencyTolerance") as String? ?: "0.10").toDouble()
+        val allocationTolerance = (project.findProperty("baseline.allocationTolerance") as String? ?: "0.05").toDouble()
+        val allowMissing = (project.findProperty("baseline.allowMissing") as String? ?: "false").toBoolean()
+
+        @Suppress("UNCHECKED_CAST")
+        val baseline = JsonSlurper().parse(shortPromptBaselineFile) as Map<String, Map<String, Number>>
+        val current = summarizeShortPrompts(jmhResultsFile.get().asFile)
+
+        val regressions = mutableListOf<String>()
+        val missing = mutableListOf<String>()
+        for ((key, metrics) in current) {
+            val expected = baseline[key]
+            if (expected == null) {
+                missing += "No baseline for $key"
+                continue
+            }
+
+            // E.g. the allocated bytes are only reported if the benchmarks ran with -Pjmh.profilers=gc
+            for (metric in expected.keys - metrics.keys) {
+                missing += "$key $metric was not measured"
+            }
+
+            for ((metric, value) in metrics) {
+                val reference = expected[metric]?.toDouble() ?: continue
+                val regressed = when (metric) {
+                    "throughput" -> value < reference * (1 - latencyTolerance)
+                    // Allow a few bytes of noise, as the normalized allocation is an average over all operations
+                    "allocatedBytes" -> value > reference * (1 + allocationTolerance) + 8
+                    else -> value > reference * (1 + latencyTolerance)
+                }
+                if (regressed) {
+                    regressions += "$key $metric: %.3f (baseline %.3f)".format(value, reference)
+                }
+            }
+        }
+
+        if (current.isEmpty()) {
+            missing += "The last jmh run contains no results of the ShortPromptBenchmark"
+        }
+        if (missing.isNotEmpty()) {
+            if (!allowMissing) {
+                throw GradleException("Short prompt results and baseline do not match, pass -Pbaseline.allowMissing=true to ignore:\n" +
+                        missing.joinToString("\n"))
+            }
+            missing.forEach { logger.warn(it) }
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("Short prompt benchmarks regressed:\n" + regressions.joinToString("\n"))
+        }
+        logger.lifecycle("Compared ${current.size} short prompt results against the baseline, no regressions found")
+    }
 }
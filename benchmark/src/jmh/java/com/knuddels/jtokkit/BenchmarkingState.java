@@ -2,6 +2,8 @@ package com.knuddels.jtokkit;
 
 import com.knuddels.jtokkit.api.Encoding;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
@@ -12,9 +14,22 @@ import org.openjdk.jmh.annotations.State;
 public class BenchmarkingState {
 	public List<String> fileContents;
 
+	/**
+	 * The folder to load the texts from. If it does not exist or contains no texts, a synthetic corpus is
+	 * generated with {@link CorpusGenerator} instead.
+	 */
 	@Param("data")
 	public String dataFolderPath;
 
+	@Param("42")
+	public long corpusSeed;
+
+	@Param("400")
+	public int corpusDocuments;
+
+	@Param("262144")
+	public int corpusDocumentLength;
+
 	public final Encoding cl100kBase = EncodingFactory.cl100kBase();
 	public final Encoding p50kBase = EncodingFactory.p50kBase();
 	public final Encoding p50kEdit = EncodingFactory.p50kEdit();
@@ -22,6 +37,14 @@ public class BenchmarkingState {
 
 	@Setup()
 	public void setup() throws IOException {
-		fileContents = BenchmarkUtils.loadData(dataFolderPath);
+		if (Files.isDirectory(Paths.get(dataFolderPath))) {
+			fileContents = BenchmarkUtils.loadData(dataFolderPath);
+			fileContents.removeIf(String::isEmpty);
+		}
+
+		if (fileContents == null || fileContents.isEmpty()) {
+			System.out.println("No texts found in " + dataFolderPath + ", generating a corpus with seed " + corpusSeed);
+			fileContents = new CorpusGenerator(corpusSeed).generate(corpusDocuments, corpusDocumentLength);
+		}
 	}
 }
@@ -0,0 +1,60 @@
+package com.knuddels.jtokkit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link GptBytePairEncoding#bytePairMergeTokenIds(byte[])} and
+ * {@link GptBytePairEncoding#bytePairMergeBytes(byte[])} for pieces of a fixed length, since the
+ * merge loop is quadratic in the piece length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BytePairMergeBenchmark {
+
+	@Param({"cl100k_base", "p50k_base", "p50k_edit", "r50k_base"})
+	public String encodingName;
+
+	@Param({"ENGLISH_PROSE", "SOURCE_CODE", "CJK", "EMOJI", "WHITESPACE_HEAVY", "BASE64"})
+	public TextClass textClass;
+
+	@Param({"2", "4", "8", "16", "32", "64", "256"})
+	public int pieceLength;
+
+	private GptBytePairEncoding encoding;
+	private List<byte[]> pieces;
+
+	@Setup
+	public void setup() {
+		encoding = ComponentBenchmarkState.newEncoding(encodingName);
+		pieces = ComponentBenchmarkState.slices(textClass.text(), pieceLength);
+	}
+
+	@Benchmark
+	public void bytePairMergeTokenIds(final Blackhole blackhole) {
+		for (final var piece : pieces) {
+			blackhole.consume(encoding.bytePairMergeTokenIds(piece));
+		}
+	}
+
+	@Benchmark
+	public void bytePairMergeBytes(final Blackhole blackhole) {
+		for (final var piece : pieces) {
+			blackhole.consume(encoding.bytePairMergeBytes(piece));
+		}
+	}
+}
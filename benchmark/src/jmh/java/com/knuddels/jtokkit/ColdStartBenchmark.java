@@ -0,0 +1,34 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the creation of the first registry in a fresh JVM, like when an application starts: the classes are not
+ * loaded yet and the vocabularies are parsed and indexed by the interpreter and the first JIT tiers. Each fork
+ * measures a single call, so the number of forks is the number of samples.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ColdStartBenchmark {
+
+	@Benchmark
+	public EncodingRegistry defaultRegistryCreation() {
+		return Encodings.newDefaultEncodingRegistry();
+	}
+
+	@Benchmark
+	public Encoding lazyRegistryFirstEncoding() {
+		return Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+	}
+}
@@ -0,0 +1,71 @@
+package com.knuddels.jtokkit;
+
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the individual stages of encoding and decoding a text in isolation, so that a regression can be
+ * attributed to a single stage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ComponentBenchmark {
+
+	@Benchmark
+	public int preTokenize(final ComponentBenchmarkState state) {
+		final var matcher = state.piecePattern.matcher(state.text);
+		int pieces = 0;
+		while (matcher.find()) {
+			pieces++;
+		}
+		return pieces;
+	}
+
+	@Benchmark
+	public void vocabularyLookup(final ComponentBenchmarkState state, final Blackhole blackhole) {
+		final var vocabulary = state.encoding.getVocabulary();
+		for (final var piece : state.pieces) {
+			blackhole.consume(vocabulary.getRank(piece, 0, piece.length));
+		}
+	}
+
+	@Benchmark
+	public byte[] decodeBytes(final ComponentBenchmarkState state) {
+		return state.encoding.decodeBytes(state.tokens);
+	}
+
+	@Benchmark
+	public int decodeBytesIntoArray(final ComponentBenchmarkState state) {
+		return state.encoding.decodeBytes(state.tokenArray, 0, state.tokenArray.length, state.bytes, 0);
+	}
+
+	@Benchmark
+	public int encodeIntoArray(final ComponentBenchmarkState state) {
+		return state.encoding.encodeOrdinary(state.text, state.tokenArray, 0);
+	}
+
+	@Benchmark
+	public int countTokens(final ComponentBenchmarkState state) {
+		return state.encoding.countTokensOrdinary(state.text);
+	}
+
+	@Benchmark
+	public OptionalInt isWithinTokenLimit(final ComponentBenchmarkState state) {
+		// Far below the token count of every text class, so this measures how fast a long text is rejected
+		return state.encoding.isWithinTokenLimitOrdinary(state.text, 256);
+	}
+
+	@Benchmark
+	public int estimateTokenCount(final ComponentBenchmarkState state) {
+		return state.encoding.estimateTokenCount(state.text).getEstimate();
+	}
+}
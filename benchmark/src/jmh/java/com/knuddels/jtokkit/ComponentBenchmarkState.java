@@ -0,0 +1,73 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+public class ComponentBenchmarkState {
+
+	@Param({"cl100k_base", "p50k_base", "p50k_edit", "r50k_base"})
+	public String encodingName;
+
+	@Param({"ENGLISH_PROSE", "SOURCE_CODE", "CJK", "EMOJI", "WHITESPACE_HEAVY", "BASE64"})
+	public TextClass textClass;
+
+	public GptBytePairEncoding encoding;
+	public PiecePattern piecePattern;
+	public String text;
+	public List<byte[]> pieces;
+	public List<Integer> tokens;
+	public int[] tokenArray;
+	public byte[] bytes;
+
+	@Setup
+	public void setup() {
+		encoding = newEncoding(encodingName);
+		text = textClass.text();
+		// The same splitting of the text into pieces as in production, including its fast path for ASCII text
+		piecePattern = PiecePattern.of(encoding.getPattern());
+		pieces = new ArrayList<>();
+		final PieceMatcher matcher = piecePattern.matcher(text);
+		while (matcher.find()) {
+			pieces.add(text.substring(matcher.start(), matcher.end()).getBytes(StandardCharsets.UTF_8));
+		}
+		tokens = encoding.encode(text);
+		tokenArray = tokens.stream().mapToInt(Integer::intValue).toArray();
+		bytes = encoding.decodeBytes(tokens);
+	}
+
+	/**
+	 * Creates a new instance of the encoding with the given name, bypassing any registry.
+	 *
+	 * @param encodingName the name of the encoding
+	 * @return the new encoding
+	 */
+	public static GptBytePairEncoding newEncoding(final String encodingName) {
+		final var encodingType = EncodingType.fromName(encodingName)
+				.orElseThrow(() -> new IllegalArgumentException("Unknown encoding " + encodingName));
+		return (GptBytePairEncoding) Encodings.newLazyEncodingRegistry().getEncoding(encodingType);
+	}
+
+	/**
+	 * Splits the UTF-8 bytes of the given text into consecutive slices of the given length.
+	 *
+	 * @param text the text to split
+	 * @param length the length of each slice in bytes
+	 * @return the slices
+	 */
+	public static List<byte[]> slices(final String text, final int length) {
+		final var bytes = text.getBytes(StandardCharsets.UTF_8);
+		final var slices = new ArrayList<byte[]>();
+		for (int start = 0; start + length <= bytes.length; start += length) {
+			slices.add(Arrays.copyOfRange(bytes, start, start + length));
+		}
+		return slices;
+	}
+}
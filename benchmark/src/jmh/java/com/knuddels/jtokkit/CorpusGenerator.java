@@ -0,0 +1,372 @@
+package com.knuddels.jtokkit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates a deterministic synthetic corpus for the benchmarks, so that they can be reproduced without
+ * downloading any data. The same seed always yields the same corpus, independent of the machine.
+ * <p>
+ * A document is a mix of sections of the following kinds:
+ * <ul>
+ *     <li>{@link Kind#PROSE}: sentences of Zipf-distributed English words</li>
+ *     <li>{@link Kind#CODE}: indented, Java- and Python-like source code</li>
+ *     <li>{@link Kind#MULTILINGUAL}: words of non-latin scripts, including CJK and emoji</li>
+ *     <li>{@link Kind#NUMBERS}: integers, decimals, dates and hexadecimal numbers</li>
+ *     <li>{@link Kind#ADVERSARIAL}: very long pieces, which are expensive to merge</li>
+ * </ul>
+ */
+public final class CorpusGenerator {
+
+	public enum Kind {
+		PROSE(50),
+		CODE(20),
+		MULTILINGUAL(15),
+		NUMBERS(10),
+		ADVERSARIAL(5);
+
+		private final int weight;
+
+		Kind(final int weight) {
+			this.weight = weight;
+		}
+	}
+
+	private static final double ZIPF_EXPONENT = 1.07;
+	private static final int VOCABULARY_SIZE = 20_000;
+
+	private static final String[] COMMON_WORDS = (
+			"the of and to a in is it you that he was for on are with as I his they be at one have this from or "
+					+ "had by hot word but what some we can out other were all there when up use your how said an each "
+					+ "she which do their time if will way about many then them write would like so these her long make "
+					+ "thing see him two has look more day could go come did number sound no most people my over know "
+					+ "water than call first who may down side been now find any new work part take get place made live "
+					+ "where after back little only round man year came show every good me give our under name very "
+					+ "through just form sentence great think say help low line differ turn cause much mean before move "
+					+ "right boy old too same tell does set three want air well also play small end put home read hand "
+					+ "port large spell add even land here must big high such follow act why ask men change went light"
+	).split(" ");
+
+	private static final String[] SYLLABLES = (
+			"ka ri to mu ne sa lo vi de an or el in us qu th st pr bl ch ph gr tr ex im con ter ment tion able ous"
+	).split(" ");
+
+	private static final String[][] SCRIPTS = {
+			"Привет мир как дела сегодня хорошая погода правительство объявило".split(" "),
+			"Καλημέρα κόσμε η γλώσσα είναι πλούσια και αρχαία".split(" "),
+			"مرحبا بالعالم اللغة العربية جميلة جدا".split(" "),
+			"नमस्ते दुनिया हिन्दी भाषा बहुत सुंदर है".split(" "),
+			"你好 世界 我们 今天 学习 中文 电脑 程序 数据 模型".split(" "),
+			"こんにちは 世界 日本語 の 勉強 を しています カタカナ ひらがな".split(" "),
+			"안녕하세요 세계 한국어 공부 하고 있습니다".split(" "),
+			"Größe Straße über naïve café façade jalapeño smørrebrød żółć".split(" "),
+			"🎉 🚀 👩‍💻 ❤️‍🔥 👍🏽 🇩🇪 😂 🍕 ✨ 🔥".split(" ")
+	};
+
+	private static final String[] KEYWORDS = (
+			"if for while return final var int long String new null true false else try catch throw"
+	).split(" ");
+
+	private final Random random;
+	private final String[] vocabulary;
+	private final double[] cumulativeProbabilities;
+
+	/**
+	 * Creates a new generator. All output of the generator is fully determined by the given seed.
+	 *
+	 * @param seed the seed
+	 */
+	public CorpusGenerator(final long seed) {
+		this.random = new Random(seed);
+		this.vocabulary = createVocabulary(new Random(seed));
+		this.cumulativeProbabilities = zipfDistribution(vocabulary.length);
+	}
+
+	/**
+	 * Generates the given number of documents with the given length.
+	 *
+	 * @param documents the number of documents
+	 * @param length the length of each document in characters
+	 * @return the documents
+	 */
+	public List<String> generate(final int documents, final int length) {
+		final var result = new ArrayList<String>(documents);
+		for (int i = 0; i < documents; i++) {
+			result.add(generate(length));
+		}
+		return result;
+	}
+
+	/**
+	 * Generates a document of the given length, consisting of sections of all kinds.
+	 *
+	 * @param length the length of the document in characters
+	 * @return the document
+	 */
+	public String generate(final int length) {
+		final var builder = new StringBuilder(length + 1024);
+		while (builder.length() < length) {
+			final int sectionLength = Math.min(length - builder.length(), 256 + random.nextInt(4096));
+			appendSection(builder, randomKind(), builder.length() + sectionLength);
+			builder.append("\n\n");
+		}
+		return truncate(builder, length);
+	}
+
+	/**
+	 * Generates a document of the given length, consisting of a single kind of section.
+	 *
+	 * @param kind the kind of the sections
+	 * @param length the length of the document in characters
+	 * @return the document
+	 */
+	public String generate(final Kind kind, final int length) {
+		final var builder = new StringBuilder(length + 1024);
+		appendSection(builder, kind, length);
+		return truncate(builder, length);
+	}
+
+	private void appendSection(final StringBuilder builder, final Kind kind, final int endLength) {
+		while (builder.length() < endLength) {
+			switch (kind) {
+				case PROSE:
+					appendSentence(builder);
+					break;
+				case CODE:
+					appendCodeBlock(builder, 0);
+					break;
+				case MULTILINGUAL:
+					appendMultilingualSentence(builder);
+					break;
+				case NUMBERS:
+					appendNumbers(builder);
+					break;
+				case ADVERSARIAL:
+					appendLongPiece(builder);
+					break;
+				default:
+					throw new IllegalStateException("Unknown kind " + kind);
+			}
+		}
+	}
+
+	private void appendSentence(final StringBuilder builder) {
+		final int words = 4 + random.nextInt(20);
+		for (int i = 0; i < words; i++) {
+			final String word = zipfWord();
+			if (i == 0) {
+				builder.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+			} else {
+				builder.append(' ').append(word);
+			}
+
+			if (i < words - 1 && random.nextInt(12) == 0) {
+				builder.append(random.nextBoolean() ? "," : ";");
+			}
+		}
+		builder.append(pick(".", ".", ".", "!", "?", "...", ".\"")).append(random.nextInt(5) == 0 ? "\n" : " ");
+	}
+
+	private void appendCodeBlock(final StringBuilder builder, final int depth) {
+		final String indent = random.nextBoolean() ? "\t" : "    ";
+		final String identifier = identifier();
+		indent(builder, indent, depth).append(pick("public ", "private ", "", "def ")).append(identifier)
+				.append('(').append(identifier()).append(", ").append(identifier()).append(") {\n");
+
+		final int statements = 1 + random.nextInt(6);
+		for (int i = 0; i < statements; i++) {
+			if (depth < 4 && random.nextInt(4) == 0) {
+				appendCodeBlock(builder, depth + 1);
+				continue;
+			}
+
+			indent(builder, indent, depth + 1).append(pick(KEYWORDS)).append(' ').append(identifier())
+					.append(" = ").append(identifier()).append('.').append(identifier())
+					.append('(').append(random.nextInt(1000)).append(");");
+			if (random.nextInt(3) == 0) {
+				builder.append(" // ").append(zipfWord()).append(' ').append(zipfWord());
+			}
+			builder.append('\n');
+		}
+		indent(builder, indent, depth).append("}\n");
+		if (random.nextInt(3) == 0) {
+			builder.append('\n');
+		}
+	}
+
+	private void appendMultilingualSentence(final StringBuilder builder) {
+		final String[] script = SCRIPTS[random.nextInt(SCRIPTS.length)];
+		final int words = 3 + random.nextInt(12);
+		for (int i = 0; i < words; i++) {
+			builder.append(script[random.nextInt(script.length)]).append(' ');
+		}
+		builder.append(pick("。", ".", "!", "؟", "।")).append('\n');
+	}
+
+	private void appendNumbers(final StringBuilder builder) {
+		switch (random.nextInt(5)) {
+			case 0:
+				builder.append(random.nextInt(Integer.MAX_VALUE));
+				break;
+			case 1:
+				builder.append(String.format(Locale.ROOT, "%.4f", random.nextDouble() * 10_000));
+				break;
+			case 2:
+				builder.append(String.format(Locale.ROOT, "%04d-%02d-%02d", 1900 + random.nextInt(200), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+				break;
+			case 3:
+				builder.append("0x").append(Long.toHexString(random.nextLong()));
+				break;
+			default:
+				builder.append('+').append(10 + random.nextInt(89)).append(' ').append(100_000_000 + random.nextInt(899_999_999));
+				break;
+		}
+		builder.append(pick(" ", ", ", "\n", "\t"));
+	}
+
+	private void appendLongPiece(final StringBuilder builder) {
+		final int length = 256 + random.nextInt(4096);
+		switch (random.nextInt(5)) {
+			case 0:
+				// a single letter repeated, e.g. "aaaaaaaa"
+				repeat(builder, (char) ('a' + random.nextInt(26)), length);
+				break;
+			case 1:
+				// letters without any whitespace
+				for (int i = 0; i < length; i++) {
+					builder.append((char) ('a' + random.nextInt(26)));
+				}
+				break;
+			case 2:
+				// base64 encoded binary data
+				final byte[] bytes = new byte[length * 3 / 4];
+				random.nextBytes(bytes);
+				builder.append(Base64.getEncoder().encodeToString(bytes));
+				break;
+			case 3:
+				// whitespace and punctuation runs
+				repeat(builder, ' ', length / 2);
+				repeat(builder, pick("=", "-", "*", "#").charAt(0), length / 2);
+				break;
+			default:
+				// digits without any separator
+				for (int i = 0; i < length; i++) {
+					builder.append((char) ('0' + random.nextInt(10)));
+				}
+				break;
+		}
+		builder.append('\n');
+	}
+
+	private Kind randomKind() {
+		int value = random.nextInt(Arrays.stream(Kind.values()).mapToInt(it -> it.weight).sum());
+		for (final Kind kind : Kind.values()) {
+			value -= kind.weight;
+			if (value < 0) {
+				return kind;
+			}
+		}
+		throw new IllegalStateException("Weights are inconsistent");
+	}
+
+	private String zipfWord() {
+		int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+		if (index < 0) {
+			index = -index - 1;
+		}
+		return vocabulary[Math.min(index, vocabulary.length - 1)];
+	}
+
+	private String identifier() {
+		final String first = zipfWord();
+		final String second = zipfWord();
+		return first + Character.toUpperCase(second.charAt(0)) + second.substring(1);
+	}
+
+	@SafeVarargs
+	private <T> T pick(final T... values) {
+		return values[random.nextInt(values.length)];
+	}
+
+	private static String truncate(final StringBuilder builder, final int length) {
+		// Do not split a surrogate pair
+		final int end = length > 0 && Character.isHighSurrogate(builder.charAt(length - 1)) ? length - 1 : length;
+		return builder.substring(0, end);
+	}
+
+	private static StringBuilder indent(final StringBuilder builder, final String indent, final int depth) {
+		for (int i = 0; i < depth; i++) {
+			builder.append(indent);
+		}
+		return builder;
+	}
+
+	private static void repeat(final StringBuilder builder, final char c, final int count) {
+		for (int i = 0; i < count; i++) {
+			builder.append(c);
+		}
+	}
+
+	/*
+	 * The most frequent words are real English words, the long tail consists of made-up words built from
+	 * syllables, so that the rare words are split into several tokens like real rare words are.
+	 */
+	private static String[] createVocabulary(final Random random) {
+		final var words = new ArrayList<>(Arrays.asList(COMMON_WORDS));
+		while (words.size() < VOCABULARY_SIZE) {
+			final var word = new StringBuilder();
+			final int syllables = 2 + random.nextInt(4);
+			for (int i = 0; i < syllables; i++) {
+				word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+			}
+			words.add(word.toString());
+		}
+		return words.toArray(new String[0]);
+	}
+
+	private static double[] zipfDistribution(final int size) {
+		final double[] cumulative = new double[size];
+		double sum = 0;
+		for (int rank = 1; rank <= size; rank++) {
+			// StrictMath yields the same distribution on every platform
+			sum += 1 / StrictMath.pow(rank, ZIPF_EXPONENT);
+			cumulative[rank - 1] = sum;
+		}
+		for (int i = 0; i < size; i++) {
+			cumulative[i] /= sum;
+		}
+		return cumulative;
+	}
+
+	/**
+	 * Writes a generated corpus to a folder, e.g. to benchmark tiktoken with the same data.
+	 *
+	 * @param args the output folder, the number of documents, the document length in characters and the seed
+	 * @throws IOException if the corpus can not be written
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 4) {
+			System.out.println("Usage: CorpusGenerator <folder> <documents> <document length> <seed>");
+			return;
+		}
+
+		final Path folder = Paths.get(args[0]);
+		final var documents = new CorpusGenerator(Long.parseLong(args[3]))
+				.generate(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+
+		Files.createDirectories(folder);
+		for (int i = 0; i < documents.size(); i++) {
+			Files.write(folder.resolve(String.format("generated-%04d.txt", i)), documents.get(i).getBytes(StandardCharsets.UTF_8));
+		}
+		System.out.println("Generated " + documents.size() + " documents in " + folder.toAbsolutePath());
+	}
+}
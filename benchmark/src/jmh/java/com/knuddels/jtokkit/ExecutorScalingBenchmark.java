@@ -0,0 +1,190 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how the encoding throughput scales with the number of threads for different ways of distributing
+ * the documents:
+ * <ul>
+ *     <li>{@code fixed}: a fixed thread pool with one task per document, like {@link AbstractMultiThreadedBenchmark}</li>
+ *     <li>{@code forkJoin}: a work-stealing {@link ForkJoinPool} with one task per document</li>
+ *     <li>{@code virtual}: one virtual thread per document, with at most {@code threads} documents in flight.
+ *     Requires Java 21, see {@link VirtualThreads}</li>
+ *     <li>{@code confined}: one platform thread per slice of the documents, each with its own encoding instance, so
+ *     that the threads share nothing</li>
+ * </ul>
+ * Besides the batches per second, the benchmark reports the encoded and allocated bytes per second and worker
+ * thread. If {@code confined} keeps scaling where the others flatten, the shared vocabulary is the bottleneck. If
+ * the allocation rate per thread drops together with the throughput, it is the allocator or the memory bandwidth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ExecutorScalingBenchmark {
+
+	private static final int DOCUMENTS_PER_THREAD = 8;
+
+	@Param({"fixed", "forkJoin", "virtual", "confined"})
+	public String executor;
+
+	@Param({"1", "2", "4", "8", "16", "32", "64"})
+	public int threads;
+
+	@Param("cl100k_base")
+	public String encodingName;
+
+	@Param("42")
+	public long corpusSeed;
+
+	@Param("16384")
+	public int documentLength;
+
+	private List<String> documents;
+	private long documentBytes;
+	private Encoding[] encodings;
+	private ExecutorService executorService;
+	private Semaphore inFlight;
+	private final LongAdder allocatedBytes = new LongAdder();
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class PerThreadCounters {
+		/**
+		 * The UTF-8 bytes of the encoded documents, divided by the number of worker threads.
+		 */
+		public long encodedBytesPerThread;
+
+		/**
+		 * The bytes allocated by the worker threads, divided by their number. Not available for virtual threads.
+		 */
+		public long allocatedBytesPerThread;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			encodedBytesPerThread = 0;
+			allocatedBytesPerThread = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		documents = new CorpusGenerator(corpusSeed).generate(threads * DOCUMENTS_PER_THREAD, documentLength);
+		documentBytes = documents.stream()
+				.mapToLong(it -> it.getBytes(StandardCharsets.UTF_8).length)
+				.sum();
+
+		// Only the confined variant gets an encoding instance per thread, all others share a single one
+		encodings = new Encoding[executor.equals("confined") ? threads : 1];
+		for (int i = 0; i < encodings.length; i++) {
+			encodings[i] = ComponentBenchmarkState.newEncoding(encodingName);
+		}
+
+		switch (executor) {
+			case "fixed":
+			case "confined":
+				executorService = Executors.newFixedThreadPool(threads);
+				break;
+			case "forkJoin":
+				executorService = new ForkJoinPool(threads);
+				break;
+			case "virtual":
+				executorService = VirtualThreads.newVirtualThreadPerTaskExecutor();
+				inFlight = new Semaphore(threads);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown executor " + executor);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executorService.shutdown();
+	}
+
+	@Benchmark
+	public long encodeBatch(final PerThreadCounters counters) throws InterruptedException {
+		allocatedBytes.reset();
+
+		final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		if (executor.equals("confined")) {
+			for (int thread = 0; thread < threads; thread++) {
+				final Encoding encoding = encodings[thread];
+				final List<String> slice = documents.subList(thread * DOCUMENTS_PER_THREAD, (thread + 1) * DOCUMENTS_PER_THREAD);
+				futures.add(CompletableFuture.supplyAsync(() -> encodeMeasured(encoding, slice), executorService));
+			}
+		} else {
+			for (final String document : documents) {
+				if (inFlight != null) {
+					inFlight.acquire();
+				}
+
+				final CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> encodeMeasured(encodings[0], List.of(document)), executorService);
+				if (inFlight != null) {
+					future.whenComplete((tokens, error) -> inFlight.release());
+				}
+				futures.add(future);
+			}
+		}
+
+		long tokens = 0;
+		for (final CompletableFuture<Integer> future : futures) {
+			tokens += future.join();
+		}
+
+		counters.encodedBytesPerThread += documentBytes / threads;
+		counters.allocatedBytesPerThread += allocatedBytes.sum() / threads;
+		return tokens;
+	}
+
+	private int encodeMeasured(final Encoding encoding, final List<String> documents) {
+		final long allocatedBefore = currentThreadAllocatedBytes();
+		int tokens = 0;
+		for (final String document : documents) {
+			tokens += encoding.countTokensOrdinary(document);
+		}
+
+		final long allocatedAfter = currentThreadAllocatedBytes();
+		if (allocatedBefore >= 0 && allocatedAfter >= 0) {
+			allocatedBytes.add(allocatedAfter - allocatedBefore);
+		}
+		return tokens;
+	}
+
+	/*
+	 * Returns the bytes allocated by the current thread so far, or -1 if this is not supported, e.g. for virtual
+	 * threads.
+	 */
+	private static long currentThreadAllocatedBytes() {
+		final var bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+}
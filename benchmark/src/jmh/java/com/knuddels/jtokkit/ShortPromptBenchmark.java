@@ -0,0 +1,42 @@
+package com.knuddels.jtokkit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency distribution, throughput and allocation of single calls with short prompts, which is
+ * the typical workload of a service that tokenizes requests. Run with {@code -Pjmh.profilers=gc} to see the
+ * allocated bytes per call, which the {@code compareShortPromptBaseline} task compares to the checked-in baseline.
+ */
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ShortPromptBenchmark {
+
+	@Benchmark
+	public List<Integer> encode(final ShortPromptState state) {
+		return state.encoding.encodeOrdinary(state.prompt(state.next()));
+	}
+
+	@Benchmark
+	public int countTokens(final ShortPromptState state) {
+		return state.encoding.countTokensOrdinary(state.prompt(state.next()));
+	}
+
+	@Benchmark
+	public int estimateTokenCount(final ShortPromptState state) {
+		return state.encoding.estimateTokenCount(state.prompt(state.next())).getEstimate();
+	}
+
+	@Benchmark
+	public String decode(final ShortPromptState state) {
+		return state.encoding.decode(state.tokens(state.next()));
+	}
+}
@@ -0,0 +1,69 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import java.util.List;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A fixed set of generated prompts between 50 and 2,000 characters, which are handed out one after another.
+ */
+@State(Scope.Thread)
+public class ShortPromptState {
+
+	private static final int MIN_LENGTH = 50;
+	private static final int MAX_LENGTH = 2_000;
+
+	@Param({"cl100k_base", "p50k_base", "r50k_base"})
+	public String encodingName;
+
+	@Param("42")
+	public long corpusSeed;
+
+	@Param("4096")
+	public int promptCount;
+
+	public Encoding encoding;
+
+	private String[] prompts;
+	private List<?>[] tokens;
+	private int index;
+
+	@Setup
+	public void setup() {
+		encoding = ComponentBenchmarkState.newEncoding(encodingName);
+
+		final var generator = new CorpusGenerator(corpusSeed);
+		final var lengths = new Random(corpusSeed);
+		prompts = new String[promptCount];
+		tokens = new List<?>[promptCount];
+		for (int i = 0; i < promptCount; i++) {
+			// Log-uniform lengths, so that short prompts are as common as in real traffic
+			final double exponent = StrictMath.log(MIN_LENGTH) + lengths.nextDouble() * (StrictMath.log(MAX_LENGTH) - StrictMath.log(MIN_LENGTH));
+			prompts[i] = generator.generate((int) StrictMath.exp(exponent));
+			tokens[i] = encoding.encodeOrdinary(prompts[i]);
+		}
+	}
+
+	/**
+	 * Advances to the next prompt.
+	 *
+	 * @return the index of the next prompt
+	 */
+	public int next() {
+		index = (index + 1) % promptCount;
+		return index;
+	}
+
+	public String prompt(final int index) {
+		return prompts[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	public List<Integer> tokens(final int index) {
+		return (List<Integer>) tokens[index];
+	}
+}
@@ -0,0 +1,69 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of creating registries and encodings, i.e. of loading the vocabularies from the classpath.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class StartupBenchmark {
+
+	private static final Map<String, String> VOCABULARY_FILES = Map.of(
+			"cl100k_base", "/com/knuddels/jtokkit/cl100k_base.tiktoken",
+			"p50k_base", "/com/knuddels/jtokkit/p50k_base.tiktoken",
+			"p50k_edit", "/com/knuddels/jtokkit/p50k_base.tiktoken",
+			"r50k_base", "/com/knuddels/jtokkit/r50k_base.tiktoken"
+	);
+
+	@State(Scope.Benchmark)
+	public static class EncodingState {
+		@Param({"cl100k_base", "p50k_base", "p50k_edit", "r50k_base"})
+		public String encodingName;
+	}
+
+	@State(Scope.Benchmark)
+	public static class VocabularyState {
+		@Param({"cl100k_base", "p50k_base", "r50k_base"})
+		public String encodingName;
+
+		public MergeableRanks mergeableRanks;
+
+		@Setup
+		public void setup() {
+			mergeableRanks = MergeableRanks.load(VOCABULARY_FILES.get(encodingName));
+		}
+	}
+
+	@Benchmark
+	public EncodingRegistry defaultRegistryCreation() {
+		return Encodings.newDefaultEncodingRegistry();
+	}
+
+	@Benchmark
+	public Encoding encodingCreation(final EncodingState state) {
+		return ComponentBenchmarkState.newEncoding(state.encodingName);
+	}
+
+	@Benchmark
+	public MergeableRanks vocabularyLoading(final EncodingState state) {
+		return MergeableRanks.load(VOCABULARY_FILES.get(state.encodingName));
+	}
+
+	@Benchmark
+	public TokenVocabulary vocabularyIndexing(final VocabularyState state) {
+		return TokenVocabulary.from(state.mergeableRanks);
+	}
+}
@@ -0,0 +1,95 @@
+package com.knuddels.jtokkit;
+
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * The classes of text the component benchmarks are run against. Each class stresses a different part of the
+ * tokenizer, e.g. long letter runs for prose, whitespace runs for indented code or pieces without any vocabulary
+ * hit for base64.
+ */
+public enum TextClass {
+	ENGLISH_PROSE(
+			"It was the best of times, it was the worst of times, it was the age of wisdom, it was the age of "
+					+ "foolishness, it was the epoch of belief, it was the epoch of incredulity, it was the season of "
+					+ "Light, it was the season of Darkness, it was the spring of hope, it was the winter of despair. "
+					+ "We had everything before us, we had nothing before us; we were all going direct to Heaven, we "
+					+ "were all going direct the other way. In short, the period was so far like the present period, "
+					+ "that some of its noisiest authorities insisted on its being received, for good or for evil, in "
+					+ "the superlative degree of comparison only.\n\n"
+	),
+	SOURCE_CODE(
+			"public final class LruCache<K, V> extends LinkedHashMap<K, V> {\n"
+					+ "\tprivate final int maxEntries;\n"
+					+ "\n"
+					+ "\tpublic LruCache(final int maxEntries) {\n"
+					+ "\t\tsuper(16, 0.75f, true);\n"
+					+ "\t\tthis.maxEntries = maxEntries;\n"
+					+ "\t}\n"
+					+ "\n"
+					+ "\t@Override\n"
+					+ "\tprotected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {\n"
+					+ "\t\treturn size() > maxEntries; // evict once the cache is full\n"
+					+ "\t}\n"
+					+ "}\n"
+					+ "\n"
+					+ "def fibonacci(n: int) -> list[int]:\n"
+					+ "    result = [0, 1]\n"
+					+ "    while len(result) < n:\n"
+					+ "        result.append(result[-1] + result[-2])\n"
+					+ "    return result[:n]\n"
+					+ "\n"
+	),
+	CJK(
+			"吾輩は猫である。名前はまだ無い。どこで生れたかとんと見当がつかぬ。何でも薄暗いじめじめした所で"
+					+ "ニャーニャー泣いていた事だけは記憶している。学而时习之，不亦说乎？有朋自远方来，不亦乐乎？"
+					+ "人不知而不愠，不亦君子乎？모든 인간은 태어날 때부터 자유로우며 그 존엄과 권리에 있어 동등하다.\n"
+	),
+	EMOJI(
+			"Great job team! 🎉🎉🎉 Shipping on Friday 🚀 ... 👩‍💻👨‍👩‍👧‍👦 ❤️‍🔥 🏳️‍🌈 👍🏽👍🏿 "
+					+ "Weather: ☀️🌤️⛅🌧️⛈️ Food: 🍕🍔🌮🍣🍜 Flags: 🇩🇪🇺🇸🇯🇵 Faces: 😀😃😄😁😆😅🤣😂🙂🙃\n"
+	),
+	WHITESPACE_HEAVY(
+			"        if (value == null) {\n"
+					+ "                        return;\n"
+					+ "        }\n"
+					+ "\n\n\n"
+					+ "| Name        | Value       |    Unit |\n"
+					+ "|-------------|-------------|---------|\n"
+					+ "| latency     |        12.5 |      ms |\n"
+					+ "\t\t\t\t  \t  \n"
+					+ "                                                                \n"
+	),
+	BASE64(null);
+
+	private static final int TARGET_LENGTH = 16 * 1024;
+
+	private final String text;
+
+	TextClass(final String sample) {
+		this.text = sample == null ? randomBase64() : repeat(sample);
+	}
+
+	/**
+	 * Returns a sample text of this class of roughly 16k characters.
+	 *
+	 * @return the sample text
+	 */
+	public String text() {
+		return text;
+	}
+
+	private static String repeat(final String sample) {
+		final StringBuilder builder = new StringBuilder(TARGET_LENGTH + sample.length());
+		while (builder.length() < TARGET_LENGTH) {
+			builder.append(sample);
+		}
+		return builder.toString();
+	}
+
+	private static String randomBase64() {
+		final byte[] bytes = new byte[TARGET_LENGTH * 3 / 4];
+		new Random(42).nextBytes(bytes);
+		return Base64.getMimeEncoder().encodeToString(bytes);
+	}
+}
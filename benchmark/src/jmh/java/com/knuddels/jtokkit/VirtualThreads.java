@@ -0,0 +1,23 @@
+package com.knuddels.jtokkit;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads, which are only available from Java 21 onwards. The benchmark jar is a
+ * multi-release jar, which contains a variant of this class for Java 21 that creates actual virtual threads.
+ */
+public final class VirtualThreads {
+
+	/**
+	 * Creates an executor that starts a new virtual thread for each task.
+	 *
+	 * @return the executor
+	 * @throws UnsupportedOperationException if the runtime does not support virtual threads
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		throw new UnsupportedOperationException("Virtual threads require Java 21, run with -Pjmh.javaVersion=21");
+	}
+
+	private VirtualThreads() {
+	}
+}
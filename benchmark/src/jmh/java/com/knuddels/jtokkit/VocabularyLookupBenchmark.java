@@ -0,0 +1,93 @@
+package com.knuddels.jtokkit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the rank lookup of the perfect hash based {@link TokenVocabulary} with the {@link HashMap} of
+ * {@link ImmutableByteArray}s that {@link TokenEncoder} used before. Like in the previous {@code getRank}, the map
+ * lookup includes copying the looked up slice into a new key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class VocabularyLookupBenchmark {
+
+	@Param({"cl100k_base", "r50k_base"})
+	public String encodingName;
+
+	@Param({"ENGLISH_PROSE", "SOURCE_CODE", "CJK", "WHITESPACE_HEAVY"})
+	public TextClass textClass;
+
+	/**
+	 * Whether to look up whole pieces, as done before merging, or the byte pairs within them, as done by the
+	 * first round of merging.
+	 */
+	@Param({"pieces", "pairs"})
+	public String keys;
+
+	private TokenVocabulary vocabulary;
+	private Map<ImmutableByteArray, Integer> map;
+	private List<byte[]> pieces;
+	private List<ImmutableByteArray> immutablePieces;
+	private List<int[]> slices;
+
+	@Setup
+	public void setup() {
+		final var mergeableRanks = EncodingFactory.loadMergeableRanks("/com/knuddels/jtokkit/" + encodingName + ".tiktoken");
+		vocabulary = TokenVocabulary.from(mergeableRanks);
+		map = new HashMap<>();
+		for (final var entry : mergeableRanks.entrySet()) {
+			map.put(ImmutableByteArray.from(entry.getKey()), entry.getValue());
+		}
+
+		pieces = new ArrayList<>();
+		immutablePieces = new ArrayList<>();
+		slices = new ArrayList<>();
+		final var matcher = ComponentBenchmarkState.newEncoding(encodingName).getPattern().matcher(textClass.text());
+		while (matcher.find()) {
+			final var piece = matcher.group().getBytes(StandardCharsets.UTF_8);
+			final int pieceIndex = pieces.size();
+			pieces.add(piece);
+			immutablePieces.add(ImmutableByteArray.from(piece));
+			if (keys.equals("pieces")) {
+				slices.add(new int[]{pieceIndex, 0, piece.length});
+			} else {
+				for (int start = 0; start + 2 <= piece.length; start++) {
+					slices.add(new int[]{pieceIndex, start, start + 2});
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void perfectHash(final Blackhole blackhole) {
+		for (final var slice : slices) {
+			blackhole.consume(vocabulary.getRank(pieces.get(slice[0]), slice[1], slice[2]));
+		}
+	}
+
+	@Benchmark
+	public void hashMap(final Blackhole blackhole) {
+		for (final var slice : slices) {
+			blackhole.consume(map.get(immutablePieces.get(slice[0]).getBytesBetween(slice[1], slice[2])));
+		}
+	}
+}
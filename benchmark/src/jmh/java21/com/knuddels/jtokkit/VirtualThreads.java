@@ -0,0 +1,22 @@
+package com.knuddels.jtokkit;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, which are only available from Java 21 onwards.
+ */
+public final class VirtualThreads {
+
+	/**
+	 * Creates an executor that starts a new virtual thread for each task.
+	 *
+	 * @return the executor
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		return Executors.newVirtualThreadPerTaskExecutor();
+	}
+
+	private VirtualThreads() {
+	}
+}
@@ -20,9 +20,99 @@ java {
     withJavadocJar()
 }
 
+// Classes in src/main/java<N> are packaged under META-INF/versions/<N> and replace their counterparts of lower
+// versions on runtimes of version N and newer, e.g. to emit Java Flight Recorder events on Java 11, to compare arrays
+// with intrinsics on Java 17 or to use the Vector API on Java 21. Each version is compiled against the classes of all
+// lower versions, since the runtime picks those for everything that has no variant of its own.
+val releases = listOf(11, 17, 21)
+
+// The Vector API is still an incubator module, which has to be added explicitly at compile time and at runtime
+fun incubatorModules(release: Int) = if (release >= 21) listOf("--add-modules", "jdk.incubator.vector") else emptyList()
+
+// Classes in src/flow/java use the Flow API of Java 11, but add public API, which the versioned classes of a
+// multi-release jar must not. They are packaged next to the Java 8 classes and are only loaded by callers on Java 11.
+val flow: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+}
+
+tasks.named<JavaCompile>(flow.compileJavaTaskName) {
+    javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(JavaLanguageVersion.of(11)) })
+    options.release.set(11)
+}
+
+tasks.jar {
+    from(flow.output)
+}
+
+tasks.named<Jar>("sourcesJar") {
+    from(flow.allSource)
+}
+
+tasks.javadoc {
+    javadocTool.set(javaToolchains.javadocToolFor { languageVersion.set(JavaLanguageVersion.of(11)) })
+    source(flow.allJava)
+    classpath += flow.output
+}
+
+var lowerReleasesOutput: FileCollection = sourceSets.main.get().output + flow.output
+var lowerReleasesTestOutput: FileCollection = files()
+var lowerReleasesTestClasses: FileCollection = files()
+val releaseTestTasks = releases.map { release ->
+    val releaseMain = sourceSets.create("java$release") {
+        java.srcDir("src/main/java$release")
+        compileClasspath += lowerReleasesOutput
+    }
+    // The versioned classes must shadow their counterparts of lower versions, as they would in the multi-release jar
+    val releaseOutput = releaseMain.output + lowerReleasesOutput
+
+    val releaseTest = sourceSets.create("java${release}Test") {
+        java.srcDir("src/test/java$release")
+        compileClasspath += releaseOutput + sourceSets.test.get().compileClasspath
+        runtimeClasspath += releaseOutput + sourceSets.test.get().runtimeClasspath
+    }
+    val releaseTestOutput = releaseTest.output + lowerReleasesTestOutput
+    val releaseTestClasses = releaseTest.output.classesDirs + lowerReleasesTestClasses
+
+    listOf(releaseMain.compileJavaTaskName, releaseTest.compileJavaTaskName).forEach { taskName ->
+        tasks.named<JavaCompile>(taskName) {
+            javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(JavaLanguageVersion.of(release)) })
+            options.release.set(release)
+            options.compilerArgs.addAll(incubatorModules(release))
+        }
+    }
+
+    tasks.jar {
+        into("META-INF/versions/$release") {
+            from(releaseMain.output)
+        }
+    }
+
+    lowerReleasesOutput = releaseOutput
+    lowerReleasesTestOutput = releaseTestOutput
+    lowerReleasesTestClasses = releaseTestClasses
+    tasks.register<Test>("testJava$release") {
+        description = "Runs all tests with the classes for Java $release on a Java $release runtime."
+        group = "verification"
+
+        javaLauncher.set(javaToolchains.launcherFor { languageVersion.set(JavaLanguageVersion.of(release)) })
+        // The reference tests of the Java 8 classes run on every runtime, so all variants have to produce the same tokens
+        testClassesDirs = releaseTestClasses + sourceSets.test.get().output.classesDirs
+        classpath = releaseTestOutput + releaseOutput + sourceSets.test.get().runtimeClasspath
+        jvmArgs(incubatorModules(release))
+        useJUnitPlatform()
+    }
+}
+
+tasks.jar {
+    manifest {
+        attributes("Multi-Release" to "true")
+    }
+}
+
 dependencies {
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.10.1")
     testImplementation("org.junit.jupiter:junit-jupiter-params:5.10.1")
+    testImplementation("org.openjdk.jol:jol-core:0.17")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.10.1")
 }
 
@@ -30,6 +120,10 @@ tasks.getByName<Test>("test") {
     useJUnitPlatform()
 }
 
+tasks.check {
+    dependsOn(releaseTestTasks)
+}
+
 publishing {
     repositories {
         maven {
@@ -0,0 +1,228 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The {@link Flow.Processor} created by {@link EncodingProcessors#newEncodingProcessor(Encoding, Executor)}, which
+ * encodes a text arriving in chunks into batches of tokens.
+ * <p>
+ * Every signal of the upstream or the subscriber schedules a drain on the executor, which is never executed
+ * concurrently. It carries the unfinished last piece of a chunk over to the next chunk and requests one chunk at a
+ * time from upstream, as long as the subscriber has demand. Encodings that are not built-in byte pair encodings
+ * can not be encoded piece by piece; for them, all chunks are buffered and encoded once the upstream completes.
+ */
+final class EncodingProcessor implements Flow.Processor<CharSequence, int[]> {
+
+	private final Encoding encoding;
+	private final Executor executor;
+
+	private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+	private final AtomicReference<Flow.Subscriber<? super int[]>> downstream = new AtomicReference<>();
+	private final Queue<CharSequence> chunks = new ConcurrentLinkedQueue<>();
+	private final AtomicLong requested = new AtomicLong();
+	private final AtomicInteger wip = new AtomicInteger();
+
+	private volatile boolean upstreamDone;
+	private volatile Throwable upstreamError;
+	private volatile Throwable invalidRequest;
+	private volatile boolean cancelled;
+
+	// Only accessed from within drain(), which is never executed concurrently
+	private final StringBuilder text = new StringBuilder();
+	private boolean chunkRequested;
+	private boolean terminated;
+
+	/**
+	 * Creates a new processor, which encodes the chunks on the threads that deliver or request them.
+	 *
+	 * @param encoding the encoding to use
+	 */
+	EncodingProcessor(final Encoding encoding) {
+		this(encoding, Runnable::run);
+	}
+
+	/**
+	 * Creates a new processor, which encodes the chunks on the given executor.
+	 *
+	 * @param encoding the encoding to use
+	 * @param executor the executor to encode the chunks on
+	 */
+	EncodingProcessor(final Encoding encoding, final Executor executor) {
+		this.encoding = Objects.requireNonNull(encoding, "Encoding must not be null");
+		this.executor = Objects.requireNonNull(executor, "Executor must not be null");
+	}
+
+	@Override
+	public void subscribe(final Flow.Subscriber<? super int[]> subscriber) {
+		Objects.requireNonNull(subscriber, "Subscriber must not be null");
+		if (!downstream.compareAndSet(null, subscriber)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(final long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("EncodingProcessor supports only a single subscriber"));
+			return;
+		}
+
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(final long n) {
+				if (n <= 0) {
+					invalidRequest = new IllegalArgumentException("Requested a non-positive number of batches: " + n);
+				} else {
+					requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+				}
+				schedule();
+			}
+
+			@Override
+			public void cancel() {
+				cancelled = true;
+				schedule();
+			}
+		});
+		schedule();
+	}
+
+	@Override
+	public void onSubscribe(final Flow.Subscription subscription) {
+		if (!upstream.compareAndSet(null, subscription)) {
+			subscription.cancel();
+			return;
+		}
+		schedule();
+	}
+
+	@Override
+	public void onNext(final CharSequence chunk) {
+		chunks.offer(Objects.requireNonNull(chunk, "Chunk must not be null"));
+		schedule();
+	}
+
+	@Override
+	public void onError(final Throwable throwable) {
+		upstreamError = throwable;
+		upstreamDone = true;
+		schedule();
+	}
+
+	@Override
+	public void onComplete() {
+		upstreamDone = true;
+		schedule();
+	}
+
+	private void schedule() {
+		if (wip.getAndIncrement() == 0) {
+			executor.execute(this::drain);
+		}
+	}
+
+	private void drain() {
+		int missed = 1;
+		do {
+			drainOnce();
+			missed = wip.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void drainOnce() {
+		final Flow.Subscription subscription = upstream.get();
+		final Flow.Subscriber<? super int[]> subscriber = downstream.get();
+		if (terminated || subscription == null || subscriber == null) {
+			return;
+		}
+
+		if (cancelled || invalidRequest != null) {
+			terminated = true;
+			chunks.clear();
+			subscription.cancel();
+			if (!cancelled) {
+				subscriber.onError(invalidRequest);
+			}
+			return;
+		}
+
+		while (requested.get() > 0) {
+			// Read the completion before polling, so that we can not miss a chunk that arrived in between
+			final boolean done = upstreamDone;
+			final CharSequence chunk = chunks.poll();
+			if (chunk != null) {
+				chunkRequested = false;
+				text.append(chunk);
+				final int[] batch = encode(false);
+				if (batch.length > 0) {
+					requested.decrementAndGet();
+					subscriber.onNext(batch);
+				}
+				continue;
+			}
+
+			if (done) {
+				terminate(subscriber);
+				return;
+			}
+
+			if (!chunkRequested) {
+				chunkRequested = true;
+				subscription.request(1);
+				// The upstream may have delivered the chunk synchronously
+				continue;
+			}
+			return;
+		}
+
+		// Without demand, we can still terminate, if there are no tokens left to publish
+		if (upstreamDone && chunks.isEmpty() && (upstreamError != null || text.length() == 0)) {
+			terminate(subscriber);
+		}
+	}
+
+	private void terminate(final Flow.Subscriber<? super int[]> subscriber) {
+		terminated = true;
+		if (upstreamError != null) {
+			subscriber.onError(upstreamError);
+			return;
+		}
+
+		final int[] batch = encode(true);
+		if (batch.length > 0) {
+			requested.decrementAndGet();
+			subscriber.onNext(batch);
+		}
+		subscriber.onComplete();
+	}
+
+	private int[] encode(final boolean endOfText) {
+		final List<Integer> tokens = new ArrayList<>();
+		if (encoding instanceof GptBytePairEncoding) {
+			final int end = ((GptBytePairEncoding) encoding).encodeOrdinaryFinishedPieces(text, endOfText, tokens);
+			text.delete(0, end);
+		} else if (endOfText) {
+			tokens.addAll(encoding.encodeOrdinary(text.toString()));
+			text.setLength(0);
+		}
+
+		final int[] batch = new int[tokens.size()];
+		for (int i = 0; i < batch.length; i++) {
+			batch[i] = tokens.get(i);
+		}
+		return batch;
+	}
+}
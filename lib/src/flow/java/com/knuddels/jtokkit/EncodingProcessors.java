@@ -0,0 +1,50 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Creates {@link Flow.Processor}s that encode a text arriving in chunks, e.g. from an HTTP body, into batches of
+ * tokens. Only available on Java 11 and later.
+ */
+public final class EncodingProcessors {
+
+	/**
+	 * Creates a new {@link Flow.Processor} that encodes a text arriving in chunks into batches of tokens. The chunks
+	 * are encoded on the threads that deliver them or request more tokens.
+	 * <p>
+	 * The tokens are the same as if the concatenated chunks were encoded at once with
+	 * {@link Encoding#encodeOrdinary(String)}: The last piece of a chunk, which could still continue in the next
+	 * chunk, is carried over and encoded together with the next chunk. Each published {@code int[]} contains the
+	 * tokens of all pieces that were finished by one chunk, so a chunk may lead to no batch at all. The last batch is
+	 * published once the upstream completes.
+	 * <p>
+	 * The processor respects the demand of its subscriber and requests one chunk at a time from upstream, so it never
+	 * buffers more than a single chunk and the unfinished piece. It supports a single subscriber. Encodings that are
+	 * not built-in byte pair encodings can not be encoded piece by piece; for them, all chunks are buffered and
+	 * encoded once the upstream completes.
+	 *
+	 * @param encoding the encoding to use
+	 * @return the new {@link Flow.Processor}
+	 */
+	public static Flow.Processor<CharSequence, int[]> newEncodingProcessor(final Encoding encoding) {
+		return new EncodingProcessor(encoding);
+	}
+
+	/**
+	 * Creates a new {@link Flow.Processor} like {@link #newEncodingProcessor(Encoding)}, which encodes the chunks on
+	 * the given executor, so that the upstream thread is never blocked by encoding.
+	 *
+	 * @param encoding the encoding to use
+	 * @param executor the executor to encode the chunks on
+	 * @return the new {@link Flow.Processor}
+	 */
+	public static Flow.Processor<CharSequence, int[]> newEncodingProcessor(final Encoding encoding, final Executor executor) {
+		return new EncodingProcessor(encoding, executor);
+	}
+
+	private EncodingProcessors() {
+	}
+}
@@ -6,12 +6,26 @@ import com.knuddels.jtokkit.api.EncodingType;
 import com.knuddels.jtokkit.api.GptBytePairEncodingParams;
 import com.knuddels.jtokkit.api.ModelType;
 
+import java.nio.file.Path;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 
 abstract class AbstractEncodingRegistry implements EncodingRegistry {
     private final ConcurrentHashMap<String, Encoding> encodings = new ConcurrentHashMap<>();
+    private final Path vocabularyDirectory;
+
+    /**
+     * Creates a new registry.
+     *
+     * @param vocabularyDirectory the directory of the memory mapped vocabulary files of the default encodings, or
+     *                            {@code null} to keep their vocabularies on the heap
+     */
+    protected AbstractEncodingRegistry(final Path vocabularyDirectory) {
+        this.vocabularyDirectory = vocabularyDirectory;
+    }
     
     @Override
     public Optional<Encoding> getEncoding(final String encodingName) {
@@ -76,20 +90,63 @@ abstract class AbstractEncodingRegistry implements EncodingRegistry {
         return this;
     }
 
-    protected final void addEncoding(final EncodingType encodingType) {
+    /**
+     * Returns the encoding with the given name without blocking, or {@code null} if it was not added yet.
+     *
+     * @param encodingName the name of the encoding
+     * @return the encoding, or {@code null}
+     */
+    protected final Encoding findEncoding(final String encodingName) {
+        return encodings.get(encodingName);
+    }
+
+    /**
+     * Adds the given encoding, unless an encoding with the same name was added before.
+     *
+     * @param encoding the encoding to add
+     * @return the encoding that is registered under the name of the given encoding
+     */
+    protected final Encoding addEncoding(final Encoding encoding) {
+        final Encoding previousEncoding = encodings.putIfAbsent(encoding.getName(), encoding);
+        return previousEncoding != null ? previousEncoding : encoding;
+    }
+
+    /**
+     * Waits for the given encoding to be created and rethrows the exception that it failed with, if any.
+     *
+     * @param encoding the encoding that is being created
+     * @return the created encoding
+     */
+    protected static Encoding join(final CompletableFuture<Encoding> encoding) {
+        try {
+            return encoding.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the default encoding of the given type, without registering it.
+     *
+     * @param encodingType the type of the encoding
+     * @return the new encoding
+     * @throws IllegalStateException if an unknown encoding type is encountered
+     */
+    protected final Encoding createEncoding(final EncodingType encodingType) {
         switch (encodingType) {
             case R50K_BASE:
-                encodings.computeIfAbsent(encodingType.getName(), k -> EncodingFactory.r50kBase());
-                break;
+                return EncodingFactory.r50kBase(vocabularyDirectory);
             case P50K_BASE:
-                encodings.computeIfAbsent(encodingType.getName(), k -> EncodingFactory.p50kBase());
-                break;
+                return EncodingFactory.p50kBase(vocabularyDirectory);
             case P50K_EDIT:
-                encodings.computeIfAbsent(encodingType.getName(), k -> EncodingFactory.p50kEdit());
-                break;
+                return EncodingFactory.p50kEdit(vocabularyDirectory);
             case CL100K_BASE:
-                encodings.computeIfAbsent(encodingType.getName(), k -> EncodingFactory.cl100kBase());
-                break;
+                return EncodingFactory.cl100kBase(vocabularyDirectory);
             default:
                 throw new IllegalStateException("Unknown encoding type " + encodingType.getName());
         }
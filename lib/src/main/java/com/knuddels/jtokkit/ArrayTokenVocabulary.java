@@ -0,0 +1,383 @@
+package com.knuddels.jtokkit;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link TokenVocabulary} that keeps its tables in arrays on the heap.
+ * <p>
+ * The pair table is only built when it is first used, since trying every split of every token takes about as long
+ * as building all other tables. Loading a vocabulary thus does not pay for it, and neither do encodings that only
+ * look up whole pieces.
+ */
+final class ArrayTokenVocabulary extends TokenVocabulary {
+
+	/*
+	 * Two distinct tokens with the same 64-bit hash are very unlikely, so if they occur, a few other seeds are enough
+	 * to find a hash function without collisions.
+	 */
+	private static final int MAX_HASH_SEED = 16;
+
+	private final int size;
+	private final byte[] arena;
+	private final int[] offsets;
+	private final int[] ranks;
+	private final int[] displacements;
+	private final int[] index;
+	private final int pairIdBits;
+	private PairTable pairTable;
+
+	private ArrayTokenVocabulary(
+			final int hashSeed,
+			final int size,
+			final byte[] arena,
+			final int[] offsets,
+			final int[] ranks,
+			final int[] displacements,
+			final int[] index,
+			final int pairIdBits
+	) {
+		super(hashSeed);
+		this.size = size;
+		this.arena = arena;
+		this.offsets = offsets;
+		this.ranks = ranks;
+		this.displacements = displacements;
+		this.index = index;
+		this.pairIdBits = pairIdBits;
+		this.pairTable = pairIdBits == 0 ? PairTable.EMPTY : null;
+	}
+
+	/**
+	 * Creates a new vocabulary from the given mergeable ranks.
+	 *
+	 * @param mergeableRanks the tokens and their ranks
+	 * @return the new vocabulary
+	 */
+	static ArrayTokenVocabulary from(final MergeableRanks mergeableRanks) {
+		final int size = mergeableRanks.size();
+		final long[] rankAndIndex = new long[size];
+		boolean nonEmpty = true;
+		for (int token = 0; token < size; token++) {
+			rankAndIndex[token] = ((long) mergeableRanks.rank(token) << 32) | token;
+			nonEmpty &= mergeableRanks.start(token + 1) > mergeableRanks.start(token);
+		}
+		Arrays.sort(rankAndIndex);
+
+		/*
+		 * If the ranks have only a few gaps, e.g. where a special token was left out, every rank gets its own slot and
+		 * the gaps stay empty, so the ranks do not have to be stored.
+		 */
+		boolean increasing = nonEmpty && size > 0 && rankAndIndex[0] >= 0;
+		boolean inRankOrder = true;
+		for (int i = 1; i < size && increasing; i++) {
+			increasing = (rankAndIndex[i - 1] >> 32) < (rankAndIndex[i] >> 32);
+		}
+		for (int i = 0; i < size && inRankOrder; i++) {
+			inRankOrder = (int) rankAndIndex[i] == i;
+		}
+		final long rankCount = size > 0 ? (rankAndIndex[size - 1] >> 32) + 1 : 0;
+		final int slotCount = increasing && rankCount - size <= size / 8 ? (int) rankCount : size;
+
+		// Like in the .tiktoken files, the tokens are usually already in the order of their ranks and thus of their slots
+		final byte[] source = mergeableRanks.arena();
+		final byte[] arena = inRankOrder ? source : new byte[source.length];
+		final int[] offsets = new int[slotCount + 1];
+		final int[] ranks = new int[slotCount];
+		final int[] tokenSlots = new int[size];
+		boolean dense = true;
+		int offset = 0;
+		int next = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			offsets[slot] = offset;
+			ranks[slot] = slot;
+			final int rank = (int) (rankAndIndex[next] >> 32);
+			if (slotCount == size || rank == slot) {
+				final int token = (int) rankAndIndex[next];
+				final int length = mergeableRanks.start(token + 1) - mergeableRanks.start(token);
+				if (!inRankOrder) {
+					System.arraycopy(source, mergeableRanks.start(token), arena, offset, length);
+				}
+				offset += length;
+				ranks[slot] = rank;
+				dense &= rank == slot;
+				tokenSlots[next++] = slot;
+			}
+		}
+		offsets[slotCount] = offset;
+
+		// If two distinct tokens have the same hash, the minimal perfect hash can not tell them apart, so we hash
+		// them again with the next seed
+		final long[] tokenHashes = new long[size];
+		int hashSeed = 0;
+		long hashMultiplier;
+		int[] slots;
+		while (true) {
+			hashMultiplier = hashMultiplier(hashSeed);
+			for (int i = 0; i < size; i++) {
+				tokenHashes[i] = hash(hashMultiplier, arena, offsets[tokenSlots[i]], offsets[tokenSlots[i] + 1]);
+			}
+			slots = distinctSlots(arena, offsets, tokenSlots, tokenHashes);
+			if (slots != null) {
+				break;
+			}
+			if (++hashSeed > MAX_HASH_SEED) {
+				throw new IllegalStateException("Could not find a hash function without collisions for " + size + " tokens");
+			}
+		}
+		final long[] hashes = new long[slots.length];
+		for (int i = 0; i < slots.length; i++) {
+			hashes[i] = hash(hashMultiplier, arena, offsets[slots[i]], offsets[slots[i] + 1]);
+		}
+		final int[] displacements = MinimalPerfectHash.build(hashes);
+		final int bucketCount = displacements.length;
+		final int[] index = new int[slots.length];
+		for (int i = 0; i < slots.length; i++) {
+			final int displacement = displacements[MinimalPerfectHash.bucket(hashes[i], bucketCount)];
+			index[MinimalPerfectHash.position(hashes[i], displacement, slots.length)] = slots[i];
+		}
+
+		final int maxIdBits = size == 0 || ranks[0] < 0 ? 0 : Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(ranks[slotCount - 1]));
+		final int pairIdBits = maxIdBits <= MAX_PAIR_ID_BITS ? maxIdBits : 0;
+		return new ArrayTokenVocabulary(hashSeed, size, arena, offsets, dense ? null : ranks, displacements, index, pairIdBits);
+	}
+
+	private PairTable pairTable() {
+		// Reading the field without locking is safe, since the fields of the table are final
+		final PairTable table = pairTable;
+		return table != null ? table : initializePairTable();
+	}
+
+	private synchronized PairTable initializePairTable() {
+		if (pairTable == null) {
+			pairTable = buildPairTable();
+		}
+		return pairTable;
+	}
+
+	/*
+	 * Builds the pair table by trying every split point of every distinct token. A token usually has several
+	 * splits into two other tokens, e.g. "abc" into "a" + "bc" and "ab" + "c", and all of them are needed, because
+	 * which of them is merged depends on the piece the token appears in.
+	 */
+	private PairTable buildPairTable() {
+		long[] keys = new long[index.length * 2];
+		int[] merged = new int[keys.length];
+		int pairCount = 0;
+		// The index holds the slot of every distinct token
+		for (final int slot : index) {
+			final int start = offsets[slot];
+			final int end = offsets[slot + 1];
+			for (int split = start + 1; split < end; split++) {
+				final int left = getRank(arena, start, split);
+				if (left == NO_RANK) {
+					continue;
+				}
+
+				final int right = getRank(arena, split, end);
+				if (right == NO_RANK) {
+					continue;
+				}
+
+				if (pairCount == keys.length) {
+					keys = Arrays.copyOf(keys, keys.length * 2);
+					merged = Arrays.copyOf(merged, merged.length * 2);
+				}
+				keys[pairCount] = ((long) left << pairIdBits) | right;
+				merged[pairCount] = rankAt(slot);
+				pairCount++;
+			}
+		}
+
+		keys = Arrays.copyOf(keys, pairCount);
+		final int[] pairDisplacements = MinimalPerfectHash.build(keys);
+		final long[] pairWords = new long[pairWordCount(pairCount, pairIdBits)];
+		final int entryBits = 3 * pairIdBits;
+		for (int i = 0; i < pairCount; i++) {
+			final int displacement = pairDisplacements[MinimalPerfectHash.bucket(keys[i], pairDisplacements.length)];
+			final long bit = (long) MinimalPerfectHash.position(keys[i], displacement, pairCount) * entryBits;
+			final int word = (int) (bit >>> 6);
+			final int shift = (int) (bit & (Long.SIZE - 1));
+			final long entry = (keys[i] << pairIdBits) | merged[i];
+			pairWords[word] |= entry << shift;
+			if (shift + entryBits > Long.SIZE) {
+				pairWords[word + 1] |= entry >>> (Long.SIZE - shift);
+			}
+		}
+
+		final long[] pairFilter = new long[BlockedBloomFilter.wordCount(pairCount)];
+		for (int i = 0; i < pairCount; i++) {
+			BlockedBloomFilter.add(pairFilter, keys[i]);
+		}
+
+		return new PairTable(pairCount, pairDisplacements, pairWords, pairFilter);
+	}
+
+	/*
+	 * Returns the slots of the distinct tokens, or null if two distinct tokens have the same hash. Like in a map, a
+	 * later duplicate of a token replaces the earlier one for lookups, while the rank of the earlier one can still be
+	 * decoded.
+	 */
+	private static int[] distinctSlots(final byte[] arena, final int[] offsets, final int[] tokenSlots, final long[] hashes) {
+		final int size = hashes.length;
+		final long[] sortedHashes = hashes.clone();
+		Arrays.sort(sortedHashes);
+		boolean distinct = true;
+		for (int i = 1; i < size && distinct; i++) {
+			distinct = sortedHashes[i - 1] != sortedHashes[i];
+		}
+		if (distinct) {
+			return tokenSlots;
+		}
+
+		final Map<Long, Integer> slotsByHash = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			final int slot = tokenSlots[i];
+			final Integer previousSlot = slotsByHash.put(hashes[i], slot);
+			if (previousSlot != null) {
+				final int length = offsets[slot + 1] - offsets[slot];
+				if (offsets[previousSlot + 1] - offsets[previousSlot] != length
+						|| !ByteArrays.equals(arena, offsets[previousSlot], arena, offsets[slot], length)) {
+					return null;
+				}
+			}
+		}
+		return slotsByHash.values().stream().mapToInt(Integer::intValue).sorted().toArray();
+	}
+
+	@Override
+	int size() {
+		return size;
+	}
+
+	@Override
+	int slotCount() {
+		return offsets.length - 1;
+	}
+
+	@Override
+	int bucketCount() {
+		return displacements.length;
+	}
+
+	@Override
+	int displacement(final int bucket) {
+		return displacements[bucket];
+	}
+
+	@Override
+	int indexLength() {
+		return index.length;
+	}
+
+	@Override
+	int indexEntry(final int position) {
+		return index[position];
+	}
+
+	@Override
+	int pairIdBits() {
+		return pairIdBits;
+	}
+
+	@Override
+	int pairBucketCount() {
+		return pairTable().displacements.length;
+	}
+
+	@Override
+	int pairDisplacement(final int bucket) {
+		return pairTable().displacements[bucket];
+	}
+
+	@Override
+	int pairCount() {
+		return pairTable().count;
+	}
+
+	@Override
+	long pairWord(final int index) {
+		return pairTable().words[index];
+	}
+
+	@Override
+	long pairFilterWord(final int index) {
+		return pairTable().filter[index];
+	}
+
+	@Override
+	int offset(final int slot) {
+		return offsets[slot];
+	}
+
+	@Override
+	boolean hasDenseRanks() {
+		return ranks == null;
+	}
+
+	@Override
+	int rankAt(final int slot) {
+		return ranks == null ? slot : ranks[slot];
+	}
+
+	@Override
+	boolean matches(final int tokenStart, final byte[] bytes, final int start, final int length) {
+		return ByteArrays.equals(bytes, start, arena, tokenStart, length);
+	}
+
+	@Override
+	byte byteAt(final int arenaIndex) {
+		return arena[arenaIndex];
+	}
+
+	@Override
+	byte[] copyOfArena(final int start, final int end) {
+		return Arrays.copyOfRange(arena, start, end);
+	}
+
+	@Override
+	void copyArena(final int start, final int end, final byte[] out, final int offset) {
+		System.arraycopy(arena, start, out, offset, end - start);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The pair table only counts once it is built.
+	 */
+	@Override
+	long heapFootprint() {
+		final PairTable table = pairTable;
+		return 64
+				+ arrayFootprint(arena.length, Byte.BYTES)
+				+ arrayFootprint(offsets.length, Integer.BYTES)
+				+ (ranks == null ? 0 : arrayFootprint(ranks.length, Integer.BYTES))
+				+ arrayFootprint(displacements.length, Integer.BYTES)
+				+ arrayFootprint(index.length, Integer.BYTES)
+				+ (table == null || table == PairTable.EMPTY ? 0 : 32
+				+ arrayFootprint(table.displacements.length, Integer.BYTES)
+				+ arrayFootprint(table.words.length, Long.BYTES)
+				+ arrayFootprint(table.filter.length, Long.BYTES));
+	}
+
+	/*
+	 * The tables of the pair table. It is published without locking, so all its fields have to stay final.
+	 */
+	private static final class PairTable {
+
+		static final PairTable EMPTY = new PairTable(0, new int[0], new long[0], new long[0]);
+
+		private final int count;
+		private final int[] displacements;
+		private final long[] words;
+		private final long[] filter;
+
+		private PairTable(final int count, final int[] displacements, final long[] words, final long[] filter) {
+			this.count = count;
+			this.displacements = displacements;
+			this.words = words;
+			this.filter = filter;
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.TokenizationMetrics;
+import com.knuddels.jtokkit.api.TokenizationService;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * The {@link TokenizationService} created by {@link Encodings#newTokenizationService(Encoding, int, int, Duration)}.
+ * <p>
+ * Each worker drains its own lock-free queue, to which the requests are spread round-robin, so that even a single
+ * submitting thread keeps all workers busy. A worker processes a batch as soon as it holds {@code maxBatchSize}
+ * requests, or once the oldest request of the batch waited for {@code maxWait}.
+ */
+final class BatchingTokenizationService implements TokenizationService {
+
+	private final Function<String, Integer> countTokens;
+	private final Function<String, List<Integer>> encode;
+	private final Function<String, List<Integer>> encodeOrdinary;
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+	private final Worker[] workers;
+	private final AtomicInteger nextWorker = new AtomicInteger();
+
+	private final LongAdder queueDepth = new LongAdder();
+	private final LongAdder submittedRequests = new LongAdder();
+	private final LongAdder completedRequests = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder totalLatencyNanos = new LongAdder();
+	private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+	private volatile boolean closed;
+	private volatile boolean terminated;
+
+	/**
+	 * Creates a new service and starts its worker threads.
+	 *
+	 * @param encoding     the encoding to tokenize with
+	 * @param workerCount  the number of worker threads
+	 * @param maxBatchSize the maximum number of requests a worker processes in one batch
+	 * @param maxWait      the maximum time a worker waits for a batch to fill up, measured from the submission of the
+	 *                     oldest request in the batch
+	 * @throws IllegalArgumentException if the worker count or maximum batch size is not positive, or if the maximum
+	 *                                  wait time is negative
+	 */
+	BatchingTokenizationService(
+			final Encoding encoding,
+			final int workerCount,
+			final int maxBatchSize,
+			final Duration maxWait
+	) {
+		Objects.requireNonNull(encoding, "Encoding must not be null");
+		Objects.requireNonNull(maxWait, "Max wait must not be null");
+		if (workerCount <= 0) {
+			throw new IllegalArgumentException("Worker count must be positive, but was " + workerCount);
+		}
+		if (maxBatchSize <= 0) {
+			throw new IllegalArgumentException("Max batch size must be positive, but was " + maxBatchSize);
+		}
+		if (maxWait.isNegative()) {
+			throw new IllegalArgumentException("Max wait must not be negative, but was " + maxWait);
+		}
+
+		this.countTokens = encoding::countTokens;
+		this.encode = encoding::encode;
+		this.encodeOrdinary = encoding::encodeOrdinary;
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitNanos = maxWait.toNanos();
+		this.workers = new Worker[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			workers[i] = new Worker("jtokkit-tokenization-" + encoding.getName() + "-" + i);
+		}
+		for (final Worker worker : workers) {
+			worker.thread.start();
+		}
+	}
+
+	@Override
+	public CompletableFuture<Integer> countTokens(final String text) {
+		return submit(text, countTokens);
+	}
+
+	@Override
+	public CompletableFuture<List<Integer>> encode(final String text) {
+		return submit(text, encode);
+	}
+
+	@Override
+	public CompletableFuture<List<Integer>> encodeOrdinary(final String text) {
+		return submit(text, encodeOrdinary);
+	}
+
+	@Override
+	public TokenizationMetrics getMetrics() {
+		return new TokenizationMetrics(
+				Math.max(0, queueDepth.sum()),
+				submittedRequests.sum(),
+				completedRequests.sum(),
+				batches.sum(),
+				totalLatencyNanos.sum(),
+				maxLatencyNanos.get()
+		);
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		boolean interrupted = false;
+		for (final Worker worker : workers) {
+			LockSupport.unpark(worker.thread);
+		}
+		for (final Worker worker : workers) {
+			while (worker.thread.isAlive()) {
+				try {
+					worker.thread.join();
+				} catch (final InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+
+		// Requests that raced with closing may have been queued after their worker terminated
+		terminated = true;
+		for (final Worker worker : workers) {
+			Request<?> request;
+			while ((request = worker.queue.poll()) != null) {
+				if (request.rejectAfterClose()) {
+					queueDepth.decrement();
+				}
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private <T> CompletableFuture<T> submit(final String text, final Function<String, T> operation) {
+		Objects.requireNonNull(text, "Text must not be null");
+		final Request<T> request = new Request<>(text, operation);
+		if (closed) {
+			request.rejectAfterClose();
+			return request.future;
+		}
+
+		final Worker worker = workers.length == 1
+				? workers[0]
+				: workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+		submittedRequests.increment();
+		queueDepth.increment();
+		worker.queue.offer(request);
+		if (terminated) {
+			// Either this or the draining in close() rejects the request, and only that one may uncount it
+			if (request.rejectAfterClose()) {
+				queueDepth.decrement();
+			}
+		} else if (worker.parked) {
+			LockSupport.unpark(worker.thread);
+		}
+		return request.future;
+	}
+
+	private final class Worker implements Runnable {
+		private final MpscQueue<Request<?>> queue = new MpscQueue<>();
+		private final List<Request<?>> batch = new ArrayList<>();
+		private final Thread thread;
+		private volatile boolean parked;
+
+		private Worker(final String name) {
+			this.thread = new Thread(this, name);
+			this.thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				final Request<?> first = queue.poll();
+				if (first == null) {
+					if (closed) {
+						return;
+					}
+					park(0);
+					continue;
+				}
+
+				batch.add(first);
+				fillBatch(first.submittedNanos + maxWaitNanos);
+				process();
+			}
+		}
+
+		private void fillBatch(final long deadline) {
+			while (batch.size() < maxBatchSize) {
+				final Request<?> request = queue.poll();
+				if (request != null) {
+					batch.add(request);
+					continue;
+				}
+
+				final long remainingNanos = deadline - System.nanoTime();
+				if (remainingNanos <= 0 || closed) {
+					return;
+				}
+				park(remainingNanos);
+			}
+		}
+
+		private void process() {
+			queueDepth.add(-batch.size());
+			batches.increment();
+			for (final Request<?> request : batch) {
+				request.run();
+			}
+			batch.clear();
+		}
+
+		private void park(final long nanos) {
+			parked = true;
+			// Re-check after publishing the flag, so that a concurrent submission either sees it or is seen here
+			if (queue.isEmpty() && !closed) {
+				if (nanos > 0) {
+					LockSupport.parkNanos(this, nanos);
+				} else {
+					LockSupport.park(this);
+				}
+			}
+			parked = false;
+		}
+	}
+
+	private final class Request<T> {
+		private final String text;
+		private final Function<String, T> operation;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private final long submittedNanos = System.nanoTime();
+
+		private Request(final String text, final Function<String, T> operation) {
+			this.text = text;
+			this.operation = operation;
+		}
+
+		private void run() {
+			T result = null;
+			Throwable failure = null;
+			try {
+				result = operation.apply(text);
+			} catch (final Throwable e) {
+				// Also errors like a StackOverflowError of a pathological text only fail this request, as rethrowing
+				// them would end the worker and leave all requests queued for it incomplete
+				failure = e;
+			}
+
+			// Record before completing, so that the metrics already include a request once its future is done
+			final long latencyNanos = System.nanoTime() - submittedNanos;
+			completedRequests.increment();
+			totalLatencyNanos.add(latencyNanos);
+			maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+
+			if (failure == null) {
+				future.complete(result);
+			} else {
+				future.completeExceptionally(failure);
+			}
+		}
+
+		private boolean rejectAfterClose() {
+			return future.completeExceptionally(new IllegalStateException("TokenizationService is closed"));
+		}
+	}
+}
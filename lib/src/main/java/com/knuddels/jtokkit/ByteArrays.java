@@ -0,0 +1,33 @@
+package com.knuddels.jtokkit;
+
+/**
+ * Compares ranges of byte arrays, e.g. a part of a piece with a token of the vocabulary.
+ * <p>
+ * Java 8 can only compare whole arrays, so this implementation compares the ranges byte by byte. The multi-release
+ * variant of this class for Java 17 and newer uses the range comparison of {@link java.util.Arrays}, which the JIT
+ * compiles to vector instructions.
+ */
+final class ByteArrays {
+
+	/**
+	 * Returns whether the given ranges of the given arrays contain the same bytes.
+	 *
+	 * @param bytes      the first array
+	 * @param start      the start of the range of the first array
+	 * @param otherBytes the second array
+	 * @param otherStart the start of the range of the second array
+	 * @param length     the length of both ranges
+	 * @return true if both ranges contain the same bytes
+	 */
+	static boolean equals(final byte[] bytes, final int start, final byte[] otherBytes, final int otherStart, final int length) {
+		for (int i = 0; i < length; i++) {
+			if (bytes[start + i] != otherBytes[otherStart + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private ByteArrays() {
+	}
+}
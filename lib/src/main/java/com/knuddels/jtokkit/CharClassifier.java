@@ -0,0 +1,49 @@
+package com.knuddels.jtokkit;
+
+import static com.knuddels.jtokkit.PiecePattern.NON_ASCII;
+
+/**
+ * Classifies blocks of chars into the classes of a {@link PiecePattern}, e.g. {@link PiecePattern#LETTER}, so that
+ * {@link PieceMatcher} can find the boundaries of the pieces.
+ * <p>
+ * Java 8 has no API to process many chars at once, so this implementation looks up every char in the table of the
+ * pattern. The multi-release variant of this class for Java 21 and newer classifies a whole vector of chars at once
+ * with the Vector API, if the {@code jdk.incubator.vector} module is present at runtime.
+ */
+class CharClassifier {
+
+	/**
+	 * The number of chars that are classified at once.
+	 */
+	static final int BLOCK_LENGTH = 64;
+
+	private final byte[] asciiClasses;
+
+	CharClassifier(final byte[] asciiClasses) {
+		this.asciiClasses = asciiClasses;
+	}
+
+	/**
+	 * Creates a classifier for the given classes of the ASCII chars.
+	 *
+	 * @param asciiClasses the classes of the 128 ASCII chars
+	 * @return the classifier
+	 */
+	static CharClassifier of(final byte[] asciiClasses) {
+		return new CharClassifier(asciiClasses);
+	}
+
+	/**
+	 * Classifies the first chars of the given block. Non-ASCII chars are classified as {@link PiecePattern#NON_ASCII}.
+	 *
+	 * @param chars   the block of chars
+	 * @param length  the number of chars to classify
+	 * @param classes receives the class of each char
+	 */
+	void classify(final char[] chars, final int length, final byte[] classes) {
+		for (int i = 0; i < length; i++) {
+			final char c = chars[i];
+			classes[i] = c < 128 ? asciiClasses[c] : NON_ASCII;
+		}
+	}
+}
@@ -2,6 +2,12 @@ package com.knuddels.jtokkit;
 
 import com.knuddels.jtokkit.api.*;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Thread-safe default implementation of {@link EncodingRegistry}. During initialization, it registers the default encodings
  * for the different {@link EncodingType}s.
@@ -9,13 +15,39 @@ import com.knuddels.jtokkit.api.*;
 final class DefaultEncodingRegistry extends AbstractEncodingRegistry {
 
 	/**
-	 * Initializes the registry with the default encodings.
+	 * Creates a new registry, which keeps the vocabularies of the default encodings on the heap.
+	 */
+	DefaultEncodingRegistry() {
+		this(null);
+	}
+
+	/**
+	 * Creates a new registry.
+	 *
+	 * @param vocabularyDirectory the directory of the memory mapped vocabulary files of the default encodings, or
+	 *                            {@code null} to keep their vocabularies on the heap
+	 */
+	DefaultEncodingRegistry(final Path vocabularyDirectory) {
+		super(vocabularyDirectory);
+	}
+
+	/**
+	 * Initializes the registry with the default encodings. Their vocabularies are loaded concurrently in the
+	 * {@link ForkJoinPool#commonPool()}, so initializing the registry takes about as long as loading the largest
+	 * vocabulary.
 	 *
-	 * @throws IllegalStateException if an unknown encoding type is encountered
+	 * @throws IllegalStateException if an unknown encoding type is encountered or a vocabulary can not be loaded
 	 */
 	public void initializeDefaultEncodings() {
+		final List<CompletableFuture<Encoding>> encodings = new ArrayList<>();
 		for (final EncodingType encodingType : EncodingType.values()) {
-			addEncoding(encodingType);
+			if (!getEncoding(encodingType.getName()).isPresent()) {
+				encodings.add(CompletableFuture.supplyAsync(() -> createEncoding(encodingType)));
+			}
+		}
+
+		for (final CompletableFuture<Encoding> encoding : encodings) {
+			addEncoding(join(encoding));
 		}
 	}
 
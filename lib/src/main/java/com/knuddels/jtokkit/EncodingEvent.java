@@ -0,0 +1,18 @@
+package com.knuddels.jtokkit;
+
+/**
+ * A single encode, decode or count call that is being recorded. Instances are obtained from
+ * {@link EncodingEvents} and must be completed exactly once.
+ */
+interface EncodingEvent {
+
+	/**
+	 * Ends the measurement of this call and records it, if it took longer than the configured threshold.
+	 *
+	 * @param encodingName the name of the encoding that handled the call
+	 * @param textLength   the length of the encoded text in characters, or of the decoded text in bytes
+	 * @param tokenCount   the number of tokens that were produced or consumed
+	 * @param longestPiece the length of the longest piece or token in bytes
+	 */
+	void complete(String encodingName, int textLength, int tokenCount, int longestPiece);
+}
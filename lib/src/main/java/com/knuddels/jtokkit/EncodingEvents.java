@@ -0,0 +1,41 @@
+package com.knuddels.jtokkit;
+
+/**
+ * Factory for the {@link EncodingEvent}s emitted by {@link GptBytePairEncoding}.
+ * <p>
+ * Java 8 has no supported event API, so this implementation never records anything. The multi-release
+ * variant of this class for Java 11 and newer emits Java Flight Recorder events, if the {@code jdk.jfr}
+ * module is present at runtime.
+ */
+final class EncodingEvents {
+
+	/**
+	 * Begins recording an encode call.
+	 *
+	 * @return the event to complete once the call finished, or {@code null} if encode calls are not recorded
+	 */
+	static EncodingEvent encode() {
+		return null;
+	}
+
+	/**
+	 * Begins recording a decode call.
+	 *
+	 * @return the event to complete once the call finished, or {@code null} if decode calls are not recorded
+	 */
+	static EncodingEvent decode() {
+		return null;
+	}
+
+	/**
+	 * Begins recording a count call.
+	 *
+	 * @return the event to complete once the call finished, or {@code null} if count calls are not recorded
+	 */
+	static EncodingEvent count() {
+		return null;
+	}
+
+	private EncodingEvents() {
+	}
+}
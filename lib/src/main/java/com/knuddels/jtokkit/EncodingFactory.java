@@ -3,12 +3,7 @@ package com.knuddels.jtokkit;
 import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.GptBytePairEncodingParams;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -58,11 +53,23 @@ final class EncodingFactory {
 	 * @return an {@link Encoding} instance for the r50k_base encoding
 	 */
 	public static Encoding r50kBase() {
+		return r50kBase(null);
+	}
+
+	/**
+	 * Returns an {@link Encoding} instance for the r50k_base encoding.
+	 *
+	 * @param vocabularyDirectory the directory of the memory mapped vocabulary files, or {@code null} to keep the
+	 *                            vocabulary on the heap
+	 * @return an {@link Encoding} instance for the r50k_base encoding
+	 */
+	public static Encoding r50kBase(final Path vocabularyDirectory) {
 		return fromPredefinedParameters(
 				"r50k_base",
-				"'s|'t|'re|'ve|'m|'ll|'d| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+(?!\\S)|\\s+",
+				PiecePattern.GPT2_PATTERN,
 				"/com/knuddels/jtokkit/r50k_base.tiktoken",
-				SPECIAL_TOKENS_X50K_BASE
+				SPECIAL_TOKENS_X50K_BASE,
+				vocabularyDirectory
 		);
 	}
 
@@ -72,11 +79,23 @@ final class EncodingFactory {
 	 * @return an {@link Encoding} instance for the p50k_base encoding
 	 */
 	public static Encoding p50kBase() {
+		return p50kBase(null);
+	}
+
+	/**
+	 * Returns an {@link Encoding} instance for the p50k_base encoding.
+	 *
+	 * @param vocabularyDirectory the directory of the memory mapped vocabulary files, or {@code null} to keep the
+	 *                            vocabulary on the heap
+	 * @return an {@link Encoding} instance for the p50k_base encoding
+	 */
+	public static Encoding p50kBase(final Path vocabularyDirectory) {
 		return fromPredefinedParameters(
 				"p50k_base",
-				"'s|'t|'re|'ve|'m|'ll|'d| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+(?!\\S)|\\s+",
+				PiecePattern.GPT2_PATTERN,
 				"/com/knuddels/jtokkit/p50k_base.tiktoken",
-				SPECIAL_TOKENS_X50K_BASE
+				SPECIAL_TOKENS_X50K_BASE,
+				vocabularyDirectory
 		);
 	}
 
@@ -86,11 +105,23 @@ final class EncodingFactory {
 	 * @return an {@link Encoding} instance for the p50k_edit encoding
 	 */
 	public static Encoding p50kEdit() {
+		return p50kEdit(null);
+	}
+
+	/**
+	 * Returns an {@link Encoding} instance for the p50k_edit encoding.
+	 *
+	 * @param vocabularyDirectory the directory of the memory mapped vocabulary files, or {@code null} to keep the
+	 *                            vocabulary on the heap
+	 * @return an {@link Encoding} instance for the p50k_edit encoding
+	 */
+	public static Encoding p50kEdit(final Path vocabularyDirectory) {
 		return fromPredefinedParameters(
 				"p50k_edit",
-				"'s|'t|'re|'ve|'m|'ll|'d| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+(?!\\S)|\\s+",
+				PiecePattern.GPT2_PATTERN,
 				"/com/knuddels/jtokkit/p50k_base.tiktoken",
-				SPECIAL_TOKENS_P50K_EDIT
+				SPECIAL_TOKENS_P50K_EDIT,
+				vocabularyDirectory
 		);
 	}
 
@@ -100,11 +131,23 @@ final class EncodingFactory {
 	 * @return an {@link Encoding} instance for the cl100k_base encoding
 	 */
 	public static Encoding cl100kBase() {
+		return cl100kBase(null);
+	}
+
+	/**
+	 * Returns an {@link Encoding} instance for the cl100k_base encoding.
+	 *
+	 * @param vocabularyDirectory the directory of the memory mapped vocabulary files, or {@code null} to keep the
+	 *                            vocabulary on the heap
+	 * @return an {@link Encoding} instance for the cl100k_base encoding
+	 */
+	public static Encoding cl100kBase(final Path vocabularyDirectory) {
 		return fromPredefinedParameters(
 				"cl100k_base",
-				"(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+",
+				PiecePattern.CL100K_PATTERN,
 				"/com/knuddels/jtokkit/cl100k_base.tiktoken",
-				SPECIAL_TOKENS_CL100K_BASE
+				SPECIAL_TOKENS_CL100K_BASE,
+				vocabularyDirectory
 		);
 	}
 
@@ -122,7 +165,8 @@ final class EncodingFactory {
 			final String name,
 			final String patternString,
 			final String fileName,
-			final Map<String, Integer> specialTokens
+			final Map<String, Integer> specialTokens,
+			final Path vocabularyDirectory
 	) {
 		Pattern regex;
 		try {
@@ -132,35 +176,18 @@ final class EncodingFactory {
 			regex = Pattern.compile(patternString);
 		}
 
-		final GptBytePairEncodingParams params = new GptBytePairEncodingParams(name, regex, loadMergeableRanks(fileName), specialTokens);
-		return fromParameters(params);
+		if (vocabularyDirectory == null) {
+			return new GptBytePairEncoding(name, regex, TokenVocabulary.from(MergeableRanks.load(fileName)), specialTokens);
+		}
+
+		// Encodings sharing a rank file, like p50k_base and p50k_edit, also share the mapped vocabulary
+		final String vocabularyName = fileName.substring(fileName.lastIndexOf('/') + 1, fileName.lastIndexOf('.'));
+		final TokenVocabulary vocabulary = MappedTokenVocabulary.open(vocabularyDirectory, vocabularyName, () -> MergeableRanks.load(fileName));
+		return new GptBytePairEncoding(name, regex, vocabulary, specialTokens);
 	}
 
-	private static Map<byte[], Integer> loadMergeableRanks(final String fileName) {
-		try (final InputStream in = EncodingFactory.class.getResourceAsStream(fileName)) {
-			if (in == null) {
-				throw new IllegalStateException("Could not find " + fileName + " in resources");
-			}
-
-			final Map<byte[], Integer> mergeableRanks = new HashMap<>();
-			final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
-			String line;
-			while ((line = reader.readLine()) != null) {
-				final String[] parts = line.split("\\s+", 2);
-				if (parts.length != 2) {
-					throw new IllegalStateException("Invalid line in " + fileName + ": " + line);
-				}
-
-				final byte[] token = Base64.getDecoder().decode(parts[0].getBytes(StandardCharsets.UTF_8));
-				final int rank = Integer.parseInt(parts[1]);
-
-				mergeableRanks.put(token, rank);
-			}
-
-			return mergeableRanks;
-		} catch (final IOException e) {
-			throw new IllegalStateException("Could not load " + fileName + " from resources", e);
-		}
+	static Map<byte[], Integer> loadMergeableRanks(final String fileName) {
+		return MergeableRanks.load(fileName).toMap();
 	}
 
 	private EncodingFactory() {
@@ -0,0 +1,92 @@
+package com.knuddels.jtokkit;
+
+/**
+ * The scratch state of the encode and decode calls of a {@link GptBytePairEncoding} into caller-provided buffers,
+ * which is reused for all calls of a thread so that they do not allocate. Instances are not thread-safe.
+ * <p>
+ * The arrays grow to the longest piece encoded so far, but only up to {@link #MAX_RETAINED_LENGTH}. Longer pieces
+ * are rare, e.g. long runs of whitespace, and get arrays of their own that are not retained.
+ */
+final class EncodingScratch {
+
+	static final int MAX_RETAINED_LENGTH = 16 * 1024;
+
+	private final PieceMatcher matcher;
+	private byte[] bytes = new byte[64];
+	private int[] ids = new int[64];
+	private int[] ranks = new int[64];
+
+	EncodingScratch(final PiecePattern pattern) {
+		this.matcher = pattern.matcher("");
+	}
+
+	/**
+	 * Returns the matcher of this thread, reset to find the pieces of the given text. Call {@link #release()} once
+	 * the text is encoded, so that it is not retained.
+	 *
+	 * @param text the text to split into pieces
+	 * @return the matcher
+	 */
+	PieceMatcher matcher(final CharSequence text) {
+		return matcher.reset(text);
+	}
+
+	/**
+	 * Releases the text of the last call of {@link #matcher(CharSequence)}.
+	 */
+	void release() {
+		matcher.reset("");
+	}
+
+	/**
+	 * Returns an array with room for at least the given number of bytes.
+	 *
+	 * @param length the number of bytes
+	 * @return the array, whose contents are undefined
+	 */
+	byte[] bytes(final int length) {
+		if (length <= bytes.length) {
+			return bytes;
+		} else if (length > MAX_RETAINED_LENGTH) {
+			return new byte[length];
+		}
+		bytes = new byte[grownLength(bytes.length, length)];
+		return bytes;
+	}
+
+	/**
+	 * Returns an array with room for at least the given number of token ids.
+	 *
+	 * @param length the number of token ids
+	 * @return the array, whose contents are undefined
+	 */
+	int[] ids(final int length) {
+		if (length <= ids.length) {
+			return ids;
+		} else if (length > MAX_RETAINED_LENGTH) {
+			return new int[length];
+		}
+		ids = new int[grownLength(ids.length, length)];
+		return ids;
+	}
+
+	/**
+	 * Returns an array with room for at least the given number of merge ranks.
+	 *
+	 * @param length the number of ranks
+	 * @return the array, whose contents are undefined
+	 */
+	int[] ranks(final int length) {
+		if (length <= ranks.length) {
+			return ranks;
+		} else if (length > MAX_RETAINED_LENGTH) {
+			return new int[length];
+		}
+		ranks = new int[grownLength(ranks.length, length)];
+		return ranks;
+	}
+
+	private static int grownLength(final int currentLength, final int length) {
+		return Math.min(MAX_RETAINED_LENGTH, Math.max(length, 2 * currentLength));
+	}
+}
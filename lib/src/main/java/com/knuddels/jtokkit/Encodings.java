@@ -1,7 +1,14 @@
 package com.knuddels.jtokkit;
 
+import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingRegistry;
 import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.MemoryAwareEncodingRegistry;
+import com.knuddels.jtokkit.api.TokenizationService;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
 
 public final class Encodings {
 
@@ -28,7 +35,89 @@ public final class Encodings {
 	public static EncodingRegistry newLazyEncodingRegistry() {
 		return new LazyEncodingRegistry();
 	}
+
+	/**
+	 * Creates a new {@link EncodingRegistry} with the default encodings found in the {@link EncodingType} enum, whose
+	 * vocabularies are kept off-heap in memory mapped files in the given directory.
+	 * <p>
+	 * Missing vocabulary files are created when an encoding is loaded. The files are mapped read-only, so they add
+	 * nothing to the heap size or to the work of the garbage collector, and all processes on a host that use the
+	 * same directory share the same pages of the operating system's page cache. Lookups are slightly slower than
+	 * with vocabularies on the heap.
+	 *
+	 * @param vocabularyDirectory the directory of the vocabulary files
+	 * @return the new {@link EncodingRegistry}
+	 * @throws IllegalStateException if a vocabulary file can not be created or mapped
+	 */
+	public static EncodingRegistry newDefaultEncodingRegistry(final Path vocabularyDirectory) {
+		final DefaultEncodingRegistry registry = new DefaultEncodingRegistry(Objects.requireNonNull(vocabularyDirectory, "Vocabulary directory must not be null"));
+		registry.initializeDefaultEncodings();
+		return registry;
+	}
+
+	/**
+	 * Creates a new {@link EncodingRegistry} like {@link #newLazyEncodingRegistry()}, whose default encodings keep
+	 * their vocabularies off-heap in memory mapped files in the given directory, like
+	 * {@link #newDefaultEncodingRegistry(Path)}.
+	 *
+	 * @param vocabularyDirectory the directory of the vocabulary files
+	 * @return the new {@link EncodingRegistry}
+	 */
+	public static EncodingRegistry newLazyEncodingRegistry(final Path vocabularyDirectory) {
+		return new LazyEncodingRegistry(Objects.requireNonNull(vocabularyDirectory, "Vocabulary directory must not be null"));
+	}
 	
+	/**
+	 * Creates a new {@link MemoryAwareEncodingRegistry}, which loads the {@link EncodingType}s on-demand like
+	 * {@link #newLazyEncodingRegistry()}, but releases the least recently used ones when the vocabularies it retains
+	 * would exceed the given memory budget. Released encodings are loaded again when they are requested the next time.
+	 * For reference, the vocabulary of {@link EncodingType#CL100K_BASE} occupies about 3.5 MB of heap.
+	 *
+	 * @param memoryBudget the number of bytes that the retained vocabularies may occupy on the heap
+	 * @return the new {@link MemoryAwareEncodingRegistry}
+	 * @throws IllegalArgumentException if the memory budget is negative
+	 */
+	public static MemoryAwareEncodingRegistry newMemoryAwareEncodingRegistry(final long memoryBudget) {
+		if (memoryBudget < 0) {
+			throw new IllegalArgumentException("Memory budget must not be negative, but was " + memoryBudget);
+		}
+		return new MemoryBudgetEncodingRegistry(memoryBudget);
+	}
+
+	/**
+	 * Creates a new {@link TokenizationService} and starts its worker threads. It uses one worker per four available
+	 * processors, batches of at most 64 requests and no maximum wait time, so a worker processes everything that is
+	 * queued whenever it wakes up. This adds no latency under low load and still batches under high load.
+	 *
+	 * @param encoding the encoding to tokenize with
+	 * @return the new {@link TokenizationService}
+	 */
+	public static TokenizationService newTokenizationService(final Encoding encoding) {
+		return newTokenizationService(encoding, Math.max(1, Runtime.getRuntime().availableProcessors() / 4), 64, Duration.ZERO);
+	}
+
+	/**
+	 * Creates a new {@link TokenizationService} and starts its worker threads. A worker processes a batch as soon as
+	 * it holds {@code maxBatchSize} requests, or once the oldest request of the batch waited for {@code maxWait}.
+	 *
+	 * @param encoding     the encoding to tokenize with
+	 * @param workerCount  the number of worker threads
+	 * @param maxBatchSize the maximum number of requests a worker processes in one batch
+	 * @param maxWait      the maximum time a worker waits for a batch to fill up, measured from the submission of the
+	 *                     oldest request in the batch
+	 * @return the new {@link TokenizationService}
+	 * @throws IllegalArgumentException if the worker count or maximum batch size is not positive, or if the maximum
+	 *                                  wait time is negative
+	 */
+	public static TokenizationService newTokenizationService(
+			final Encoding encoding,
+			final int workerCount,
+			final int maxBatchSize,
+			final Duration maxWait
+	) {
+		return new BatchingTokenizationService(encoding, workerCount, maxBatchSize, maxWait);
+	}
+
 	private Encodings() {
 	}
 }
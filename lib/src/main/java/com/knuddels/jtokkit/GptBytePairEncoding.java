@@ -3,13 +3,18 @@ package com.knuddels.jtokkit;
 import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingResult;
 import com.knuddels.jtokkit.api.GptBytePairEncodingParams;
+import com.knuddels.jtokkit.api.TokenCountEstimate;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.regex.Matcher;
+import java.util.OptionalInt;
 import java.util.regex.Pattern;
 
 /**
@@ -18,9 +23,18 @@ import java.util.regex.Pattern;
 final class GptBytePairEncoding implements Encoding {
 
 	private final String name;
-	private final Pattern pattern;
-	private final TokenEncoder<ImmutableByteArray, Integer> encoder;
+	private final PiecePattern pattern;
+	private final TokenVocabulary vocabulary;
 	private final TokenEncoder<String, Integer> specialTokensEncoder;
+	// The special tokens as arrays, sorted by id, so that looking them up does not allocate
+	private final String[] specialTokens;
+	private final int[] specialTokenIds;
+	private final byte[][] specialTokenBytes;
+	// The ranks of the single bytes, or null if not every byte is a token and the ids can not be merged directly
+	private final int[] byteRanks;
+	// Built on the first estimate, so that encodings that are never used for estimates do not pay for its statistics
+	private volatile TokenCountEstimator tokenCountEstimator;
+	private final ThreadLocal<EncodingScratch> scratch;
 
 	/**
 	 * Creates a new instance of {@link GptBytePairEncoding}.
@@ -28,60 +42,138 @@ final class GptBytePairEncoding implements Encoding {
 	 * @param params the parameters to use for the encoding
 	 */
 	GptBytePairEncoding(final GptBytePairEncodingParams params) {
-		this.name = params.getName();
-		this.pattern = params.getPattern();
-		this.encoder = new TokenEncoder<>(params.getEncoder(), ImmutableByteArray::from);
-		this.specialTokensEncoder = new TokenEncoder<>(params.getSpecialTokensEncoder());
+		this(params.getName(), params.getPattern(), TokenVocabulary.from(params.getEncoder()), params.getSpecialTokensEncoder());
+	}
+
+	/**
+	 * Creates a new instance of {@link GptBytePairEncoding} with an already built vocabulary.
+	 *
+	 * @param name          the name of the encoding
+	 * @param pattern       the pattern that is used to split the text into pieces
+	 * @param vocabulary    the vocabulary of the mergeable ranks
+	 * @param specialTokens the special tokens and their ranks
+	 */
+	GptBytePairEncoding(
+			final String name,
+			final Pattern pattern,
+			final TokenVocabulary vocabulary,
+			final Map<String, Integer> specialTokens
+	) {
+		this.name = name;
+		this.pattern = PiecePattern.of(pattern);
+		this.vocabulary = vocabulary;
+		this.specialTokensEncoder = new TokenEncoder<>(specialTokens);
+		this.byteRanks = vocabulary.hasPairTable() ? byteRanks(vocabulary) : null;
+		this.specialTokens = new String[specialTokens.size()];
+		this.specialTokenIds = new int[specialTokens.size()];
+		this.specialTokenBytes = new byte[specialTokens.size()][];
+		final List<Map.Entry<String, Integer>> sortedSpecialTokens = new ArrayList<>(specialTokens.entrySet());
+		sortedSpecialTokens.sort(Map.Entry.comparingByValue());
+		for (int i = 0; i < sortedSpecialTokens.size(); i++) {
+			this.specialTokens[i] = sortedSpecialTokens.get(i).getKey();
+			this.specialTokenIds[i] = sortedSpecialTokens.get(i).getValue();
+			this.specialTokenBytes[i] = this.specialTokens[i].getBytes(StandardCharsets.UTF_8);
+		}
+		this.scratch = ThreadLocal.withInitial(() -> new EncodingScratch(this.pattern));
+	}
+
+	private static int[] byteRanks(final TokenVocabulary vocabulary) {
+		final int[] byteRanks = new int[256];
+		final byte[] singleByte = new byte[1];
+		for (int b = 0; b < byteRanks.length; b++) {
+			singleByte[0] = (byte) b;
+			byteRanks[b] = vocabulary.getRank(singleByte, 0, 1);
+			if (byteRanks[b] == TokenVocabulary.NO_RANK) {
+				return null;
+			}
+		}
+		return byteRanks;
 	}
 
 	@Override
 	public List<Integer> encode(final String text) {
-		return encodeInternal(text, null).getTokens();
+		return encodeInternal(text, null, EncodingEvents.encode()).getTokens();
 	}
 
 	@Override
 	public EncodingResult encode(final String text, final int maxTokens) {
-		return encodeInternal(text, maxTokens);
+		return encodeInternal(text, maxTokens, EncodingEvents.encode());
 	}
 
-	private EncodingResult encodeInternal(final String text, final Integer maxTokens) {
+	private EncodingResult encodeInternal(final String text, final Integer maxTokens, final EncodingEvent event) {
 		if (text == null) {
-			return new EncodingResult(Collections.emptyList(), false);
-		}
-
-		for (final String specialToken : specialTokensEncoder.getDecodedTokens()) {
-			if (text.contains(specialToken)) {
-				throw new UnsupportedOperationException("Encoding special tokens is not supported yet.");
-			}
+			return encodeOrdinaryInternal(null, maxTokens, event);
 		}
 
-		return encodeOrdinaryInternal(text, maxTokens);
+		rejectSpecialTokens(text);
+		return encodeOrdinaryInternal(text, maxTokens, event);
 	}
 
 	@Override
 	public List<Integer> encodeOrdinary(final String text) {
-		return encodeOrdinaryInternal(text, null).getTokens();
+		return encodeOrdinaryInternal(text, null, EncodingEvents.encode()).getTokens();
 	}
 
 	@Override
 	public EncodingResult encodeOrdinary(final String text, final int maxTokens) {
-		return encodeOrdinaryInternal(text, maxTokens);
+		return encodeOrdinaryInternal(text, maxTokens, EncodingEvents.encode());
 	}
 
-	private EncodingResult encodeOrdinaryInternal(final String text, final Integer maxTokens) {
+	/*
+	 * Scans the text once per distinct first char of the special tokens, e.g. only for '<' with the predefined
+	 * encodings, instead of once per special token.
+	 */
+	private void rejectSpecialTokens(final String text) {
+		for (int i = 0; i < specialTokens.length; i++) {
+			// An empty special token is contained in every text
+			if (specialTokens[i].isEmpty()) {
+				throw new UnsupportedOperationException("Encoding special tokens is not supported yet.");
+			}
+			final char first = specialTokens[i].charAt(0);
+			if (hasEarlierSpecialTokenStartingWith(first, i)) {
+				continue;
+			}
+
+			for (int position = text.indexOf(first); position >= 0; position = text.indexOf(first, position + 1)) {
+				for (int j = i; j < specialTokens.length; j++) {
+					if (text.startsWith(specialTokens[j], position)) {
+						throw new UnsupportedOperationException("Encoding special tokens is not supported yet.");
+					}
+				}
+			}
+		}
+	}
+
+	private boolean hasEarlierSpecialTokenStartingWith(final char first, final int end) {
+		for (int i = 0; i < end; i++) {
+			if (!specialTokens[i].isEmpty() && specialTokens[i].charAt(0) == first) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private EncodingResult encodeOrdinaryInternal(final String text, final Integer maxTokens, final EncodingEvent event) {
 		if (text == null) {
-			return new EncodingResult(Collections.emptyList(), false);
+			return complete(event, 0, 0, new EncodingResult(Collections.emptyList(), false));
 		}
 
 		final List<Integer> out = new ArrayList<>();
-		final Matcher matcher = pattern.matcher(text);
+		final PieceMatcher matcher = pattern.matcher(text);
 		int tokenCount = 0;
+		int longestPiece = 0;
 		while (matcher.find() && maxTokenCountNotReached(maxTokens, tokenCount)) {
-			final ImmutableByteArray match = ImmutableByteArray.from(matcher.group());
-			if (encoder.containsDecodedToken(match)) {
-				out.add(encoder.encode(match));
+			// Most pieces are a single token, which is looked up without encoding the piece
+			final int rank = vocabulary.getRank(text, matcher.start(), matcher.end());
+			if (rank != TokenVocabulary.NO_RANK) {
+				if (event != null) {
+					longestPiece = Math.max(longestPiece, TokenVocabulary.utf8Length(text, matcher.start(), matcher.end()));
+				}
+				out.add(rank);
 				tokenCount++;
 			} else {
+				final byte[] match = matcher.bytes();
+				longestPiece = Math.max(longestPiece, match.length);
 				final List<Integer> tokensToAdd = bytePairMerge(match);
 				tokenCount += addTokens(out, tokensToAdd, maxTokens);
 			}
@@ -91,15 +183,60 @@ final class GptBytePairEncoding implements Encoding {
 			// Make sure we didn't break the multibyte character
 			for (int tokensToRemove = 0; tokensToRemove <= out.size(); tokensToRemove++) {
 				final List<Integer> tokens = out.subList(0, out.size() - tokensToRemove);
-				final String decoded = decode(tokens);
+				final String decoded = new String(decodeBytesInternal(tokens, null), StandardCharsets.UTF_8);
 				if (text.startsWith(decoded)) {
 					// If decoded text is equal to the head of the original text, we can safely return the tokens
-					return new EncodingResult(tokens, text.length() > decoded.length());
+					return complete(event, text.length(), longestPiece, new EncodingResult(tokens, text.length() > decoded.length()));
 				}
 			}
 		}
 
-		return new EncodingResult(out, false);
+		return complete(event, text.length(), longestPiece, new EncodingResult(out, false));
+	}
+
+	/**
+	 * Encodes the pieces at the start of the given text which can not change anymore, if more text is appended
+	 * to it. This allows to encode a text that arrives in chunks with the same result as encoding it as a whole,
+	 * by carrying the unfinished tail over to the next chunk.
+	 *
+	 * @param text      the text to encode
+	 * @param endOfText whether no more text will be appended, i.e. whether all pieces are finished
+	 * @param out       the list to add the tokens to
+	 * @return the index of the first character of the unfinished tail, or the length of the text if all of it was
+	 * encoded
+	 */
+	int encodeOrdinaryFinishedPieces(final CharSequence text, final boolean endOfText, final List<Integer> out) {
+		final PieceMatcher matcher = pattern.matcher(text);
+		int end = 0;
+		while (matcher.find()) {
+			// If the regex engine looked at the end of the text, appended text could still change this piece
+			if (!endOfText && (matcher.hitEnd() || matcher.end() == text.length())) {
+				return matcher.start();
+			}
+
+			final int rank = vocabulary.getRank(text, matcher.start(), matcher.end());
+			if (rank != TokenVocabulary.NO_RANK) {
+				out.add(rank);
+			} else {
+				out.addAll(bytePairMerge(matcher.bytes()));
+			}
+			end = matcher.end();
+		}
+
+		return endOfText ? text.length() : end;
+	}
+
+	private EncodingResult complete(
+			final EncodingEvent event,
+			final int textLength,
+			final int longestPiece,
+			final EncodingResult result
+	) {
+		if (event != null) {
+			event.complete(name, textLength, result.getTokens().size(), longestPiece);
+		}
+
+		return result;
 	}
 
 	/**
@@ -118,26 +255,214 @@ final class GptBytePairEncoding implements Encoding {
 		return tokensToAdd.size();
 	}
 
+	@Override
+	public int encode(final String text, final int[] out, final int offset) {
+		checkRange(out.length, offset, 0);
+		if (text != null) {
+			rejectSpecialTokens(text);
+		}
+		return encodeOrdinaryInto(text, out, null, offset, out.length);
+	}
+
+	@Override
+	public int encodeOrdinary(final String text, final int[] out, final int offset) {
+		checkRange(out.length, offset, 0);
+		return encodeOrdinaryInto(text, out, null, offset, out.length);
+	}
+
+	@Override
+	public int encode(final String text, final IntBuffer out) {
+		if (text != null) {
+			rejectSpecialTokens(text);
+		}
+		return encodeOrdinaryInto(text, out);
+	}
+
+	@Override
+	public int encodeOrdinary(final String text, final IntBuffer out) {
+		return encodeOrdinaryInto(text, out);
+	}
+
+	private int encodeOrdinaryInto(final String text, final IntBuffer out) {
+		final int position = out.position();
+		final int tokenCount = out.hasArray()
+				? encodeOrdinaryInto(text, out.array(), null, out.arrayOffset() + position, out.arrayOffset() + out.limit())
+				: encodeOrdinaryInto(text, null, out, position, out.limit());
+		if (tokenCount > 0) {
+			out.position(position + tokenCount);
+		}
+		return tokenCount;
+	}
+
+	/*
+	 * Writes the tokens of the text to the array, or to the buffer if the array is null, from the offset up to the
+	 * limit, and keeps counting the tokens that do not fit. The pieces are matched and merged in the scratch state of
+	 * the thread, so nothing is allocated, unless the vocabulary has no pair table and the pieces that are not a
+	 * single token are merged on their bytes.
+	 */
+	private int encodeOrdinaryInto(final String text, final int[] array, final IntBuffer buffer, final int offset, final int limit) {
+		if (text == null) {
+			return 0;
+		}
+
+		final EncodingEvent event = EncodingEvents.encode();
+		final EncodingScratch scratch = this.scratch.get();
+		final PieceMatcher matcher = scratch.matcher(text);
+		int index = offset;
+		int longestPiece = 0;
+		try {
+			while (matcher.find()) {
+				final int start = matcher.start();
+				final int end = matcher.end();
+				final int rank = vocabulary.getRank(text, start, end);
+				if (rank != TokenVocabulary.NO_RANK) {
+					if (event != null) {
+						longestPiece = Math.max(longestPiece, TokenVocabulary.utf8Length(text, start, end));
+					}
+					put(array, buffer, index++, limit, rank);
+				} else if (byteRanks != null) {
+					final byte[] piece = scratch.bytes(3 * (end - start));
+					final int pieceLength = TokenVocabulary.writeUtf8(text, start, end, piece);
+					longestPiece = Math.max(longestPiece, pieceLength);
+					final int[] ids = scratch.ids(pieceLength);
+					final int tokenCount = bytePairMergeTokenIds(piece, pieceLength, ids, scratch.ranks(pieceLength));
+					for (int i = 0; i < tokenCount; i++) {
+						put(array, buffer, index++, limit, ids[i]);
+					}
+				} else {
+					final byte[] piece = matcher.bytes();
+					longestPiece = Math.max(longestPiece, piece.length);
+					for (final int token : bytePairMergeBytes(piece)) {
+						put(array, buffer, index++, limit, token);
+					}
+				}
+			}
+		} finally {
+			scratch.release();
+		}
+
+		final int tokenCount = index - offset;
+		if (event != null) {
+			event.complete(name, text.length(), tokenCount, longestPiece);
+		}
+		return index <= limit ? tokenCount : -tokenCount;
+	}
+
+	private static void put(final int[] array, final IntBuffer buffer, final int index, final int limit, final int token) {
+		if (index >= limit) {
+			return;
+		}
+
+		if (array != null) {
+			array[index] = token;
+		} else {
+			buffer.put(index, token);
+		}
+	}
+
+	private static void checkRange(final int length, final int offset, final int count) {
+		if (offset < 0 || count < 0 || offset > length - count) {
+			throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + count + ") out of bounds for length " + length);
+		}
+	}
+
 	@Override
 	public int countTokens(final String text) {
-		return encode(text).size();
+		return encodeInternal(text, null, EncodingEvents.count()).getTokens().size();
 	}
 
 	@Override
 	public int countTokensOrdinary(final String text) {
-		return encodeOrdinary(text).size();
+		return encodeOrdinaryInternal(text, null, EncodingEvents.count()).getTokens().size();
+	}
+
+	@Override
+	public OptionalInt isWithinTokenLimit(final String text, final int tokenLimit) {
+		return isWithinTokenLimitInternal(text, tokenLimit, true);
+	}
+
+	@Override
+	public OptionalInt isWithinTokenLimitOrdinary(final String text, final int tokenLimit) {
+		return isWithinTokenLimitInternal(text, tokenLimit, false);
+	}
+
+	/*
+	 * Counts the tokens of the pieces until the count exceeds the limit, so that only the head of a long text is
+	 * encoded. Texts with more runs of letters and numbers than the limit are rejected by a scan of their chars
+	 * alone. Like encode and countTokens, the whole text is checked for special tokens, which is much cheaper than
+	 * encoding it.
+	 */
+	private OptionalInt isWithinTokenLimitInternal(final String text, final int tokenLimit, final boolean rejectSpecialTokens) {
+		if (tokenLimit < 0) {
+			throw new IllegalArgumentException("Token limit must not be negative, but was " + tokenLimit);
+		}
+		if (text == null) {
+			return OptionalInt.of(0);
+		}
+		if (rejectSpecialTokens) {
+			rejectSpecialTokens(text);
+		}
+		if (pattern.minimumPieceCount(text, tokenLimit) > tokenLimit) {
+			// Every piece is at least one token, so the text is rejected before encoding any of it
+			return OptionalInt.empty();
+		}
+
+		final EncodingEvent event = EncodingEvents.count();
+		final PieceMatcher matcher = pattern.matcher(text);
+		int tokenCount = 0;
+		int end = 0;
+		int longestPiece = 0;
+		while (tokenCount <= tokenLimit && matcher.find()) {
+			if (vocabulary.getRank(text, matcher.start(), matcher.end()) != TokenVocabulary.NO_RANK) {
+				if (event != null) {
+					longestPiece = Math.max(longestPiece, TokenVocabulary.utf8Length(text, matcher.start(), matcher.end()));
+				}
+				tokenCount++;
+			} else {
+				final byte[] match = matcher.bytes();
+				longestPiece = Math.max(longestPiece, match.length);
+				tokenCount += bytePairMerge(match).size();
+			}
+			end = matcher.end();
+		}
+
+		if (event != null) {
+			event.complete(name, end, tokenCount, longestPiece);
+		}
+		return tokenCount <= tokenLimit ? OptionalInt.of(tokenCount) : OptionalInt.empty();
+	}
+
+	@Override
+	public TokenCountEstimate estimateTokenCount(final String text) {
+		if (text == null) {
+			return new TokenCountEstimate(0, 0, 0);
+		}
+
+		TokenCountEstimator estimator = tokenCountEstimator;
+		if (estimator == null) {
+			// Concurrent first estimates may each build an equal estimator, which is cheaper than locking every estimate
+			estimator = TokenCountEstimator.of(vocabulary, pattern, bytes -> bytePairMerge(bytes).size());
+			tokenCountEstimator = estimator;
+		}
+		return estimator.estimate(text);
 	}
 
 	@Override
 	public String decode(final List<Integer> tokens) {
-		return new String(decodeBytes(tokens), StandardCharsets.UTF_8);
+		return new String(decodeBytesInternal(tokens, EncodingEvents.decode()), StandardCharsets.UTF_8);
 	}
 
 	@Override
 	public byte[] decodeBytes(final List<Integer> tokens) {
+		return decodeBytesInternal(tokens, EncodingEvents.decode());
+	}
+
+	private byte[] decodeBytesInternal(final List<Integer> tokens, final EncodingEvent event) {
 		final List<Byte> out = new ArrayList<>();
+		int longestToken = 0;
 		for (final int token : tokens) {
 			final byte[] decodedToken = decodeToken(token);
+			longestToken = Math.max(longestToken, decodedToken.length);
 			for (final byte b : decodedToken) {
 				out.add(b);
 			}
@@ -147,14 +472,130 @@ final class GptBytePairEncoding implements Encoding {
 		for (int i = 0; i < out.size(); i++) {
 			outArray[i] = out.get(i);
 		}
+
+		if (event != null) {
+			event.complete(name, outArray.length, tokens.size(), longestToken);
+		}
 		return outArray;
 	}
 
+	@Override
+	public int decodeBytes(final int[] tokens, final int tokensOffset, final int tokenCount, final byte[] out, final int offset) {
+		checkRange(tokens.length, tokensOffset, tokenCount);
+		checkRange(out.length, offset, 0);
+		return decodeBytesInto(tokens, null, tokensOffset, tokensOffset + tokenCount, out, null, offset, out.length);
+	}
+
+	@Override
+	public int decodeBytes(final IntBuffer tokens, final ByteBuffer out) {
+		final int[] tokenArray = tokens.hasArray() ? tokens.array() : null;
+		final int tokensOffset = tokens.hasArray() ? tokens.arrayOffset() : 0;
+		final byte[] array = out.hasArray() ? out.array() : null;
+		final int offset = out.hasArray() ? out.arrayOffset() : 0;
+		final int byteCount = decodeBytesInto(
+				tokenArray, tokens, tokensOffset + tokens.position(), tokensOffset + tokens.limit(),
+				array, out, offset + out.position(), offset + out.limit()
+		);
+		if (byteCount >= 0) {
+			tokens.position(tokens.limit());
+			out.position(out.position() + byteCount);
+		}
+		return byteCount;
+	}
+
+	/*
+	 * Writes the bytes of the tokens from the array, or from the buffer if the array is null, to the byte array, or
+	 * to the byte buffer if the byte array is null, from the offset up to the limit. Once a token does not fit, the
+	 * bytes of the following tokens are only counted, so that the written bytes are always a prefix of the result.
+	 */
+	private int decodeBytesInto(
+			final int[] tokenArray,
+			final IntBuffer tokenBuffer,
+			final int from,
+			final int to,
+			final byte[] array,
+			final ByteBuffer buffer,
+			final int offset,
+			final int limit
+	) {
+		final EncodingEvent event = EncodingEvents.decode();
+		int index = offset;
+		int writeLimit = limit;
+		int longestToken = 0;
+		for (int i = from; i < to; i++) {
+			final int token = tokenArray != null ? tokenArray[i] : tokenBuffer.get(i);
+			int length = array != null
+					? vocabulary.copyBytes(token, array, index, writeLimit)
+					: vocabulary.copyBytes(token, buffer, index, writeLimit);
+			if (length < 0) {
+				length = copySpecialTokenBytes(token, array, buffer, index, writeLimit);
+			}
+			if (length > writeLimit - index) {
+				writeLimit = index;
+			}
+			index += length;
+			longestToken = Math.max(longestToken, length);
+		}
+
+		final int byteCount = index - offset;
+		if (event != null) {
+			event.complete(name, byteCount, to - from, longestToken);
+		}
+		return index <= limit ? byteCount : -byteCount;
+	}
+
+	private int copySpecialTokenBytes(final int token, final byte[] array, final ByteBuffer buffer, final int index, final int limit) {
+		final int specialTokenIndex = Arrays.binarySearch(specialTokenIds, token);
+		if (specialTokenIndex < 0) {
+			throw new IllegalArgumentException("Unknown token for decoding: " + token);
+		}
+
+		final byte[] bytes = specialTokenBytes[specialTokenIndex];
+		if (bytes.length <= limit - index) {
+			if (array != null) {
+				System.arraycopy(bytes, 0, array, index, bytes.length);
+			} else {
+				for (int i = 0; i < bytes.length; i++) {
+					buffer.put(index + i, bytes[i]);
+				}
+			}
+		}
+		return bytes.length;
+	}
+
 	@Override
 	public String getName() {
 		return name;
 	}
 
+	/**
+	 * Returns an estimate of the number of bytes that this encoding retains on the heap. The vocabulary dominates it,
+	 * the special tokens and the compiled pattern are negligible.
+	 *
+	 * @return the estimated number of bytes
+	 */
+	long heapFootprint() {
+		return vocabulary.heapFootprint() + (byteRanks == null ? 0 : TokenVocabulary.arrayFootprint(byteRanks.length, Integer.BYTES));
+	}
+
+	/**
+	 * Returns the pattern that is used to split the text into pieces. Exposed for the component benchmarks.
+	 *
+	 * @return the pattern of this encoding
+	 */
+	Pattern getPattern() {
+		return pattern.regex();
+	}
+
+	/**
+	 * Returns the vocabulary of the mergeable ranks. Exposed for the component benchmarks.
+	 *
+	 * @return the vocabulary of this encoding
+	 */
+	TokenVocabulary getVocabulary() {
+		return vocabulary;
+	}
+
 	/*
 	 * We use a custom implementation of the byte pair encoding algorithm as used by the OpenAI tokenizer. The
 	 * piece is merged according to the merging rules provided by OpenAI. An example of the algorithm:
@@ -196,15 +637,24 @@ final class GptBytePairEncoding implements Encoding {
 	 * and piece.get(parts[1].index) until piece.get(parts[2].index - 1). Analogously for more than two parts.
 	 * Note that we do not actually modify the piece, but only the parts list. The above visualization is just for
 	 * illustration purposes.
+	 *
+	 * If every single byte is a token, bytePairMergeTokenIds merges the same way on token ids instead of bytes.
 	 */
-	private List<Integer> bytePairMerge(final ImmutableByteArray piece) {
+	List<Integer> bytePairMerge(final byte[] piece) {
+		return byteRanks != null ? bytePairMergeTokenIds(piece) : bytePairMergeBytes(piece);
+	}
+
+	List<Integer> bytePairMergeBytes(final byte[] piece) {
 		/*
 		 * piece:  v   e   c   t   o   r
 		 * index:  0   1   2   3   4   5   6
 		 * ranks:  inf inf inf inf inf inf inf
 		 */
+		// Hashing every candidate from scratch would cost time proportional to its length, so we derive the hashes
+		// of the candidates from the prefix hashes of the piece instead
+		final long[] prefixHashes = vocabulary.prefixHashes(piece);
 		final List<PieceIndexToRank> parts = new ArrayList<>();
-		for (int i = 0; i < piece.length() + 1; i++) {
+		for (int i = 0; i < piece.length + 1; i++) {
 			parts.add(new PieceIndexToRank(i, Integer.MAX_VALUE));
 		}
 
@@ -214,10 +664,7 @@ final class GptBytePairEncoding implements Encoding {
 		 * ranks:  4   3   7   2   13  inf inf
 		 */
 		for (int i = 0; i < parts.size() - 2; i++) {
-			final Optional<Integer> rank = getRank(piece, parts, i, 0);
-			if (rank.isPresent()) {
-				parts.get(i).rank = rank.get();
-			}
+			parts.get(i).rank = getRank(piece, prefixHashes, parts, i, 0);
 		}
 
 		while (parts.size() > 1) {
@@ -251,9 +698,9 @@ final class GptBytePairEncoding implements Encoding {
 				// removing first thrashes the cache, so it's better to calculate the rank of the byte pairs that are
 				// affected by the merge before removing the merged byte pair. I did not verify, if this is actually the
 				// case in java.
-				parts.get(minRankIndex).rank = getRank(piece, parts, minRankIndex, 1).orElse(Integer.MAX_VALUE);
+				parts.get(minRankIndex).rank = getRank(piece, prefixHashes, parts, minRankIndex, 1);
 				if (minRankIndex > 0) {
-					parts.get(minRankIndex - 1).rank = getRank(piece, parts, minRankIndex - 1, 1).orElse(Integer.MAX_VALUE);
+					parts.get(minRankIndex - 1).rank = getRank(piece, prefixHashes, parts, minRankIndex - 1, 1);
 				}
 
 				parts.remove(minRankIndex + 1);
@@ -269,11 +716,71 @@ final class GptBytePairEncoding implements Encoding {
 		 */
 		final List<Integer> out = new ArrayList<>();
 		for (int i = 0; i < parts.size() - 1; i++) {
-			out.add(encoder.encode(piece.getBytesBetween(parts.get(i).index, parts.get(i + 1).index)));
+			out.add(encode(piece, prefixHashes, parts.get(i).index, parts.get(i + 1).index));
+		}
+		return out;
+	}
+
+	/*
+	 * The same algorithm as bytePairMergeBytes, but each part is represented by the id of its token instead of its
+	 * start index in the piece. Initially, the parts are the tokens of the single bytes. The rank of merging two
+	 * adjacent parts is the rank of the token that is the concatenation of their tokens, which we get from the pair
+	 * table of the vocabulary without hashing or comparing any bytes. Merging two parts simply replaces them with the
+	 * part of the concatenated token, whose id is the rank of the merge.
+	 *
+	 * piece:  v   e   c   t   o   r
+	 * ids:    85  68  66  83  78  81
+	 * ranks:  4   3   7   2   13  inf
+	 *
+	 * piece:  v   e   c   to  r
+	 * ids:    85  68  66  2   81
+	 * ranks:  4   3   5   9   inf
+	 */
+	List<Integer> bytePairMergeTokenIds(final byte[] piece) {
+		final int[] ids = new int[piece.length];
+		final int length = bytePairMergeTokenIds(piece, piece.length, ids, new int[piece.length]);
+		final List<Integer> out = new ArrayList<>(length);
+		for (int i = 0; i < length; i++) {
+			out.add(ids[i]);
 		}
 		return out;
 	}
 
+	/*
+	 * Merges the first pieceLength bytes of the piece in the given arrays, which must have room for pieceLength
+	 * elements, and returns the number of tokens at the start of ids.
+	 */
+	int bytePairMergeTokenIds(final byte[] piece, final int pieceLength, final int[] ids, final int[] ranks) {
+		int length = pieceLength;
+		for (int i = 0; i < length; i++) {
+			ids[i] = byteRanks[piece[i] & 0xFF];
+		}
+		for (int i = 0; i < length - 1; i++) {
+			ranks[i] = vocabulary.getPairRank(ids[i], ids[i + 1]);
+		}
+		ranks[length - 1] = TokenVocabulary.NO_RANK;
+
+		while (length > 1) {
+			final int minRankIndex = RankArrays.indexOfMinimum(ranks, length - 1);
+			final int minRank = ranks[minRankIndex];
+			if (minRank == TokenVocabulary.NO_RANK) {
+				break;
+			}
+
+			ids[minRankIndex] = minRank;
+			length--;
+			System.arraycopy(ids, minRankIndex + 2, ids, minRankIndex + 1, length - minRankIndex - 1);
+			System.arraycopy(ranks, minRankIndex + 2, ranks, minRankIndex + 1, length - minRankIndex - 1);
+			ranks[minRankIndex] = minRankIndex + 1 < length
+					? vocabulary.getPairRank(ids[minRankIndex], ids[minRankIndex + 1])
+					: TokenVocabulary.NO_RANK;
+			if (minRankIndex > 0) {
+				ranks[minRankIndex - 1] = vocabulary.getPairRank(ids[minRankIndex - 1], ids[minRankIndex]);
+			}
+		}
+		return length;
+	}
+
 	private boolean maxTokenCountReached(final Integer maxTokenCount, final int tokenCount) {
 		return maxTokenCount != null && maxTokenCount.compareTo(tokenCount) <= 0;
 	}
@@ -282,27 +789,37 @@ final class GptBytePairEncoding implements Encoding {
 		return !maxTokenCountReached(maxTokenCount, tokenCount);
 	}
 
-	private Optional<Integer> getRank(
-			final ImmutableByteArray piece,
+	private int getRank(
+			final byte[] piece,
+			final long[] prefixHashes,
 			final List<PieceIndexToRank> parts,
 			final int startIndex,
 			final int skip
 	) {
 		if (startIndex + skip + 2 >= parts.size()) {
-			return Optional.empty();
+			return TokenVocabulary.NO_RANK;
 		}
 
 		final int pieceStartIndex = parts.get(startIndex).index;
 		final int pieceEndIndex = parts.get(startIndex + skip + 2).index;
-		final ImmutableByteArray encoderIndex = piece.getBytesBetween(pieceStartIndex, pieceEndIndex);
+		final long hash = vocabulary.hash(prefixHashes, pieceStartIndex, pieceEndIndex);
+		return vocabulary.getRank(piece, pieceStartIndex, pieceEndIndex, hash);
+	}
+
+	private int encode(final byte[] piece, final long[] prefixHashes, final int startIndex, final int endIndex) {
+		final long hash = vocabulary.hash(prefixHashes, startIndex, endIndex);
+		final int rank = vocabulary.getRank(piece, startIndex, endIndex, hash);
+		if (rank == TokenVocabulary.NO_RANK) {
+			throw new IllegalArgumentException("Unknown token for encoding: " + Arrays.toString(Arrays.copyOfRange(piece, startIndex, endIndex)));
+		}
 
-		return encoder.encodeIfPresent(encoderIndex);
+		return rank;
 	}
 
 	private byte[] decodeToken(final int token) {
-		final Optional<ImmutableByteArray> decodedToken = encoder.decodeIfPresent(token);
-		if (decodedToken.isPresent()) {
-			return decodedToken.get().getRawArray();
+		final byte[] decodedToken = vocabulary.getBytes(token);
+		if (decodedToken != null) {
+			return decodedToken;
 		}
 
 		final Optional<String> decodedSpecialToken = specialTokensEncoder.decodeIfPresent(token);
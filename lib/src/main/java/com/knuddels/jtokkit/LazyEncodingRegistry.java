@@ -5,31 +5,91 @@ import com.knuddels.jtokkit.api.EncodingRegistry;
 import com.knuddels.jtokkit.api.EncodingType;
 import com.knuddels.jtokkit.api.ModelType;
 
+import java.nio.file.Path;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 /**
  * A lazy initialization implementation of {@link EncodingRegistry}. It does not register any encoding until either the 
  * {@link #getEncoding(EncodingType)} or {@link #getEncoding(String)} method is called. 
  * When one of these methods is called, the requested {@link EncodingType} is registered.
+ * <p>
+ * Encodings are loaded in the {@link ForkJoinPool#commonPool()}, at most once per encoding type, and the threads that
+ * request an encoding that is still loading wait for that load without holding any lock. Once an encoding is loaded,
+ * looking it up is a plain read of a {@link ConcurrentHashMap}.
  */
 final class LazyEncodingRegistry extends AbstractEncodingRegistry {
+    private final ConcurrentHashMap<EncodingType, CompletableFuture<Encoding>> loadingEncodings = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new registry, which keeps the vocabularies of the default encodings on the heap.
+     */
+    LazyEncodingRegistry() {
+        this(null);
+    }
+
+    /**
+     * Creates a new registry.
+     *
+     * @param vocabularyDirectory the directory of the memory mapped vocabulary files of the default encodings, or
+     *                            {@code null} to keep their vocabularies on the heap
+     */
+    LazyEncodingRegistry(final Path vocabularyDirectory) {
+        super(vocabularyDirectory);
+    }
 
     @Override
     public Encoding getEncoding(final EncodingType encodingType) {
-        addEncoding(encodingType);
-        return super.getEncoding(encodingType);
+        return loadEncoding(encodingType);
     }
 
     @Override
     public Optional<Encoding> getEncoding(final String encodingName) {
-        EncodingType.fromName(encodingName).ifPresent(this::addEncoding);
+        EncodingType.fromName(encodingName).ifPresent(this::loadEncoding);
 
         return super.getEncoding(encodingName);
     }
 
     @Override
     public Encoding getEncodingForModel(final ModelType modelType) {
-        addEncoding(modelType.getEncodingType());
-        return super.getEncodingForModel(modelType);
+        return loadEncoding(modelType.getEncodingType());
+    }
+
+    @Override
+    public CompletableFuture<Encoding> getEncodingAsync(final EncodingType encodingType) {
+        final Encoding encoding = findEncoding(encodingType.getName());
+        if (encoding != null) {
+            return CompletableFuture.completedFuture(encoding);
+        }
+
+        // A dependent future, so that callers can not complete the future that is shared by all callers
+        return startLoading(encodingType).thenApply(Function.identity());
+    }
+
+    private Encoding loadEncoding(final EncodingType encodingType) {
+        final Encoding encoding = findEncoding(encodingType.getName());
+        if (encoding != null) {
+            return encoding;
+        }
+
+        return join(startLoading(encodingType));
+    }
+
+    /*
+     * Starts loading the given encoding in the background, unless it is loading already. The map is only locked while
+     * the task is submitted, not while the vocabulary is loaded. A failed load is forgotten, so that it can be retried.
+     */
+    private CompletableFuture<Encoding> startLoading(final EncodingType encodingType) {
+        return loadingEncodings.computeIfAbsent(encodingType, type -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return addEncoding(createEncoding(type));
+            } catch (final RuntimeException | Error e) {
+                loadingEncodings.remove(type);
+                throw e;
+            }
+        }));
     }
 }
@@ -0,0 +1,298 @@
+package com.knuddels.jtokkit;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+
+/**
+ * A {@link TokenVocabulary} that reads its tables from a read-only memory mapped file.
+ * <p>
+ * The vocabulary adds nothing to the heap besides this object, so it neither counts towards the heap size nor
+ * has to be scanned by the garbage collector. All processes that map the same file share the pages of the
+ * operating system's page cache, so running many JVMs on one host loads each vocabulary into memory only once.
+ * <p>
+ * The file starts with a header of twelve big-endian ints: a magic number, the format version, the number of tokens
+ * and slots, the number of buckets and the length of the index of the perfect hash, a flag whether the ranks are
+ * dense, the length of the arena, the number of buckets, the number of entries and the id bits of the pair table and
+ * the {@link TokenVocabulary#hashSeed() hash seed}. The pair words, the pair filter, the displacements, the index, the pair displacements, the offsets,
+ * the ranks (only if they are not dense) and the arena follow, in the layout of
+ * {@link TokenVocabulary#writeTo(OutputStream)}.
+ */
+final class MappedTokenVocabulary extends TokenVocabulary {
+
+	private final ByteBuffer buffer;
+	private final int size;
+	private final int slotCount;
+	private final int bucketCount;
+	private final int indexLength;
+	private final boolean denseRanks;
+	private final int pairIdBits;
+	private final int pairBucketCount;
+	private final int pairCount;
+	private final int pairWordsStart;
+	private final int pairFilterStart;
+	private final int displacementsStart;
+	private final int indexStart;
+	private final int pairDisplacementsStart;
+	private final int offsetsStart;
+	private final int ranksStart;
+	private final int arenaStart;
+
+	private MappedTokenVocabulary(
+			final ByteBuffer buffer,
+			final int hashSeed,
+			final int size,
+			final int slotCount,
+			final int bucketCount,
+			final int indexLength,
+			final boolean denseRanks,
+			final int arenaLength,
+			final int pairIdBits,
+			final int pairBucketCount,
+			final int pairCount
+	) {
+		super(hashSeed);
+		this.buffer = buffer;
+		this.size = size;
+		this.slotCount = slotCount;
+		this.bucketCount = bucketCount;
+		this.indexLength = indexLength;
+		this.denseRanks = denseRanks;
+		this.pairIdBits = pairIdBits;
+		this.pairBucketCount = pairBucketCount;
+		this.pairCount = pairCount;
+		this.pairWordsStart = HEADER_LENGTH;
+		this.pairFilterStart = pairWordsStart + pairWordCount(pairCount, pairIdBits) * Long.BYTES;
+		this.displacementsStart = pairFilterStart + BlockedBloomFilter.wordCount(pairCount) * Long.BYTES;
+		this.indexStart = displacementsStart + bucketCount * Integer.BYTES;
+		this.pairDisplacementsStart = indexStart + indexLength * Integer.BYTES;
+		this.offsetsStart = pairDisplacementsStart + pairBucketCount * Integer.BYTES;
+		this.ranksStart = offsetsStart + (slotCount + 1) * Integer.BYTES;
+		this.arenaStart = ranksStart + (denseRanks ? 0 : slotCount * Integer.BYTES);
+		if (arenaStart + arenaLength != buffer.capacity()) {
+			throw new IllegalStateException("Vocabulary file has " + buffer.capacity() + " bytes, but its header describes " + (arenaStart + arenaLength));
+		}
+	}
+
+	/**
+	 * Maps the vocabulary file with the given name in the given directory. If the file does not exist yet, it is
+	 * created from the given mergeable ranks first. The file is written to a temporary file and atomically moved
+	 * into place, so that processes which concurrently open the same vocabulary never map a partially written file.
+	 *
+	 * @param directory      the directory of the vocabulary files
+	 * @param name           the name of the vocabulary, used as the base of the file name
+	 * @param mergeableRanks supplies the tokens and their ranks if the file has to be created
+	 * @return the mapped vocabulary
+	 * @throws IllegalStateException if the file can not be created or mapped
+	 */
+	static MappedTokenVocabulary open(
+			final Path directory,
+			final String name,
+			final Supplier<MergeableRanks> mergeableRanks
+	) {
+		final Path file = directory.resolve(name + ".v" + FORMAT_VERSION + ".vocabulary");
+		try {
+			if (!Files.isRegularFile(file)) {
+				write(directory, file, TokenVocabulary.from(mergeableRanks.get()));
+			}
+
+			return map(file);
+		} catch (final IOException e) {
+			throw new IllegalStateException("Could not open vocabulary file " + file, e);
+		}
+	}
+
+	/**
+	 * Maps the given vocabulary file.
+	 *
+	 * @param file the file to map
+	 * @return the mapped vocabulary
+	 * @throws IOException           if the file can not be read
+	 * @throws IllegalStateException if the file is not a vocabulary file of the current format version
+	 */
+	static MappedTokenVocabulary map(final Path file) throws IOException {
+		final ByteBuffer buffer;
+		try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The mapping stays valid after the channel is closed
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != FORMAT_MAGIC) {
+			throw new IllegalStateException(file + " is not a vocabulary file");
+		}
+
+		final int version = buffer.getInt(Integer.BYTES);
+		if (version != FORMAT_VERSION) {
+			throw new IllegalStateException(file + " has format version " + version + ", expected " + FORMAT_VERSION);
+		}
+
+		final int size = buffer.getInt(2 * Integer.BYTES);
+		final int slotCount = buffer.getInt(3 * Integer.BYTES);
+		final int bucketCount = buffer.getInt(4 * Integer.BYTES);
+		final int indexLength = buffer.getInt(5 * Integer.BYTES);
+		final int pairBucketCount = buffer.getInt(8 * Integer.BYTES);
+		final int pairCount = buffer.getInt(9 * Integer.BYTES);
+		final int pairIdBits = buffer.getInt(10 * Integer.BYTES);
+		final int hashSeed = buffer.getInt(11 * Integer.BYTES);
+		if (hashSeed < 0 || indexLength < 0 || indexLength > size || size > slotCount || bucketCount != MinimalPerfectHash.bucketCount(indexLength)
+				|| pairIdBits < 0 || pairIdBits > MAX_PAIR_ID_BITS || pairCount < 0
+				|| pairBucketCount != (pairIdBits == 0 ? 0 : MinimalPerfectHash.bucketCount(pairCount))) {
+			throw new IllegalStateException(file + " has an invalid header");
+		}
+
+		return new MappedTokenVocabulary(
+				buffer,
+				hashSeed,
+				size,
+				slotCount,
+				bucketCount,
+				indexLength,
+				buffer.getInt(6 * Integer.BYTES) != 0,
+				buffer.getInt(7 * Integer.BYTES),
+				pairIdBits,
+				pairBucketCount,
+				pairCount
+		);
+	}
+
+	private static void write(final Path directory, final Path file, final TokenVocabulary vocabulary) throws IOException {
+		Files.createDirectories(directory);
+		final Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			try (final OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporaryFile))) {
+				vocabulary.writeTo(out);
+			}
+
+			try {
+				Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
+	@Override
+	int size() {
+		return size;
+	}
+
+	@Override
+	int slotCount() {
+		return slotCount;
+	}
+
+	@Override
+	int bucketCount() {
+		return bucketCount;
+	}
+
+	@Override
+	int displacement(final int bucket) {
+		return buffer.getInt(displacementsStart + bucket * Integer.BYTES);
+	}
+
+	@Override
+	int indexLength() {
+		return indexLength;
+	}
+
+	@Override
+	int indexEntry(final int position) {
+		return buffer.getInt(indexStart + position * Integer.BYTES);
+	}
+
+	@Override
+	int pairIdBits() {
+		return pairIdBits;
+	}
+
+	@Override
+	int pairBucketCount() {
+		return pairBucketCount;
+	}
+
+	@Override
+	int pairDisplacement(final int bucket) {
+		return buffer.getInt(pairDisplacementsStart + bucket * Integer.BYTES);
+	}
+
+	@Override
+	int pairCount() {
+		return pairCount;
+	}
+
+	@Override
+	long pairWord(final int index) {
+		return buffer.getLong(pairWordsStart + index * Long.BYTES);
+	}
+
+	@Override
+	long pairFilterWord(final int index) {
+		return buffer.getLong(pairFilterStart + index * Long.BYTES);
+	}
+
+	@Override
+	int offset(final int slot) {
+		return buffer.getInt(offsetsStart + slot * Integer.BYTES);
+	}
+
+	@Override
+	boolean hasDenseRanks() {
+		return denseRanks;
+	}
+
+	@Override
+	int rankAt(final int slot) {
+		return denseRanks ? slot : buffer.getInt(ranksStart + slot * Integer.BYTES);
+	}
+
+	@Override
+	boolean matches(final int tokenStart, final byte[] bytes, final int start, final int length) {
+		final int arenaIndex = arenaStart + tokenStart;
+		for (int i = 0; i < length; i++) {
+			if (bytes[start + i] != buffer.get(arenaIndex + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	byte byteAt(final int arenaIndex) {
+		return buffer.get(arenaStart + arenaIndex);
+	}
+
+	@Override
+	byte[] copyOfArena(final int start, final int end) {
+		final byte[] bytes = new byte[end - start];
+		// Reading through a duplicate leaves the position of the shared buffer untouched for concurrent readers
+		final ByteBuffer view = buffer.duplicate();
+		view.position(arenaStart + start);
+		view.get(bytes);
+		return bytes;
+	}
+
+	@Override
+	void copyArena(final int start, final int end, final byte[] out, final int offset) {
+		// Absolute reads neither move the position of the shared buffer nor need a duplicate of it
+		for (int i = start; i < end; i++) {
+			out[offset + i - start] = buffer.get(arenaStart + i);
+		}
+	}
+
+	@Override
+	long heapFootprint() {
+		// The tables are in the page cache, the heap only holds this object and the buffer that maps the file
+		return 160;
+	}
+}
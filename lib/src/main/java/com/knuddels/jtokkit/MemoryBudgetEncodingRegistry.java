@@ -0,0 +1,262 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingFootprint;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.MemoryAwareEncodingRegistry;
+import com.knuddels.jtokkit.api.ModelType;
+
+import java.lang.ref.SoftReference;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * A lazy {@link MemoryAwareEncodingRegistry}. Like {@link LazyEncodingRegistry}, it loads the default encodings in
+ * the {@link ForkJoinPool#commonPool()} when they are first requested, and looking up a retained encoding reads a
+ * volatile field without locking.
+ * <p>
+ * When the estimated footprint of the retained encodings exceeds the memory budget, the least recently used ones are
+ * released: the registry only keeps a {@link SoftReference} to them, so the garbage collector can reclaim their
+ * vocabularies when memory runs low. A released encoding that was not reclaimed yet is retained again without
+ * loading it, otherwise it is loaded again. Custom encodings are always retained.
+ */
+final class MemoryBudgetEncodingRegistry extends AbstractEncodingRegistry implements MemoryAwareEncodingRegistry {
+    private final long memoryBudget;
+    private final Slot[] slots;
+
+    /**
+     * Creates a new registry, which keeps the vocabularies of the default encodings on the heap.
+     *
+     * @param memoryBudget the number of bytes that the retained default encodings may occupy on the heap
+     */
+    MemoryBudgetEncodingRegistry(final long memoryBudget) {
+        super(null);
+        this.memoryBudget = memoryBudget;
+        final EncodingType[] encodingTypes = EncodingType.values();
+        this.slots = new Slot[encodingTypes.length];
+        for (final EncodingType encodingType : encodingTypes) {
+            slots[encodingType.ordinal()] = new Slot(encodingType);
+        }
+    }
+
+    @Override
+    public Encoding getEncoding(final EncodingType encodingType) {
+        final Slot slot = slots[encodingType.ordinal()];
+        final Encoding encoding = slot.encoding;
+        if (encoding != null) {
+            slot.touch();
+            return encoding;
+        }
+
+        return join(load(slot));
+    }
+
+    @Override
+    public Optional<Encoding> getEncoding(final String encodingName) {
+        final Optional<EncodingType> encodingType = EncodingType.fromName(encodingName);
+        if (encodingType.isPresent()) {
+            return Optional.of(getEncoding(encodingType.get()));
+        }
+
+        return super.getEncoding(encodingName);
+    }
+
+    @Override
+    public Encoding getEncodingForModel(final ModelType modelType) {
+        return getEncoding(modelType.getEncodingType());
+    }
+
+    @Override
+    public EncodingRegistry registerCustomEncoding(final Encoding encoding) {
+        // The default encodings live in the budgeted slots, so a custom encoding with their name could never be found
+        if (EncodingType.fromName(encoding.getName()).isPresent()) {
+            throw new IllegalStateException("Encoding " + encoding.getName() + " already registered");
+        }
+
+        return super.registerCustomEncoding(encoding);
+    }
+
+    @Override
+    public CompletableFuture<Encoding> getEncodingAsync(final EncodingType encodingType) {
+        final Slot slot = slots[encodingType.ordinal()];
+        final Encoding encoding = slot.encoding;
+        if (encoding != null) {
+            slot.touch();
+            return CompletableFuture.completedFuture(encoding);
+        }
+
+        // A dependent future, so that callers can not complete the future that is shared by all callers
+        return load(slot).thenApply(Function.identity());
+    }
+
+    @Override
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    @Override
+    public long getRetainedHeapBytes() {
+        synchronized (slots) {
+            return retainedHeapBytes();
+        }
+    }
+
+    @Override
+    public List<EncodingFootprint> getFootprints() {
+        final List<EncodingFootprint> footprints = new ArrayList<>(slots.length);
+        synchronized (slots) {
+            for (final Slot slot : slots) {
+                updateHeapBytes(slot);
+                footprints.add(new EncodingFootprint(
+                        slot.encodingType,
+                        slot.encoding != null,
+                        slot.heapBytes,
+                        slot.lastUsed == 0 ? null : Instant.ofEpochMilli(slot.lastUsed),
+                        slot.loadCount,
+                        slot.evictionCount
+                ));
+            }
+        }
+        return footprints;
+    }
+
+    @Override
+    public boolean unloadEncoding(final EncodingType encodingType) {
+        final Slot slot = slots[encodingType.ordinal()];
+        synchronized (slots) {
+            final boolean loaded = slot.encoding != null;
+            if (loaded) {
+                slot.encoding = null;
+                slot.evictionCount++;
+            }
+            slot.releasedEncoding = null;
+            return loaded;
+        }
+    }
+
+    /*
+     * Returns the encoding of the given slot, retaining it again if it was released but not reclaimed yet, or starts
+     * loading it in the background, unless it is loading already. The slots are only locked while their state changes,
+     * not while a vocabulary is loaded.
+     */
+    private CompletableFuture<Encoding> load(final Slot slot) {
+        synchronized (slots) {
+            if (slot.encoding != null) {
+                slot.touch();
+                return CompletableFuture.completedFuture(slot.encoding);
+            }
+
+            final Encoding releasedEncoding = slot.releasedEncoding != null ? slot.releasedEncoding.get() : null;
+            if (releasedEncoding != null) {
+                retain(slot, releasedEncoding);
+                return CompletableFuture.completedFuture(releasedEncoding);
+            }
+
+            if (slot.loading == null) {
+                slot.loading = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        final Encoding encoding = createEncoding(slot.encodingType);
+                        synchronized (slots) {
+                            slot.loading = null;
+                            slot.loadCount++;
+                            retain(slot, encoding);
+                        }
+                        return encoding;
+                    } catch (final RuntimeException | Error e) {
+                        synchronized (slots) {
+                            slot.loading = null;
+                        }
+                        throw e;
+                    }
+                });
+            }
+            return slot.loading;
+        }
+    }
+
+    /*
+     * Retains the encoding of the given slot and releases the least recently used other encodings while the retained
+     * encodings exceed the memory budget. Must be called while holding the lock of the slots.
+     */
+    private void retain(final Slot slot, final Encoding encoding) {
+        slot.encoding = encoding;
+        slot.releasedEncoding = null;
+        updateHeapBytes(slot);
+        slot.touch();
+
+        long retainedHeapBytes = retainedHeapBytes();
+        while (retainedHeapBytes > memoryBudget) {
+            Slot leastRecentlyUsed = null;
+            for (final Slot other : slots) {
+                if (other != slot && other.encoding != null && (leastRecentlyUsed == null || other.lastUsed < leastRecentlyUsed.lastUsed)) {
+                    leastRecentlyUsed = other;
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                return;
+            }
+
+            leastRecentlyUsed.releasedEncoding = new SoftReference<>(leastRecentlyUsed.encoding);
+            leastRecentlyUsed.encoding = null;
+            leastRecentlyUsed.evictionCount++;
+            retainedHeapBytes -= leastRecentlyUsed.heapBytes;
+        }
+    }
+
+    private long retainedHeapBytes() {
+        long retainedHeapBytes = 0;
+        for (final Slot slot : slots) {
+            if (slot.encoding != null) {
+                updateHeapBytes(slot);
+                retainedHeapBytes += slot.heapBytes;
+            }
+        }
+        return retainedHeapBytes;
+    }
+
+    /*
+     * Updates the footprint of the retained encoding of the given slot, which grows when the encoding builds its pair
+     * table on the first merge. Must be called while holding the lock of the slots.
+     */
+    private static void updateHeapBytes(final Slot slot) {
+        final Encoding encoding = slot.encoding;
+        if (encoding instanceof GptBytePairEncoding) {
+            slot.heapBytes = ((GptBytePairEncoding) encoding).heapFootprint();
+        } else if (encoding != null) {
+            slot.heapBytes = 0;
+        }
+    }
+
+    /*
+     * The state of a default encoding. Apart from the last use, which is updated by every lookup, it only changes while
+     * holding the lock of the slots.
+     */
+    private static final class Slot {
+        private final EncodingType encodingType;
+        private volatile Encoding encoding;
+        private volatile long lastUsed;
+        private SoftReference<Encoding> releasedEncoding;
+        private CompletableFuture<Encoding> loading;
+        private long heapBytes;
+        private int loadCount;
+        private int evictionCount;
+
+        private Slot(final EncodingType encodingType) {
+            this.encodingType = encodingType;
+        }
+
+        private void touch() {
+            final long now = System.currentTimeMillis();
+            // Only writing when the time changed keeps concurrent lookups from contending for the cache line
+            if (lastUsed != now) {
+                lastUsed = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.knuddels.jtokkit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The tokens of a vocabulary and their ranks, with the bytes of all tokens in a single arena.
+ * <p>
+ * The predefined vocabularies are {@code .tiktoken} files, which contain a token per line: the base64 encoded bytes
+ * of the token, a space and the rank of the token. They are parsed directly from the bytes of the file in two passes.
+ * The first pass counts the tokens and their bytes, so that the second pass can decode the tokens right into arrays
+ * of the exact size, without creating a string or an array per line.
+ */
+final class MergeableRanks {
+
+	private static final byte[] BASE64_VALUES = new byte[128];
+
+	static {
+		Arrays.fill(BASE64_VALUES, (byte) -1);
+		final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+		for (int i = 0; i < alphabet.length(); i++) {
+			BASE64_VALUES[alphabet.charAt(i)] = (byte) i;
+		}
+	}
+
+	private final byte[] arena;
+	private final int[] offsets;
+	private final int[] ranks;
+
+	private MergeableRanks(final byte[] arena, final int[] offsets, final int[] ranks) {
+		this.arena = arena;
+		this.offsets = offsets;
+		this.ranks = ranks;
+	}
+
+	/**
+	 * Loads the mergeable ranks from the given {@code .tiktoken} file in the resources.
+	 *
+	 * @param fileName the name of the file in the resources
+	 * @return the mergeable ranks
+	 * @throws IllegalStateException if the file can not be found, read or parsed
+	 */
+	static MergeableRanks load(final String fileName) {
+		try (final InputStream in = MergeableRanks.class.getResourceAsStream(fileName)) {
+			if (in == null) {
+				throw new IllegalStateException("Could not find " + fileName + " in resources");
+			}
+
+			byte[] contents = new byte[1 << 20];
+			int length = 0;
+			int read;
+			while ((read = in.read(contents, length, contents.length - length)) != -1) {
+				length += read;
+				if (length == contents.length) {
+					contents = Arrays.copyOf(contents, contents.length * 2);
+				}
+			}
+			return parse(contents, length, fileName);
+		} catch (final IOException e) {
+			throw new IllegalStateException("Could not load " + fileName + " from resources", e);
+		}
+	}
+
+	/**
+	 * Parses the mergeable ranks from the contents of a {@code .tiktoken} file.
+	 *
+	 * @param contents the contents of the file
+	 * @param length   the number of bytes of the contents
+	 * @param fileName the name of the file, for error messages
+	 * @return the mergeable ranks
+	 * @throws IllegalStateException if the contents are not a valid {@code .tiktoken} file
+	 */
+	static MergeableRanks parse(final byte[] contents, final int length, final String fileName) {
+		int size = 0;
+		int arenaLength = 0;
+		for (int lineStart = 0; lineStart < length; lineStart = lineEnd(contents, lineStart, length) + 1) {
+			final int tokenEnd = tokenEnd(contents, lineStart, lineEnd(contents, lineStart, length), size, fileName);
+			arenaLength += decodedLength(contents, lineStart, tokenEnd, size, fileName);
+			size++;
+		}
+
+		final byte[] arena = new byte[arenaLength];
+		final int[] offsets = new int[size + 1];
+		final int[] ranks = new int[size];
+		int token = 0;
+		for (int lineStart = 0; lineStart < length; token++) {
+			final int lineEnd = lineEnd(contents, lineStart, length);
+			final int tokenEnd = tokenEnd(contents, lineStart, lineEnd, token, fileName);
+			offsets[token + 1] = decode(contents, lineStart, tokenEnd, arena, offsets[token], token, fileName);
+			ranks[token] = parseRank(contents, tokenEnd, lineEnd, token, fileName);
+			lineStart = lineEnd + 1;
+		}
+		return new MergeableRanks(arena, offsets, ranks);
+	}
+
+	/**
+	 * Copies the given mergeable ranks into an arena.
+	 *
+	 * @param mergeableRanks the tokens and their ranks
+	 * @return the mergeable ranks
+	 */
+	static MergeableRanks of(final Map<byte[], Integer> mergeableRanks) {
+		int arenaLength = 0;
+		for (final byte[] token : mergeableRanks.keySet()) {
+			arenaLength += token.length;
+		}
+
+		final byte[] arena = new byte[arenaLength];
+		final int[] offsets = new int[mergeableRanks.size() + 1];
+		final int[] ranks = new int[mergeableRanks.size()];
+		int token = 0;
+		for (final Map.Entry<byte[], Integer> entry : mergeableRanks.entrySet()) {
+			System.arraycopy(entry.getKey(), 0, arena, offsets[token], entry.getKey().length);
+			offsets[token + 1] = offsets[token] + entry.getKey().length;
+			ranks[token] = entry.getValue();
+			token++;
+		}
+		return new MergeableRanks(arena, offsets, ranks);
+	}
+
+	/**
+	 * Returns the number of tokens.
+	 *
+	 * @return the number of tokens
+	 */
+	int size() {
+		return ranks.length;
+	}
+
+	/**
+	 * Returns the arena with the bytes of all tokens. It must not be modified.
+	 *
+	 * @return the arena
+	 */
+	byte[] arena() {
+		return arena;
+	}
+
+	/**
+	 * Returns the start of the given token in the arena. The token ends at the start of the next token.
+	 *
+	 * @param token the index of the token, or the number of tokens for the end of the last token
+	 * @return the index of the first byte of the token in the arena
+	 */
+	int start(final int token) {
+		return offsets[token];
+	}
+
+	/**
+	 * Returns the rank of the given token.
+	 *
+	 * @param token the index of the token
+	 * @return the rank of the token
+	 */
+	int rank(final int token) {
+		return ranks[token];
+	}
+
+	/**
+	 * Copies the tokens and their ranks into a map.
+	 *
+	 * @return a new map of the tokens and their ranks
+	 */
+	Map<byte[], Integer> toMap() {
+		// Large enough for all tokens at the default load factor, so that the map never has to grow
+		final Map<byte[], Integer> map = new HashMap<>(size() / 3 * 4 + 4);
+		for (int token = 0; token < size(); token++) {
+			map.put(Arrays.copyOfRange(arena, offsets[token], offsets[token + 1]), ranks[token]);
+		}
+		return map;
+	}
+
+	private static int lineEnd(final byte[] contents, final int lineStart, final int length) {
+		int i = lineStart;
+		while (i < length && contents[i] != '\n') {
+			i++;
+		}
+		return i;
+	}
+
+	private static int tokenEnd(final byte[] contents, final int lineStart, final int lineEnd, final int line, final String fileName) {
+		for (int i = lineStart; i < lineEnd; i++) {
+			if (contents[i] == ' ') {
+				return i;
+			}
+		}
+		throw invalidLine(line, fileName);
+	}
+
+	private static int decodedLength(final byte[] contents, final int start, final int end, final int line, final String fileName) {
+		final int length = end - start;
+		if (length % 4 != 0) {
+			throw invalidLine(line, fileName);
+		}
+
+		int padding = 0;
+		while (padding < 2 && padding < length && contents[end - 1 - padding] == '=') {
+			padding++;
+		}
+		return length / 4 * 3 - padding;
+	}
+
+	/*
+	 * Decodes the base64 encoded token between start and end into the arena and returns the end of the decoded token.
+	 */
+	private static int decode(
+			final byte[] contents,
+			final int start,
+			final int end,
+			final byte[] arena,
+			final int arenaStart,
+			final int line,
+			final String fileName
+	) {
+		final int decodedLength = decodedLength(contents, start, end, line, fileName);
+		final int paddingStart = end - ((end - start) / 4 * 3 - decodedLength);
+		final int decodedEnd = arenaStart + decodedLength;
+		int arenaIndex = arenaStart;
+		for (int i = start; i < end; i += 4) {
+			int bits = 0;
+			for (int j = i; j < i + 4; j++) {
+				final int value = j >= paddingStart ? 0 : base64Value(contents[j], line, fileName);
+				bits = (bits << 6) | value;
+			}
+			for (int shift = 16; shift >= 0 && arenaIndex < decodedEnd; shift -= 8) {
+				arena[arenaIndex++] = (byte) (bits >>> shift);
+			}
+		}
+		return decodedEnd;
+	}
+
+	private static int base64Value(final byte character, final int line, final String fileName) {
+		final int value = character >= 0 ? BASE64_VALUES[character] : -1;
+		if (value < 0) {
+			throw invalidLine(line, fileName);
+		}
+		return value;
+	}
+
+	private static int parseRank(final byte[] contents, final int tokenEnd, final int lineEnd, final int line, final String fileName) {
+		int i = tokenEnd;
+		while (i < lineEnd && contents[i] == ' ') {
+			i++;
+		}
+		// Lines may end with \r\n
+		final int end = lineEnd > i && contents[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+		final boolean negative = i < end && contents[i] == '-';
+		if (negative) {
+			i++;
+		}
+		if (i == end || end - i > 10) {
+			throw invalidLine(line, fileName);
+		}
+
+		long rank = 0;
+		for (; i < end; i++) {
+			final int digit = contents[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw invalidLine(line, fileName);
+			}
+			rank = rank * 10 + digit;
+		}
+		rank = negative ? -rank : rank;
+		if (rank != (int) rank) {
+			throw invalidLine(line, fileName);
+		}
+		return (int) rank;
+	}
+
+	private static IllegalStateException invalidLine(final int line, final String fileName) {
+		return new IllegalStateException("Invalid line " + (line + 1) + " in " + fileName);
+	}
+}
@@ -0,0 +1,177 @@
+package com.knuddels.jtokkit;
+
+/**
+ * A minimal perfect hash function over a fixed set of 64-bit hashes, built with the CHD (compress, hash and
+ * displace) algorithm.
+ * <p>
+ * The hashes are distributed into buckets of about four hashes each. Every bucket gets a displacement, chosen so
+ * that the positions of all its hashes are distinct and not taken by a bucket placed before. Buckets are placed from
+ * the largest to the smallest, since small buckets are easier to fit into the remaining free positions. The
+ * position of a hash is then computed from the hash and the displacement of its bucket, and the positions of the
+ * {@code n} hashes are exactly {@code 0} to {@code n - 1}.
+ * <p>
+ * The function can not tell whether a hash is part of the set, so callers have to verify the key at the position.
+ */
+final class MinimalPerfectHash {
+
+	private static final int HASHES_PER_BUCKET = 4;
+	private static final long DISPLACEMENT_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Returns the number of buckets used for the given number of hashes.
+	 *
+	 * @param size the number of hashes
+	 * @return the number of buckets
+	 */
+	static int bucketCount(final int size) {
+		return Math.max(1, (size + HASHES_PER_BUCKET - 1) / HASHES_PER_BUCKET);
+	}
+
+	/**
+	 * Computes the displacements of the buckets, so that {@link #position(long, int, int)} maps the given hashes to
+	 * distinct positions from 0 to {@code hashes.length - 1}.
+	 *
+	 * @param hashes the hashes, which must be distinct
+	 * @return the displacement of each bucket
+	 * @throws IllegalArgumentException if the hashes are not distinct
+	 */
+	static int[] build(final long[] hashes) {
+		final int size = hashes.length;
+		final int bucketCount = bucketCount(size);
+
+		// Group the hashes by bucket with a counting sort
+		final int[] bucketStarts = new int[bucketCount + 1];
+		for (final long hash : hashes) {
+			bucketStarts[bucket(hash, bucketCount) + 1]++;
+		}
+		int maxBucketSize = 0;
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			maxBucketSize = Math.max(maxBucketSize, bucketStarts[bucket + 1]);
+			bucketStarts[bucket + 1] += bucketStarts[bucket];
+		}
+		final long[] hashesByBucket = new long[size];
+		final int[] filled = new int[bucketCount];
+		for (final long hash : hashes) {
+			final int bucket = bucket(hash, bucketCount);
+			hashesByBucket[bucketStarts[bucket] + filled[bucket]++] = hash;
+		}
+
+		// Order the buckets from the largest to the smallest, again with a counting sort
+		final int[] sizeStarts = new int[maxBucketSize + 2];
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			sizeStarts[maxBucketSize - bucketSize(bucketStarts, bucket) + 1]++;
+		}
+		for (int i = 0; i <= maxBucketSize; i++) {
+			sizeStarts[i + 1] += sizeStarts[i];
+		}
+		final int[] bucketsBySize = new int[bucketCount];
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			bucketsBySize[sizeStarts[maxBucketSize - bucketSize(bucketStarts, bucket)]++] = bucket;
+		}
+
+		final int[] displacements = new int[bucketCount];
+		final boolean[] taken = new boolean[size];
+		final int[] positions = new int[maxBucketSize];
+		for (final int bucket : bucketsBySize) {
+			final int start = bucketStarts[bucket];
+			final int bucketSize = bucketSize(bucketStarts, bucket);
+			if (bucketSize == 0) {
+				break;
+			}
+
+			for (int i = start + 1; i < start + bucketSize; i++) {
+				for (int j = start; j < i; j++) {
+					if (hashesByBucket[i] == hashesByBucket[j]) {
+						throw new IllegalArgumentException("Hashes must be distinct, but " + hashesByBucket[i] + " occurs more than once");
+					}
+				}
+			}
+
+			int displacement = 0;
+			while (!place(hashesByBucket, start, bucketSize, displacement, taken, positions)) {
+				displacement++;
+			}
+			displacements[bucket] = displacement;
+		}
+		return displacements;
+	}
+
+	private static boolean place(
+			final long[] hashes,
+			final int start,
+			final int bucketSize,
+			final int displacement,
+			final boolean[] taken,
+			final int[] positions
+	) {
+		for (int i = 0; i < bucketSize; i++) {
+			final int position = position(hashes[start + i], displacement, taken.length);
+			if (taken[position]) {
+				return false;
+			}
+			for (int j = 0; j < i; j++) {
+				if (positions[j] == position) {
+					return false;
+				}
+			}
+			positions[i] = position;
+		}
+
+		for (int i = 0; i < bucketSize; i++) {
+			taken[positions[i]] = true;
+		}
+		return true;
+	}
+
+	private static int bucketSize(final int[] bucketStarts, final int bucket) {
+		return bucketStarts[bucket + 1] - bucketStarts[bucket];
+	}
+
+	/**
+	 * Returns the bucket of the given hash.
+	 *
+	 * @param hash        the hash
+	 * @param bucketCount the number of buckets
+	 * @return the bucket, from 0 to {@code bucketCount - 1}
+	 */
+	static int bucket(final long hash, final int bucketCount) {
+		return reduce(mix(hash) >>> 32, bucketCount);
+	}
+
+	/**
+	 * Returns the position of the given hash.
+	 *
+	 * @param hash         the hash
+	 * @param displacement the displacement of the bucket of the hash
+	 * @param size         the number of hashes the function was built for
+	 * @return the position, from 0 to {@code size - 1}
+	 */
+	static int position(final long hash, final int displacement, final int size) {
+		return reduce(mix(hash + displacement * DISPLACEMENT_MULTIPLIER) & 0xFFFFFFFFL, size);
+	}
+
+	/*
+	 * Maps a 32-bit value uniformly to [0, range) with a multiplication instead of a division.
+	 */
+	private static int reduce(final long value, final int range) {
+		return (int) ((value * range) >>> 32);
+	}
+
+	/**
+	 * The finalizer of MurmurHash3, which spreads every input bit over all output bits.
+	 *
+	 * @param hash the value to mix
+	 * @return the mixed value
+	 */
+	static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private MinimalPerfectHash() {
+	}
+}
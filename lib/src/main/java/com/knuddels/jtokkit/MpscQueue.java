@@ -0,0 +1,56 @@
+package com.knuddels.jtokkit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An unbounded, lock-free queue for multiple producers and a single consumer.
+ * <p>
+ * Producers only contend on a single atomic swap of the tail, and the consumer never writes to memory that
+ * producers read, which keeps the queue cheap under high contention. {@link #offer(Object)} may be called from any
+ * thread, but {@link #poll()} and {@link #isEmpty()} must only be called from one consumer thread at a time.
+ *
+ * @param <E> the type of the elements
+ */
+final class MpscQueue<E> {
+
+	private final AtomicReference<Node<E>> tail;
+	private Node<E> head;
+
+	MpscQueue() {
+		final Node<E> stub = new Node<>(null);
+		this.head = stub;
+		this.tail = new AtomicReference<>(stub);
+	}
+
+	void offer(final E element) {
+		final Node<E> node = new Node<>(element);
+		final Node<E> previous = tail.getAndSet(node);
+		// Until this write, the consumer sees the queue as empty beyond the previous node
+		previous.next = node;
+	}
+
+	E poll() {
+		final Node<E> next = head.next;
+		if (next == null) {
+			return null;
+		}
+
+		final E element = next.element;
+		next.element = null;
+		head = next;
+		return element;
+	}
+
+	boolean isEmpty() {
+		return head.next == null;
+	}
+
+	private static final class Node<E> {
+		private E element;
+		private volatile Node<E> next;
+
+		private Node(final E element) {
+			this.element = element;
+		}
+	}
+}
@@ -0,0 +1,349 @@
+package com.knuddels.jtokkit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+
+import static com.knuddels.jtokkit.PiecePattern.END;
+import static com.knuddels.jtokkit.PiecePattern.LETTER;
+import static com.knuddels.jtokkit.PiecePattern.NEWLINE;
+import static com.knuddels.jtokkit.PiecePattern.NON_ASCII;
+import static com.knuddels.jtokkit.PiecePattern.NUMBER;
+import static com.knuddels.jtokkit.PiecePattern.OTHER;
+import static com.knuddels.jtokkit.PiecePattern.WHITESPACE;
+
+/**
+ * Splits a text into the pieces of a {@link PiecePattern}, like a {@link Matcher} of its regex. Instances are not
+ * thread-safe.
+ */
+final class PieceMatcher {
+
+	private final PiecePattern pattern;
+	private final Matcher matcher;
+	private CharSequence text;
+	private int length;
+	private char[] chars;
+	private byte[] classes;
+	private int blockStart;
+	private int blockEnd;
+	private int position;
+	private int regexEnd = -1;
+	private int start;
+	private int end;
+	private boolean hitEnd;
+	private boolean ascii;
+
+	PieceMatcher(final PiecePattern pattern, final Matcher matcher, final CharSequence text) {
+		this.pattern = pattern;
+		this.matcher = matcher;
+		this.text = text;
+		this.length = text.length();
+		final int blockLength = pattern.hasAsciiFastPath() ? Math.min(length, CharClassifier.BLOCK_LENGTH) : 0;
+		this.chars = new char[blockLength];
+		this.classes = new byte[blockLength];
+	}
+
+	/**
+	 * Resets this matcher to find the pieces of the given text from its start, like {@link Matcher#reset(CharSequence)}.
+	 * This allows to reuse a matcher, and the arrays of its blocks, for many texts.
+	 *
+	 * @param text the text to split into pieces
+	 * @return this matcher
+	 */
+	PieceMatcher reset(final CharSequence text) {
+		matcher.reset(text);
+		this.text = text;
+		this.length = text.length();
+		if (pattern.hasAsciiFastPath() && chars.length < Math.min(length, CharClassifier.BLOCK_LENGTH)) {
+			this.chars = new char[CharClassifier.BLOCK_LENGTH];
+			this.classes = new byte[CharClassifier.BLOCK_LENGTH];
+		}
+		blockStart = 0;
+		blockEnd = 0;
+		position = 0;
+		regexEnd = -1;
+		start = 0;
+		end = 0;
+		hitEnd = false;
+		ascii = false;
+		return this;
+	}
+
+	/**
+	 * Finds the next piece.
+	 *
+	 * @return true if there is another piece
+	 */
+	boolean find() {
+		if (!pattern.hasAsciiFastPath()) {
+			final boolean found = matcher.find();
+			if (found) {
+				start = matcher.start();
+				end = matcher.end();
+				hitEnd = matcher.hitEnd();
+				ascii = false;
+			}
+			return found;
+		}
+
+		if (position >= length) {
+			hitEnd = true;
+			return false;
+		}
+
+		start = position;
+		hitEnd = false;
+		ascii = pattern.isCl100k() ? matchCl100kAsciiPiece() : matchGpt2AsciiPiece();
+		if (!ascii) {
+			// The pieces of the predefined patterns cover the whole text, so the regex finds the piece at the position.
+			// If the previous piece was found by the regex too, it continues there without being reset.
+			if (regexEnd == position) {
+				matcher.find();
+			} else {
+				matcher.find(position);
+			}
+			end = matcher.end();
+			hitEnd = matcher.hitEnd();
+			regexEnd = end;
+		}
+		position = end;
+		return true;
+	}
+
+	/**
+	 * Returns the start of the current piece.
+	 *
+	 * @return the index of the first char of the piece
+	 */
+	int start() {
+		return start;
+	}
+
+	/**
+	 * Returns the end of the current piece.
+	 *
+	 * @return the index after the last char of the piece
+	 */
+	int end() {
+		return end;
+	}
+
+	/**
+	 * Returns whether the end of the text was looked at while finding the current piece, in which case appending
+	 * text could change the piece.
+	 *
+	 * @return true if the end of the text was hit
+	 */
+	boolean hitEnd() {
+		return hitEnd;
+	}
+
+	/**
+	 * Returns the UTF-8 bytes of the current piece. The chars of ASCII pieces are used as bytes without encoding
+	 * them.
+	 *
+	 * @return the bytes of the piece
+	 */
+	byte[] bytes() {
+		if (!ascii) {
+			return text.subSequence(start, end).toString().getBytes(StandardCharsets.UTF_8);
+		}
+
+		final byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) text.charAt(start + i);
+		}
+		return bytes;
+	}
+
+	private int classAt(final int index) {
+		if (index >= blockEnd || index < blockStart) {
+			if (index >= length) {
+				hitEnd = true;
+				return END;
+			}
+			classifyBlock(index);
+		}
+		return classes[index - blockStart];
+	}
+
+	private void classifyBlock(final int start) {
+		blockStart = start;
+		blockEnd = Math.min(length, start + chars.length);
+		if (text instanceof String) {
+			((String) text).getChars(blockStart, blockEnd, chars, 0);
+		} else {
+			for (int i = blockStart; i < blockEnd; i++) {
+				chars[i - blockStart] = text.charAt(i);
+			}
+		}
+		pattern.classifier().classify(chars, blockEnd - blockStart, classes);
+	}
+
+	/*
+	 * Matches 's|'t|'re|'ve|'m|'ll|'d| ?\p{L}+| ?\p{N}+| ?[^\s\p{L}\p{N}]+|\s+(?!\S)|\s+ at the start and returns
+	 * true, or returns false if the piece could depend on a non-ASCII char.
+	 */
+	private boolean matchGpt2AsciiPiece() {
+		final int first = classAt(start);
+		if (first == NON_ASCII) {
+			return false;
+		}
+
+		final char c = text.charAt(start);
+		final int second = classAt(start + 1);
+		if (second == NON_ASCII) {
+			return false;
+		}
+
+		if (c == '\'' && second != END) {
+			final int contraction = contractionLength(text.charAt(start + 1), false);
+			if (contraction < 0) {
+				return false;
+			} else if (contraction > 0) {
+				end = start + contraction;
+				return true;
+			}
+		}
+
+		final int runStart = c == ' ' && (second & (LETTER | NUMBER | OTHER)) != 0 ? start + 1 : start;
+		final int runClass = runStart == start ? first : second;
+		if ((runClass & (LETTER | NUMBER | OTHER)) != 0) {
+			return matchRun(runStart + 1, runClass);
+		}
+
+		return matchTrailingWhitespace(start + 1);
+	}
+
+	/*
+	 * Matches (?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\r\n\p{L}\p{N}]?\p{L}+|\p{N}{1,3}| ?[^\s\p{L}\p{N}]+[\r\n]*|\s*[\r\n]+|
+	 * \s+(?!\S)|\s+ at the start and returns true, or returns false if the piece could depend on a non-ASCII char.
+	 */
+	private boolean matchCl100kAsciiPiece() {
+		final int first = classAt(start);
+		if (first == NON_ASCII) {
+			return false;
+		}
+
+		final char c = text.charAt(start);
+		final int second = classAt(start + 1);
+		if (second == NON_ASCII) {
+			return false;
+		}
+
+		if (c == '\'' && second != END) {
+			final int contraction = contractionLength(text.charAt(start + 1), true);
+			if (contraction < 0) {
+				return false;
+			} else if (contraction > 0) {
+				end = start + contraction;
+				return true;
+			}
+		}
+
+		if (first == LETTER) {
+			return matchRun(start + 1, LETTER);
+		} else if ((first & (NEWLINE | NUMBER)) == 0 && second == LETTER) {
+			return matchRun(start + 2, LETTER);
+		}
+
+		if (first == NUMBER) {
+			int i = start + 1;
+			while (i < start + 3) {
+				final int charClass = classAt(i);
+				if (charClass == NON_ASCII) {
+					return false;
+				} else if (charClass != NUMBER) {
+					break;
+				}
+				i++;
+			}
+			end = i;
+			return true;
+		}
+
+		final int runStart = c == ' ' && second == OTHER ? start + 1 : start;
+		if (runStart > start || first == OTHER) {
+			if (!matchRun(runStart + 1, OTHER)) {
+				return false;
+			}
+			while ((classAt(end) & NEWLINE) != 0) {
+				end++;
+			}
+			return true;
+		}
+
+		int i = start + 1;
+		while ((classAt(i) & WHITESPACE) != 0) {
+			i++;
+		}
+		// \s*[\r\n]+ backtracks to the last line break of the whitespace
+		for (int lastNewline = i - 1; lastNewline >= start; lastNewline--) {
+			if ((classAt(lastNewline) & NEWLINE) != 0) {
+				if (classAt(i) == NON_ASCII) {
+					return false;
+				}
+				end = lastNewline + 1;
+				return true;
+			}
+		}
+		return matchTrailingWhitespace(start + 1);
+	}
+
+	/*
+	 * Returns the length of the contraction starting with an apostrophe followed by the given char, 0 if there is no
+	 * such contraction, or -1 if it could depend on a non-ASCII char.
+	 */
+	private int contractionLength(final char next, final boolean ignoreCase) {
+		final char lower = ignoreCase ? toLowerCaseAscii(next) : next;
+		if (lower == 's' || lower == 't' || lower == 'm' || lower == 'd') {
+			return 2;
+		} else if (lower != 'r' && lower != 'v' && lower != 'l') {
+			return 0;
+		}
+
+		final int thirdClass = classAt(start + 2);
+		if (thirdClass == NON_ASCII) {
+			// With Unicode case folding, some non-ASCII chars match ASCII letters
+			return ignoreCase ? -1 : 0;
+		} else if (thirdClass == END) {
+			return 0;
+		}
+
+		final char third = ignoreCase ? toLowerCaseAscii(text.charAt(start + 2)) : text.charAt(start + 2);
+		return third == (lower == 'l' ? 'l' : 'e') ? 3 : 0;
+	}
+
+	private static char toLowerCaseAscii(final char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+	}
+
+	private boolean matchRun(final int from, final int runClass) {
+		int i = from;
+		int charClass;
+		while ((charClass = classAt(i)) == runClass) {
+			i++;
+		}
+		if (charClass == NON_ASCII) {
+			return false;
+		}
+		end = i;
+		return true;
+	}
+
+	/*
+	 * Matches \s+(?!\S)|\s+ at the start: all whitespace if it reaches the end of the text, otherwise all but the last
+	 * whitespace char, which belongs to the next piece, unless it is the only one.
+	 */
+	private boolean matchTrailingWhitespace(final int from) {
+		int i = from;
+		int charClass;
+		while (((charClass = classAt(i)) & WHITESPACE) != 0) {
+			i++;
+		}
+		if (charClass == NON_ASCII) {
+			return false;
+		}
+		end = charClass == END || i - start == 1 ? i : i - 1;
+		return true;
+	}
+}
@@ -0,0 +1,164 @@
+package com.knuddels.jtokkit;
+
+import java.util.regex.Pattern;
+
+/**
+ * The pattern that splits a text into pieces, with a fast path for ASCII text.
+ * <p>
+ * For the patterns of the predefined encodings, the pieces starting at ASCII chars are matched by hand with a
+ * {@link CharClassifier} for the 128 ASCII chars, instead of running the Unicode aware regex. Whenever such a piece could depend
+ * on a non-ASCII char, the piece is left to the regex, so the pieces are exactly the same as those of the regex.
+ * All other patterns are always matched by the regex.
+ */
+final class PiecePattern {
+
+	/**
+	 * The pattern of r50k_base, p50k_base and p50k_edit.
+	 */
+	static final String GPT2_PATTERN = "'s|'t|'re|'ve|'m|'ll|'d| ?\\p{L}+| ?\\p{N}+| ?[^\\s\\p{L}\\p{N}]+|\\s+(?!\\S)|\\s+";
+
+	/**
+	 * The pattern of cl100k_base.
+	 */
+	static final String CL100K_PATTERN = "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+";
+
+	static final int LETTER = 1;
+	static final int NUMBER = 2;
+	static final int WHITESPACE = 4;
+	static final int NEWLINE = 8;
+	static final int OTHER = 16;
+	static final int NON_ASCII = 32;
+	static final int END = 64;
+
+	private final Pattern pattern;
+	private final byte[] asciiClasses;
+	private final CharClassifier classifier;
+	private final boolean cl100k;
+
+	private PiecePattern(final Pattern pattern, final byte[] asciiClasses, final boolean cl100k) {
+		this.pattern = pattern;
+		this.asciiClasses = asciiClasses;
+		this.classifier = asciiClasses != null ? CharClassifier.of(asciiClasses) : null;
+		this.cl100k = cl100k;
+	}
+
+	/**
+	 * Creates a piece pattern for the given regex. The ASCII fast path is only used if the regex is one of the
+	 * patterns of the predefined encodings.
+	 *
+	 * @param pattern the regex that splits a text into pieces
+	 * @return the piece pattern
+	 */
+	static PiecePattern of(final Pattern pattern) {
+		final boolean gpt2 = pattern.pattern().equals(GPT2_PATTERN);
+		final boolean cl100k = pattern.pattern().equals(CL100K_PATTERN);
+		return new PiecePattern(pattern, gpt2 || cl100k ? asciiClasses(pattern.flags()) : null, cl100k);
+	}
+
+	/*
+	 * Classifies the ASCII chars with the same flags as the regex, since e.g. \s depends on whether the regex was
+	 * compiled with UNICODE_CHARACTER_CLASS.
+	 */
+	private static byte[] asciiClasses(final int flags) {
+		final Pattern letter = Pattern.compile("\\p{L}", flags);
+		final Pattern number = Pattern.compile("\\p{N}", flags);
+		final Pattern whitespace = Pattern.compile("\\s", flags);
+		final byte[] classes = new byte[128];
+		for (char c = 0; c < classes.length; c++) {
+			final String text = String.valueOf(c);
+			if (letter.matcher(text).matches()) {
+				classes[c] = LETTER;
+			} else if (number.matcher(text).matches()) {
+				classes[c] = NUMBER;
+			} else if (whitespace.matcher(text).matches()) {
+				classes[c] = (byte) (c == '\r' || c == '\n' ? WHITESPACE | NEWLINE : WHITESPACE);
+			} else {
+				classes[c] = OTHER;
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * Returns the regex of this pattern.
+	 *
+	 * @return the regex
+	 */
+	Pattern regex() {
+		return pattern;
+	}
+
+	/**
+	 * Returns whether pieces starting at ASCII chars are matched without the regex.
+	 *
+	 * @return true if this pattern has an ASCII fast path
+	 */
+	boolean hasAsciiFastPath() {
+		return classifier != null;
+	}
+
+	/**
+	 * Creates a matcher that splits the given text into pieces.
+	 *
+	 * @param text the text to split
+	 * @return the matcher
+	 */
+	PieceMatcher matcher(final CharSequence text) {
+		return new PieceMatcher(this, pattern.matcher(text), text);
+	}
+
+	/**
+	 * Returns a lower bound of the number of pieces of the given text, without matching the pieces. It stops counting
+	 * as soon as the bound exceeds the given limit.
+	 * <p>
+	 * In the patterns of the predefined encodings, every piece with a letter ends with a letter, every piece with a
+	 * number ends with a number, and no piece contains both. So every maximal run of letters or numbers ends a
+	 * different piece. For all other patterns, the bound is 0.
+	 *
+	 * @param text  the text to split
+	 * @param limit the bound above which counting stops
+	 * @return the number of runs of letters or numbers, or a number above the limit
+	 */
+	int minimumPieceCount(final CharSequence text, final int limit) {
+		if (asciiClasses == null) {
+			return 0;
+		}
+
+		int runs = 0;
+		int previousClass = 0;
+		final int length = text.length();
+		for (int i = 0; i < length; i++) {
+			final char c = text.charAt(i);
+			final int charClass;
+			if (c < 128) {
+				charClass = asciiClasses[c] & (LETTER | NUMBER);
+			} else {
+				final int codePoint = Character.codePointAt(text, i);
+				charClass = Character.isLetter(codePoint) ? LETTER : isNumber(codePoint) ? NUMBER : 0;
+				i += Character.charCount(codePoint) - 1;
+			}
+
+			if (charClass != previousClass) {
+				if (charClass != 0 && ++runs > limit) {
+					return runs;
+				}
+				previousClass = charClass;
+			}
+		}
+		return runs;
+	}
+
+	// The code points of \p{N}
+	private static boolean isNumber(final int codePoint) {
+		final int type = Character.getType(codePoint);
+		return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+	}
+
+	CharClassifier classifier() {
+		return classifier;
+	}
+
+	boolean isCl100k() {
+		return cl100k;
+	}
+}
@@ -0,0 +1,33 @@
+package com.knuddels.jtokkit;
+
+/**
+ * Finds the next merge in the merge loop of {@link GptBytePairEncoding}, which is the one with the lowest rank.
+ * <p>
+ * Java 8 has no API to process many ints at once, so this implementation scans one rank at a time. The
+ * multi-release variant of this class for Java 21 and newer scans a whole vector of ranks at once with the Vector
+ * API, if the {@code jdk.incubator.vector} module is present at runtime.
+ */
+final class RankArrays {
+
+	/**
+	 * Returns the index of the lowest rank, or the index of the first one if several ranks are the lowest.
+	 *
+	 * @param ranks  the ranks
+	 * @param length the number of ranks to scan
+	 * @return the index of the lowest rank, or 0 if the length is 0
+	 */
+	static int indexOfMinimum(final int[] ranks, final int length) {
+		int minIndex = 0;
+		int min = Integer.MAX_VALUE;
+		for (int i = 0; i < length; i++) {
+			if (ranks[i] < min) {
+				min = ranks[i];
+				minIndex = i;
+			}
+		}
+		return minIndex;
+	}
+
+	private RankArrays() {
+	}
+}
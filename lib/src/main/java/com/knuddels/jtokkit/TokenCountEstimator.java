@@ -0,0 +1,381 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.TokenCountEstimate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
+
+/**
+ * Estimates the number of tokens of a text from its pieces, without encoding them.
+ * <p>
+ * Every piece is at least one token. How many more tokens a piece takes is estimated from statistics of the
+ * vocabulary:
+ * <ul>
+ *     <li>runs of ASCII letters: the probability of a token boundary between every two letters. Letter pairs that
+ *     occur in many of the frequent tokens rarely end up in different tokens, while rare pairs, e.g. in random
+ *     strings, usually do</li>
+ *     <li>runs of a single repeated char: the number of tokens that the encoding splits a sample run of this char
+ *     into</li>
+ *     <li>other ASCII pieces, i.e. numbers, punctuation and whitespace: pieces up to the median length of the
+ *     tokens of their kind are one token, every byte beyond adds a fraction of a token, according to the average
+ *     length of the frequent tokens of their kind</li>
+ *     <li>pieces with non-ASCII chars: every char that is a token by itself adds a fraction of a token, according
+ *     to the average number of chars of the frequent tokens of its UTF-8 length, while other chars add as many
+ *     tokens as the encoding splits a sample of such chars into</li>
+ * </ul>
+ * The statistics are computed once per vocabulary. Estimating a text then only splits it into pieces and looks at
+ * their chars, without looking up or merging any of them.
+ * <p>
+ * Every piece is at least one token, so the number of pieces is the lower bound of the confidence interval. Its upper
+ * bound widens the estimated number of additional tokens, plus a margin for the pieces that unexpectedly take one more
+ * token.
+ */
+final class TokenCountEstimator {
+
+	/*
+	 * The relative error of the estimated additional tokens, and the number of standard deviations of the margin, that
+	 * the upper bound allows. They were chosen so that the interval contains the exact count of most texts of the test
+	 * resources and the generated benchmark corpus; texts of made up words, which look like words to the letter
+	 * statistics but take more tokens, fall outside of it.
+	 */
+	private static final double UPPER_ERROR = 1.0;
+	private static final double MARGIN_DEVIATIONS = 3;
+
+	private static final int LETTERS = 0;
+	private static final int DIGITS = 1;
+	private static final int PUNCTUATION = 2;
+	private static final int WHITESPACE = 3;
+	private static final int ASCII_KINDS = 4;
+
+	/*
+	 * The tokens with the lowest ranks are the most frequent ones, so their lengths resemble those of the tokens of
+	 * actual texts more than the lengths of all tokens.
+	 */
+	private static final int FREQUENT_TOKENS_DIVISOR = 5;
+	// Scales the number of frequent tokens that contain a letter pair to the odds that the pair is not split
+	private static final double LETTER_PAIR_ODDS = 0.25;
+	private static final int PROBABILITY_SCALE = 255;
+	private static final int MIN_REPEATED_RUN = 4;
+	private static final int SAMPLED_RUN_LENGTH = 256;
+
+	/*
+	 * Ranges of chars with two, three and four UTF-8 bytes that are sampled to find out how many tokens the chars
+	 * that are not a token by themselves take: Latin, Cyrillic and Arabic letters, CJK ideographs, Devanagari and
+	 * Hangul, and emoji.
+	 */
+	private static final int[][] SAMPLED_RANGES = {
+			{0x00C0, 0x024F, 0x0400, 0x04FF, 0x0600, 0x06FF},
+			{0x4E00, 0x9FFF, 0x0900, 0x097F, 0xAC00, 0xD7A3},
+			{0x1F300, 0x1F5FF, 0x1F900, 0x1F9FF}
+	};
+	private static final int SAMPLES_PER_RANGE = 128;
+
+	private final PiecePattern pattern;
+	private final byte[] letterBoundaryProbabilities;
+	private final double[] tokensPerRepeatedChar;
+	private final int[] singleTokenLengths;
+	private final double[] bytesPerToken;
+	private final long[] singleCharTokens;
+	// Indexed by the number of UTF-8 bytes of a char minus two
+	private final double[] tokensPerSingleCharToken;
+	private final double[] tokensPerOtherChar;
+
+	private TokenCountEstimator(
+			final PiecePattern pattern,
+			final byte[] letterBoundaryProbabilities,
+			final double[] tokensPerRepeatedChar,
+			final int[] singleTokenLengths,
+			final double[] bytesPerToken,
+			final long[] singleCharTokens,
+			final double[] tokensPerSingleCharToken,
+			final double[] tokensPerOtherChar
+	) {
+		this.pattern = pattern;
+		this.letterBoundaryProbabilities = letterBoundaryProbabilities;
+		this.tokensPerRepeatedChar = tokensPerRepeatedChar;
+		this.singleTokenLengths = singleTokenLengths;
+		this.bytesPerToken = bytesPerToken;
+		this.singleCharTokens = singleCharTokens;
+		this.tokensPerSingleCharToken = tokensPerSingleCharToken;
+		this.tokensPerOtherChar = tokensPerOtherChar;
+	}
+
+	/**
+	 * Creates an estimator from the statistics of the given vocabulary.
+	 *
+	 * @param vocabulary the vocabulary of the mergeable ranks
+	 * @param pattern    the pattern that splits texts into pieces
+	 * @param tokenCount the number of tokens that the encoding of the vocabulary splits the given bytes into
+	 * @return the estimator
+	 */
+	static TokenCountEstimator of(final TokenVocabulary vocabulary, final PiecePattern pattern, final ToIntFunction<byte[]> tokenCount) {
+		final int[] letterPairCounts = new int[128 * 128];
+		final int[][] asciiLengthCounts = new int[ASCII_KINDS][Byte.MAX_VALUE + 1];
+		final long[] frequentAsciiBytes = new long[ASCII_KINDS];
+		final int[] frequentAsciiTokens = new int[ASCII_KINDS];
+		final long[] frequentChars = new long[SAMPLED_RANGES.length];
+		final int[] frequentCharTokens = new int[SAMPLED_RANGES.length];
+		final long[] singleCharTokens = new long[(Character.MAX_VALUE + 1) / Long.SIZE];
+		final int frequentTokens = vocabulary.size() / FREQUENT_TOKENS_DIVISOR;
+		int token = 0;
+		for (int slot = 0; slot < vocabulary.slotCount(); slot++) {
+			final int end = vocabulary.offset(slot + 1);
+			int start = vocabulary.offset(slot);
+			if (start == end) {
+				// The empty slot of a gap in the ranks
+				continue;
+			}
+			final boolean frequent = token++ < frequentTokens;
+
+			// Like the pieces, many tokens start with a space that does not belong to the rest of the token
+			if (end - start > 1 && vocabulary.byteAt(start) == ' ') {
+				start++;
+			}
+
+			final int asciiKind = asciiTokenKind(vocabulary, start, end);
+			if (asciiKind >= 0) {
+				asciiLengthCounts[asciiKind][Math.min(end - start, Byte.MAX_VALUE)]++;
+				if (frequent) {
+					frequentAsciiBytes[asciiKind] += end - start;
+					frequentAsciiTokens[asciiKind]++;
+					for (int i = start; i + 1 < end; i++) {
+						letterPairCounts[vocabulary.byteAt(i) << 7 | vocabulary.byteAt(i + 1)]++;
+					}
+				}
+				continue;
+			}
+
+			final String chars = decodeCompleteChars(vocabulary, start, end);
+			if (chars != null) {
+				final int charBytes = chars.getBytes(StandardCharsets.UTF_8).length / chars.codePointCount(0, chars.length());
+				if (chars.length() == 1) {
+					final char c = chars.charAt(0);
+					singleCharTokens[c >>> 6] |= 1L << c;
+				}
+				if (frequent && charBytes >= 2 && charBytes <= 4) {
+					frequentChars[charBytes - 2] += chars.codePointCount(0, chars.length());
+					frequentCharTokens[charBytes - 2]++;
+				}
+			}
+		}
+
+		final byte[] letterBoundaryProbabilities = new byte[letterPairCounts.length];
+		for (int pair = 0; pair < letterPairCounts.length; pair++) {
+			final double probability = 1 / (1 + letterPairCounts[pair] * LETTER_PAIR_ODDS);
+			letterBoundaryProbabilities[pair] = (byte) Math.round(probability * PROBABILITY_SCALE);
+		}
+
+		final int[] singleTokenLengths = new int[ASCII_KINDS];
+		final double[] bytesPerToken = new double[ASCII_KINDS];
+		for (int kind = 0; kind < ASCII_KINDS; kind++) {
+			singleTokenLengths[kind] = medianLength(asciiLengthCounts[kind]);
+			bytesPerToken[kind] = frequentAsciiTokens[kind] == 0 ? 1 : Math.max(1, (double) frequentAsciiBytes[kind] / frequentAsciiTokens[kind]);
+		}
+
+		final double[] tokensPerRepeatedChar = new double[128];
+		final byte[] run = new byte[SAMPLED_RUN_LENGTH];
+		for (int c = 0; c < tokensPerRepeatedChar.length; c++) {
+			Arrays.fill(run, (byte) c);
+			tokensPerRepeatedChar[c] = (double) tokenCount.applyAsInt(run) / run.length;
+		}
+
+		final double[] tokensPerSingleCharToken = new double[SAMPLED_RANGES.length];
+		final double[] tokensPerOtherChar = new double[SAMPLED_RANGES.length];
+		for (int i = 0; i < SAMPLED_RANGES.length; i++) {
+			tokensPerSingleCharToken[i] = frequentCharTokens[i] == 0 ? 1 : (double) frequentCharTokens[i] / frequentChars[i];
+			tokensPerOtherChar[i] = sampleTokensPerChar(SAMPLED_RANGES[i], singleCharTokens, tokenCount);
+		}
+
+		return new TokenCountEstimator(
+				pattern,
+				letterBoundaryProbabilities,
+				tokensPerRepeatedChar,
+				singleTokenLengths,
+				bytesPerToken,
+				singleCharTokens,
+				tokensPerSingleCharToken,
+				tokensPerOtherChar
+		);
+	}
+
+	/**
+	 * Estimates the number of tokens of the given text.
+	 *
+	 * @param text the text to estimate the number of tokens of
+	 * @return the estimate and its confidence interval
+	 */
+	TokenCountEstimate estimate(final CharSequence text) {
+		final PieceMatcher matcher = pattern.matcher(text);
+		int pieces = 0;
+		long maxTokens = 0;
+		double additionalTokens = 0;
+		while (matcher.find()) {
+			final int start = matcher.start();
+			final int end = matcher.end();
+			final char first = text.charAt(start);
+			final char last = text.charAt(end - 1);
+			// A leading space or punctuation char of a letter run, which is usually merged with the run
+			final int bodyStart = end - start > 1 && first < 0x80 && asciiKind(first) != asciiKind(text.charAt(start + 1)) ? start + 1 : start;
+			int bytes = 0;
+			int asciiChars = 0;
+			int letterBoundaries = 0;
+			double charTokens = 0;
+			boolean ascii = true;
+			boolean repeated = true;
+			for (int i = start; i < end; i++) {
+				final char c = text.charAt(i);
+				if (c < 0x80) {
+					bytes++;
+					asciiChars++;
+					if (i > start) {
+						final char previous = text.charAt(i - 1);
+						// The first char may differ from the rest of a run, e.g. the line break before an indentation
+						repeated &= i == start + 1 || c == previous;
+						if (i > bodyStart && previous < 0x80) {
+							letterBoundaries += letterBoundaryProbabilities[previous << 7 | c] & 0xFF;
+						}
+					}
+					continue;
+				}
+
+				ascii = false;
+				final int charBytes;
+				if (c < 0x800) {
+					charBytes = 2;
+				} else if (!Character.isSurrogate(c)) {
+					charBytes = 3;
+				} else {
+					// The two chars of a surrogate pair take four bytes together
+					bytes += 2;
+					charTokens += Character.isLowSurrogate(c) ? 0 : tokensPerOtherChar[2];
+					continue;
+				}
+				bytes += charBytes;
+				charTokens += (singleCharTokens[c >>> 6] & 1L << c) != 0 ? tokensPerSingleCharToken[charBytes - 2] : tokensPerOtherChar[charBytes - 2];
+			}
+
+			pieces++;
+			maxTokens += bytes;
+			if (!ascii) {
+				// The ASCII chars of mixed pieces, e.g. of words with accents, are mostly merged with the other chars
+				additionalTokens += Math.max(0, charTokens + asciiChars / bytesPerToken[LETTERS] - 1);
+			} else if (repeated && end - start > MIN_REPEATED_RUN) {
+				final int runStart = first == last ? start : start + 1;
+				additionalTokens += Math.max(0, (end - runStart) * tokensPerRepeatedChar[last] - 1);
+			} else {
+				final int kind = asciiKind(last);
+				if (kind == LETTERS) {
+					additionalTokens += (double) letterBoundaries / PROBABILITY_SCALE;
+				} else {
+					additionalTokens += Math.max(0, (end - bodyStart - singleTokenLengths[kind]) / bytesPerToken[kind]);
+				}
+			}
+		}
+
+		// Every piece could take another token with a small probability, like the trials of a binomial distribution
+		final double margin = MARGIN_DEVIATIONS * Math.sqrt(pieces * 0.25);
+		return new TokenCountEstimate(
+				clamp(pieces + additionalTokens, pieces, maxTokens),
+				pieces,
+				clamp(pieces + additionalTokens * (1 + UPPER_ERROR) + margin, pieces, maxTokens)
+		);
+	}
+
+	private static int clamp(final double tokens, final int min, final long max) {
+		return (int) Math.max(min, Math.min(max, Math.round(tokens)));
+	}
+
+	/*
+	 * Returns the kind of the ASCII token between start and end by its last char, or -1 if it contains non-ASCII
+	 * bytes.
+	 */
+	private static int asciiTokenKind(final TokenVocabulary vocabulary, final int start, final int end) {
+		for (int i = start; i < end; i++) {
+			if (vocabulary.byteAt(i) < 0) {
+				return -1;
+			}
+		}
+		return asciiKind((char) vocabulary.byteAt(end - 1));
+	}
+
+	private static int asciiKind(final char c) {
+		if ((c | 0x20) >= 'a' && (c | 0x20) <= 'z') {
+			return LETTERS;
+		} else if (c >= '0' && c <= '9') {
+			return DIGITS;
+		} else if (c == ' ' || (c >= '\t' && c <= '\r')) {
+			return WHITESPACE;
+		}
+		return PUNCTUATION;
+	}
+
+	/*
+	 * Returns the chars of the token between start and end if it consists of complete non-ASCII chars of the same
+	 * UTF-8 length, or null otherwise.
+	 */
+	private static String decodeCompleteChars(final TokenVocabulary vocabulary, final int start, final int end) {
+		final int charBytes = utf8CharLength(vocabulary.byteAt(start));
+		if (charBytes == 0 || (end - start) % charBytes != 0) {
+			return null;
+		}
+		for (int i = start; i < end; i += charBytes) {
+			if (utf8CharLength(vocabulary.byteAt(i)) != charBytes) {
+				return null;
+			}
+			for (int j = i + 1; j < i + charBytes; j++) {
+				if ((vocabulary.byteAt(j) & 0xC0) != 0x80) {
+					return null;
+				}
+			}
+		}
+		return new String(vocabulary.copyOfArena(start, end), StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * Returns the number of bytes of the non-ASCII char that starts with the given byte, or 0 if it does not start a
+	 * non-ASCII char.
+	 */
+	private static int utf8CharLength(final byte lead) {
+		if ((lead & 0xE0) == 0xC0) {
+			return 2;
+		} else if ((lead & 0xF0) == 0xE0) {
+			return 3;
+		} else if ((lead & 0xF8) == 0xF0) {
+			return 4;
+		}
+		return 0;
+	}
+
+	private static double sampleTokensPerChar(final int[] ranges, final long[] singleCharTokens, final ToIntFunction<byte[]> tokenCount) {
+		long tokens = 0;
+		int chars = 0;
+		for (int range = 0; range < ranges.length; range += 2) {
+			final int stride = Math.max(1, (ranges[range + 1] - ranges[range] + 1) / SAMPLES_PER_RANGE);
+			for (int codePoint = ranges[range]; codePoint <= ranges[range + 1]; codePoint += stride) {
+				if (codePoint <= Character.MAX_VALUE && (singleCharTokens[codePoint >>> 6] & 1L << codePoint) != 0) {
+					continue;
+				}
+				tokens += tokenCount.applyAsInt(new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8));
+				chars++;
+			}
+		}
+		return chars == 0 ? 1 : (double) tokens / chars;
+	}
+
+	private static int medianLength(final int[] lengthCounts) {
+		int tokens = 0;
+		for (final int count : lengthCounts) {
+			tokens += count;
+		}
+
+		int seen = 0;
+		for (int length = 0; length < lengthCounts.length; length++) {
+			seen += lengthCounts[length];
+			if (tokens > 0 && seen * 2 >= tokens) {
+				return length;
+			}
+		}
+		return 1;
+	}
+}
@@ -7,14 +7,21 @@ import java.util.function.Function;
  * A TokenEncoder is used to encode and decode tokens. It is initialized with a map
  * that contains the decoded tokens as keys and the encoded tokens as values. The
  * TokenEncoder can then be used to encode and decode tokens.
+ * <p>
+ * The map for decoding is only built when a token is decoded for the first time, so
+ * encoders that are never used for decoding only hold one map.
  *
  * @param <K> the type of the decoded tokens
  * @param <V> the type of the encoded tokens
  */
 final class TokenEncoder<K, V> {
 
-	private final Map<K, V> decodedToEncoded = new HashMap<>();
-	private final Map<V, K> encodedToDecoded = new HashMap<>();
+	private final Map<K, V> decodedToEncoded;
+	/*
+	 * Built on the first decoding. Concurrent first decodings may each build an equal map, but the map is only
+	 * published through this volatile field once it is complete, so reading it needs no lock.
+	 */
+	private volatile Map<V, K> encodedToDecoded;
 
 	/**
 	 * Creates a new TokenEncoder with the given input map. The keys of the map are
@@ -36,11 +43,9 @@ final class TokenEncoder<K, V> {
 	 * @param keyMapper the key mapper
 	 */
 	public <T> TokenEncoder(final Map<T, V> input, final Function<T, K> keyMapper) {
+		decodedToEncoded = new HashMap<>(capacityFor(input.size()));
 		for (final Map.Entry<T, V> entry : input.entrySet()) {
-			final K key = keyMapper.apply(entry.getKey());
-			final V value = entry.getValue();
-			decodedToEncoded.put(key, value);
-			encodedToDecoded.put(value, key);
+			decodedToEncoded.put(keyMapper.apply(entry.getKey()), entry.getValue());
 		}
 	}
 
@@ -89,6 +94,14 @@ final class TokenEncoder<K, V> {
 	 * @return the decoded token or an empty optional
 	 */
 	public Optional<K> decodeIfPresent(final V encodedToken) {
+		Map<V, K> encodedToDecoded = this.encodedToDecoded;
+		if (encodedToDecoded == null) {
+			encodedToDecoded = new HashMap<>(capacityFor(decodedToEncoded.size()));
+			for (final Map.Entry<K, V> entry : decodedToEncoded.entrySet()) {
+				encodedToDecoded.put(entry.getValue(), entry.getKey());
+			}
+			this.encodedToDecoded = encodedToDecoded;
+		}
 		return Optional.ofNullable(encodedToDecoded.get(encodedToken));
 	}
 
@@ -100,4 +113,9 @@ final class TokenEncoder<K, V> {
 	public Set<K> getDecodedTokens() {
 		return Collections.unmodifiableSet(decodedToEncoded.keySet());
 	}
+
+	private static int capacityFor(final int size) {
+		// Large enough for all entries at the default load factor, so that the map never has to grow
+		return size / 3 * 4 + 4;
+	}
 }
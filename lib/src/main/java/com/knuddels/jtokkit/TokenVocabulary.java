@@ -0,0 +1,648 @@
+package com.knuddels.jtokkit;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * The mergeable ranks of a byte pair encoding in a flat, immutable representation.
+ * <p>
+ * Instead of a map entry with a wrapper object, a byte array and a boxed rank per token, all tokens are stored in a
+ * few flat tables:
+ * <ul>
+ *     <li>arena: the bytes of all tokens, concatenated in the order of their ranks</li>
+ *     <li>offsets: the start of each token in the arena, plus the end of the last token</li>
+ *     <li>ranks: the rank of each token, unless every token is in the slot of its rank. Ranks with only a few gaps,
+ *     e.g. where a special token was left out, are stored this way by leaving the slots of the gaps empty</li>
+ *     <li>displacements and index: a {@link MinimalPerfectHash minimal perfect hash} from the token bytes to their
+ *     slot, i.e. position in the offsets</li>
+ *     <li>pair displacements and pair words: a minimal perfect hash from two token ids to the id of the token that
+ *     is their concatenation, for every way to split a token into two other tokens. Each entry holds the three ids
+ *     with just as many bits as the largest id needs, packed into consecutive longs</li>
+ *     <li>pair filter: a {@link BlockedBloomFilter blocked Bloom filter} over the keys of the pair table, which
+ *     answers most lookups of pairs that can not be merged without probing the pair table</li>
+ * </ul>
+ * Looking up a slice of a byte array therefore takes one hash computation, one probe of the index and one
+ * comparison of the bytes, and neither allocates nor chases pointers. This class implements the
+ * lookups, while its subclasses decide where the tables are stored: {@link ArrayTokenVocabulary} keeps them in
+ * arrays on the heap, {@link MappedTokenVocabulary} in a memory mapped file.
+ */
+abstract class TokenVocabulary {
+
+	/**
+	 * Returned by {@link #getRank(byte[], int, int)} for byte sequences that are not in the vocabulary. It is larger
+	 * than any real rank, so it can be used as the rank of pairs that can not be merged.
+	 */
+	static final int NO_RANK = Integer.MAX_VALUE;
+
+	/*
+	 * The hash functions determine the layout of the index, so they are part of the file format and changing them
+	 * requires a new format version. Only the seed of the hash of the tokens is stored in the header.
+	 */
+	static final int FORMAT_MAGIC = 0x4A544B56;
+	static final int FORMAT_VERSION = 4;
+	static final int HEADER_LENGTH = 12 * Integer.BYTES;
+
+	/*
+	 * A pair entry packs the ids of the left token, the right token and their concatenation into at most one long, so
+	 * the pair table only supports ids below 2^21.
+	 */
+	static final int MAX_PAIR_ID_BITS = 21;
+
+	private static final long DEFAULT_HASH_MULTIPLIER = 0x100000001B3L;
+	private static final long[] DEFAULT_HASH_MULTIPLIER_POWERS = powers(DEFAULT_HASH_MULTIPLIER);
+
+	private final int hashSeed;
+	private final long hashMultiplier;
+	private final long[] hashMultiplierPowers;
+
+	/**
+	 * Creates a new vocabulary whose tokens are hashed with the given seed.
+	 *
+	 * @param hashSeed the seed of the hash function, see {@link #hashMultiplier(int)}
+	 */
+	TokenVocabulary(final int hashSeed) {
+		this.hashSeed = hashSeed;
+		this.hashMultiplier = hashMultiplier(hashSeed);
+		this.hashMultiplierPowers = hashSeed == 0 ? DEFAULT_HASH_MULTIPLIER_POWERS : powers(hashMultiplier);
+	}
+
+	/**
+	 * Creates a new vocabulary on the heap from the given mergeable ranks.
+	 *
+	 * @param mergeableRanks the tokens and their ranks
+	 * @return the new vocabulary
+	 */
+	static TokenVocabulary from(final Map<byte[], Integer> mergeableRanks) {
+		return from(MergeableRanks.of(mergeableRanks));
+	}
+
+	/**
+	 * Creates a new vocabulary on the heap from the given mergeable ranks.
+	 *
+	 * @param mergeableRanks the tokens and their ranks
+	 * @return the new vocabulary
+	 */
+	static TokenVocabulary from(final MergeableRanks mergeableRanks) {
+		return ArrayTokenVocabulary.from(mergeableRanks);
+	}
+
+	/**
+	 * Returns the number of tokens in this vocabulary.
+	 *
+	 * @return the number of tokens
+	 */
+	abstract int size();
+
+	/**
+	 * Returns the seed of the hash function of the tokens, which is 0 unless two tokens collided with the default
+	 * hash function.
+	 *
+	 * @return the seed
+	 */
+	final int hashSeed() {
+		return hashSeed;
+	}
+
+	/**
+	 * Returns the number of slots, which is larger than the number of tokens if the slots of gaps in the ranks are
+	 * left empty.
+	 */
+	abstract int slotCount();
+
+	abstract int bucketCount();
+
+	abstract int displacement(int bucket);
+
+	/**
+	 * Returns the number of entries of the index, which is the number of distinct tokens.
+	 */
+	abstract int indexLength();
+
+	/**
+	 * Returns the slot of the token at the given position of the minimal perfect hash.
+	 */
+	abstract int indexEntry(int position);
+
+	/**
+	 * Returns the number of bits of each id in a pair entry, or 0 if this vocabulary has no pair table because its
+	 * ids do not fit into a pair entry.
+	 */
+	abstract int pairIdBits();
+
+	abstract int pairBucketCount();
+
+	abstract int pairDisplacement(int bucket);
+
+	abstract int pairCount();
+
+	abstract long pairWord(int index);
+
+	abstract long pairFilterWord(int index);
+
+	abstract int offset(int slot);
+
+	abstract boolean hasDenseRanks();
+
+	abstract int rankAt(int slot);
+
+	abstract boolean matches(int tokenStart, byte[] bytes, int start, int length);
+
+	abstract byte byteAt(int arenaIndex);
+
+	abstract byte[] copyOfArena(int start, int end);
+
+	abstract void copyArena(int start, int end, byte[] out, int offset);
+
+	/**
+	 * Returns an estimate of the number of bytes that this vocabulary retains on the heap, i.e. that would become
+	 * garbage if it was no longer referenced.
+	 *
+	 * @return the estimated number of bytes
+	 */
+	abstract long heapFootprint();
+
+	/**
+	 * Returns the number of bytes of an array with the given number of elements, including the array header and the
+	 * padding to a multiple of 8 bytes.
+	 *
+	 * @param length       the number of elements
+	 * @param elementBytes the number of bytes per element
+	 * @return the number of bytes of the array
+	 */
+	static long arrayFootprint(final int length, final int elementBytes) {
+		return 16 + (((long) length * elementBytes + 7) & ~7L);
+	}
+
+	/**
+	 * Returns the rank of the token with the bytes from {@code start} (inclusive) to {@code end} (exclusive) of the
+	 * given array.
+	 *
+	 * @param bytes the array containing the token
+	 * @param start the start of the token in the array
+	 * @param end   the end of the token in the array
+	 * @return the rank of the token, or {@link #NO_RANK} if it is not in this vocabulary
+	 */
+	final int getRank(final byte[] bytes, final int start, final int end) {
+		return getRank(bytes, start, end, hash(bytes, start, end));
+	}
+
+	/**
+	 * Returns the rank of the token with the bytes from {@code start} (inclusive) to {@code end} (exclusive) of the
+	 * given array, whose {@link #hash(byte[], int, int) hash} is already known, e.g. from
+	 * {@link #hash(long[], int, int)}.
+	 *
+	 * @param bytes the array containing the token
+	 * @param start the start of the token in the array
+	 * @param end   the end of the token in the array
+	 * @param hash  the hash of the token
+	 * @return the rank of the token, or {@link #NO_RANK} if it is not in this vocabulary
+	 */
+	final int getRank(final byte[] bytes, final int start, final int end, final long hash) {
+		final int indexLength = indexLength();
+		if (indexLength == 0) {
+			return NO_RANK;
+		}
+
+		final int displacement = displacement(MinimalPerfectHash.bucket(hash, bucketCount()));
+		final int slot = indexEntry(MinimalPerfectHash.position(hash, displacement, indexLength));
+
+		// The perfect hash maps unknown byte sequences to an arbitrary token, so we have to compare the bytes
+		final int length = end - start;
+		final int tokenStart = offset(slot);
+		if (offset(slot + 1) - tokenStart == length && matches(tokenStart, bytes, start, length)) {
+			return rankAt(slot);
+		}
+		return NO_RANK;
+	}
+
+	/**
+	 * Returns the rank of the token with the UTF-8 encoding of the chars from {@code start} (inclusive) to
+	 * {@code end} (exclusive) of the given text. This is the same as {@link #getRank(byte[], int, int)} of
+	 * {@code text.subSequence(start, end).toString().getBytes(UTF_8)}, including the replacement of unpaired
+	 * surrogates by {@code '?'}, but the chars are encoded on the fly while hashing and comparing them, so that
+	 * looking up a piece of the input neither copies nor allocates anything.
+	 *
+	 * @param text  the text containing the token
+	 * @param start the start of the token in the text
+	 * @param end   the end of the token in the text
+	 * @return the rank of the token, or {@link #NO_RANK} if it is not in this vocabulary
+	 */
+	final int getRank(final CharSequence text, final int start, final int end) {
+		final int indexLength = indexLength();
+		if (indexLength == 0) {
+			return NO_RANK;
+		}
+
+		long hash = 0;
+		int length = 0;
+		for (int i = start; i < end; ) {
+			final char c = text.charAt(i);
+			if (c < 0x80) {
+				hash = hash * hashMultiplier + c + 1;
+				length++;
+				i++;
+				continue;
+			}
+
+			final long encoded = encodeUtf8(text, i, end);
+			final int byteCount = (int) (encoded >>> 32);
+			for (int b = 0; b < byteCount; b++) {
+				hash = hash * hashMultiplier + ((encoded >>> (8 * b)) & 0xFF) + 1;
+			}
+			length += byteCount;
+			i += byteCount == 4 ? 2 : 1;
+		}
+
+		final int displacement = displacement(MinimalPerfectHash.bucket(hash, bucketCount()));
+		final int slot = indexEntry(MinimalPerfectHash.position(hash, displacement, indexLength));
+		final int tokenStart = offset(slot);
+		if (offset(slot + 1) - tokenStart != length) {
+			return NO_RANK;
+		}
+
+		int arenaIndex = tokenStart;
+		for (int i = start; i < end; ) {
+			final char c = text.charAt(i);
+			if (c < 0x80) {
+				if (byteAt(arenaIndex++) != c) {
+					return NO_RANK;
+				}
+				i++;
+				continue;
+			}
+
+			final long encoded = encodeUtf8(text, i, end);
+			final int byteCount = (int) (encoded >>> 32);
+			for (int b = 0; b < byteCount; b++) {
+				if (byteAt(arenaIndex++) != (byte) (encoded >>> (8 * b))) {
+					return NO_RANK;
+				}
+			}
+			i += byteCount == 4 ? 2 : 1;
+		}
+		return rankAt(slot);
+	}
+
+	/**
+	 * Returns the number of bytes of the UTF-8 encoding of the chars from {@code start} (inclusive) to {@code end}
+	 * (exclusive) of the given text, as produced by {@link #getRank(CharSequence, int, int)}.
+	 *
+	 * @param text  the text
+	 * @param start the start of the chars in the text
+	 * @param end   the end of the chars in the text
+	 * @return the number of bytes
+	 */
+	static int utf8Length(final CharSequence text, final int start, final int end) {
+		int length = 0;
+		for (int i = start; i < end; ) {
+			final int byteCount = (int) (encodeUtf8(text, i, end) >>> 32);
+			length += byteCount;
+			i += byteCount == 4 ? 2 : 1;
+		}
+		return length;
+	}
+
+	/**
+	 * Writes the UTF-8 bytes of the chars from {@code start} (inclusive) to {@code end} (exclusive) of the given text
+	 * to the start of the given array, the same bytes as {@link #getRank(CharSequence, int, int)} looks up. The array
+	 * must have room for three bytes per char.
+	 *
+	 * @param text  the text
+	 * @param start the start of the chars in the text
+	 * @param end   the end of the chars in the text
+	 * @param out   the array to write the bytes to
+	 * @return the number of bytes written
+	 */
+	static int writeUtf8(final CharSequence text, final int start, final int end, final byte[] out) {
+		int length = 0;
+		for (int i = start; i < end; ) {
+			final long encoded = encodeUtf8(text, i, end);
+			final int byteCount = (int) (encoded >>> 32);
+			for (int b = 0; b < byteCount; b++) {
+				out[length++] = (byte) (encoded >>> (8 * b));
+			}
+			i += byteCount == 4 ? 2 : 1;
+		}
+		return length;
+	}
+
+	/*
+	 * Encodes the code point at the given index like String#getBytes(UTF_8), which replaces unpaired surrogates by
+	 * '?'. Returns the bytes in the low int, the first byte in the lowest bits, and their number in the high int. Only
+	 * surrogate pairs are encoded with four bytes.
+	 */
+	private static long encodeUtf8(final CharSequence text, final int index, final int end) {
+		final char c = text.charAt(index);
+		if (c < 0x80) {
+			return (1L << 32) | c;
+		} else if (c < 0x800) {
+			return (2L << 32) | (0xC0 | c >> 6) | (0x80 | c & 0x3F) << 8;
+		} else if (!Character.isSurrogate(c)) {
+			return (3L << 32) | (0xE0 | c >> 12) | (0x80 | c >> 6 & 0x3F) << 8 | (0x80 | c & 0x3F) << 16;
+		} else if (Character.isHighSurrogate(c) && index + 1 < end && Character.isLowSurrogate(text.charAt(index + 1))) {
+			final int codePoint = Character.toCodePoint(c, text.charAt(index + 1));
+			return (4L << 32) | ((0xF0 | codePoint >> 18)
+					| (0x80 | codePoint >> 12 & 0x3F) << 8
+					| (0x80 | codePoint >> 6 & 0x3F) << 16
+					| (long) (0x80 | codePoint & 0x3F) << 24);
+		}
+		return (1L << 32) | '?';
+	}
+
+	/**
+	 * Returns whether {@link #getPairRank(int, int)} can be used.
+	 *
+	 * @return true if this vocabulary has a pair table
+	 */
+	final boolean hasPairTable() {
+		return pairIdBits() > 0;
+	}
+
+	/**
+	 * Returns the rank of the token whose bytes are the bytes of the token with rank {@code left} followed by the
+	 * bytes of the token with rank {@code right}. This is the same as {@link #getRank(byte[], int, int)} of the
+	 * concatenated bytes, but without looking at any bytes.
+	 *
+	 * @param left  the rank of the left token
+	 * @param right the rank of the right token
+	 * @return the rank of the concatenation, or {@link #NO_RANK} if it is not in this vocabulary
+	 */
+	final int getPairRank(final int left, final int right) {
+		final int pairCount = pairCount();
+		final int idBits = pairIdBits();
+		if (pairCount == 0 || (left | right) >>> idBits != 0) {
+			return NO_RANK;
+		}
+
+		final long key = ((long) left << idBits) | right;
+		final long filterHash = BlockedBloomFilter.hash(key);
+		final long filterMask = BlockedBloomFilter.mask(filterHash);
+		if ((pairFilterWord(BlockedBloomFilter.word(filterHash, BlockedBloomFilter.wordCount(pairCount))) & filterMask) != filterMask) {
+			return NO_RANK;
+		}
+
+		final int displacement = pairDisplacement(MinimalPerfectHash.bucket(key, pairBucketCount()));
+		final long entry = pairEntry(MinimalPerfectHash.position(key, displacement, pairCount), idBits);
+		return (entry >>> idBits) == key ? (int) (entry & ((1L << idBits) - 1)) : NO_RANK;
+	}
+
+	private long pairEntry(final int position, final int idBits) {
+		final int entryBits = 3 * idBits;
+		final long bit = (long) position * entryBits;
+		final int word = (int) (bit >>> 6);
+		final int shift = (int) (bit & (Long.SIZE - 1));
+		long entry = pairWord(word) >>> shift;
+		if (shift + entryBits > Long.SIZE) {
+			entry |= pairWord(word + 1) << (Long.SIZE - shift);
+		}
+		return entry & ((1L << entryBits) - 1);
+	}
+
+	/**
+	 * Returns the number of longs needed to pack the given number of pair entries.
+	 *
+	 * @param pairCount the number of pair entries
+	 * @param idBits    the number of bits of each id
+	 * @return the number of longs
+	 */
+	static int pairWordCount(final int pairCount, final int idBits) {
+		return (int) (((long) pairCount * 3 * idBits + Long.SIZE - 1) / Long.SIZE);
+	}
+
+	/**
+	 * Returns a copy of the bytes of the token with the given rank.
+	 *
+	 * @param rank the rank of the token
+	 * @return the bytes of the token, or {@code null} if there is no token with this rank
+	 */
+	final byte[] getBytes(final int rank) {
+		final int slot = slotOf(rank);
+		if (slot < 0) {
+			return null;
+		}
+
+		return copyOfArena(offset(slot), offset(slot + 1));
+	}
+
+	/**
+	 * Copies the bytes of the token with the given rank to the given array, if they fit before the given limit.
+	 *
+	 * @param rank   the rank of the token
+	 * @param out    the array to copy the bytes to
+	 * @param offset the index of the first byte in the array
+	 * @param limit  the index after the last byte that may be written
+	 * @return the number of bytes of the token, whether they fit or not, or -1 if there is no token with this rank
+	 */
+	final int copyBytes(final int rank, final byte[] out, final int offset, final int limit) {
+		final int slot = slotOf(rank);
+		if (slot < 0) {
+			return -1;
+		}
+
+		final int start = offset(slot);
+		final int length = offset(slot + 1) - start;
+		if (length <= limit - offset) {
+			copyArena(start, start + length, out, offset);
+		}
+		return length;
+	}
+
+	/**
+	 * Copies the bytes of the token with the given rank to the given buffer, if they fit before the given limit. The
+	 * position of the buffer is left untouched.
+	 *
+	 * @param rank  the rank of the token
+	 * @param out   the buffer to copy the bytes to
+	 * @param index the index of the first byte in the buffer
+	 * @param limit the index after the last byte that may be written
+	 * @return the number of bytes of the token, whether they fit or not, or -1 if there is no token with this rank
+	 */
+	final int copyBytes(final int rank, final ByteBuffer out, final int index, final int limit) {
+		final int slot = slotOf(rank);
+		if (slot < 0) {
+			return -1;
+		}
+
+		final int start = offset(slot);
+		final int length = offset(slot + 1) - start;
+		if (length <= limit - index) {
+			for (int i = 0; i < length; i++) {
+				out.put(index + i, byteAt(start + i));
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Writes this vocabulary in the format read by {@link MappedTokenVocabulary}.
+	 *
+	 * @param out the stream to write to
+	 * @throws IOException if writing fails
+	 */
+	final void writeTo(final OutputStream out) throws IOException {
+		final DataOutputStream data = new DataOutputStream(out);
+		final int slotCount = slotCount();
+		data.writeInt(FORMAT_MAGIC);
+		data.writeInt(FORMAT_VERSION);
+		data.writeInt(size());
+		data.writeInt(slotCount);
+		data.writeInt(bucketCount());
+		data.writeInt(indexLength());
+		data.writeInt(hasDenseRanks() ? 1 : 0);
+		data.writeInt(offset(slotCount));
+		data.writeInt(pairBucketCount());
+		data.writeInt(pairCount());
+		data.writeInt(pairIdBits());
+		data.writeInt(hashSeed);
+		// The header is a multiple of eight bytes, so the pair words and the pair filter are aligned
+		for (int word = 0; word < pairWordCount(pairCount(), pairIdBits()); word++) {
+			data.writeLong(pairWord(word));
+		}
+		for (int word = 0; word < BlockedBloomFilter.wordCount(pairCount()); word++) {
+			data.writeLong(pairFilterWord(word));
+		}
+		for (int bucket = 0; bucket < bucketCount(); bucket++) {
+			data.writeInt(displacement(bucket));
+		}
+		for (int position = 0; position < indexLength(); position++) {
+			data.writeInt(indexEntry(position));
+		}
+		for (int bucket = 0; bucket < pairBucketCount(); bucket++) {
+			data.writeInt(pairDisplacement(bucket));
+		}
+		for (int slot = 0; slot <= slotCount; slot++) {
+			data.writeInt(offset(slot));
+		}
+		if (!hasDenseRanks()) {
+			for (int slot = 0; slot < slotCount; slot++) {
+				data.writeInt(rankAt(slot));
+			}
+		}
+		data.write(copyOfArena(0, offset(slotCount)));
+		data.flush();
+	}
+
+	private int slotOf(final int rank) {
+		if (hasDenseRanks()) {
+			// The slots of gaps in the ranks are empty
+			return rank >= 0 && rank < slotCount() && (slotCount() == size() || offset(rank + 1) > offset(rank)) ? rank : -1;
+		}
+
+		// The slots are sorted by rank
+		int low = 0;
+		int high = slotCount() - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			final int middleRank = rankAt(middle);
+			if (middleRank < rank) {
+				low = middle + 1;
+			} else if (middleRank > rank) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the multiplier of the polynomial hash with the given seed. Seed 0 uses the multiplier of FNV-1, any
+	 * other seed an odd multiplier derived from it, so that tokens which collide with one seed most likely do not
+	 * collide with the next.
+	 *
+	 * @param hashSeed the seed
+	 * @return the multiplier
+	 */
+	static long hashMultiplier(final int hashSeed) {
+		return hashSeed == 0 ? DEFAULT_HASH_MULTIPLIER : MinimalPerfectHash.mix(hashSeed) | 1;
+	}
+
+	/**
+	 * Returns the polynomial hash of the bytes from {@code start} (inclusive) to {@code end} (exclusive). Each byte is
+	 * offset by one, so that runs of zero bytes of different lengths do not collide.
+	 *
+	 * @param bytes the array containing the bytes
+	 * @param start the start of the bytes in the array
+	 * @param end   the end of the bytes in the array
+	 * @return the hash of the bytes
+	 */
+	final long hash(final byte[] bytes, final int start, final int end) {
+		return hash(hashMultiplier, bytes, start, end);
+	}
+
+	/**
+	 * Returns the polynomial hash of the bytes from {@code start} (inclusive) to {@code end} (exclusive) with the
+	 * given multiplier, which is the same as {@link #hash(byte[], int, int)} of a vocabulary with this multiplier.
+	 *
+	 * @param multiplier the multiplier, see {@link #hashMultiplier(int)}
+	 * @param bytes      the array containing the bytes
+	 * @param start      the start of the bytes in the array
+	 * @param end        the end of the bytes in the array
+	 * @return the hash of the bytes
+	 */
+	static long hash(final long multiplier, final byte[] bytes, final int start, final int end) {
+		long hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = hash * multiplier + (bytes[i] & 0xFF) + 1;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the hashes of all prefixes of the given bytes, i.e. the hash of the first {@code i} bytes at index
+	 * {@code i}. From these, {@link #hash(long[], int, int)} derives the hash of any slice without looking at its
+	 * bytes again.
+	 *
+	 * @param bytes the bytes
+	 * @return the prefix hashes, one more than there are bytes
+	 */
+	final long[] prefixHashes(final byte[] bytes) {
+		final long[] prefixHashes = new long[bytes.length + 1];
+		for (int i = 0; i < bytes.length; i++) {
+			prefixHashes[i + 1] = prefixHashes[i] * hashMultiplier + (bytes[i] & 0xFF) + 1;
+		}
+		return prefixHashes;
+	}
+
+	/**
+	 * Returns the same hash as {@link #hash(byte[], int, int)} for the bytes from {@code start} (inclusive) to
+	 * {@code end} (exclusive), computed from their {@link #prefixHashes(byte[]) prefix hashes}.
+	 *
+	 * @param prefixHashes the prefix hashes of the bytes
+	 * @param start        the start of the slice
+	 * @param end          the end of the slice
+	 * @return the hash of the slice
+	 */
+	final long hash(final long[] prefixHashes, final int start, final int end) {
+		// Removes the contribution of the bytes before start, which were multiplied (end - start) more times
+		return prefixHashes[end] - prefixHashes[start] * power(end - start);
+	}
+
+	private long power(final int exponent) {
+		if (exponent < hashMultiplierPowers.length) {
+			return hashMultiplierPowers[exponent];
+		}
+
+		long result = 1;
+		long base = hashMultiplier;
+		for (int remaining = exponent; remaining > 0; remaining >>>= 1) {
+			if ((remaining & 1) != 0) {
+				result *= base;
+			}
+			base *= base;
+		}
+		return result;
+	}
+
+	private static long[] powers(final long multiplier) {
+		final long[] powers = new long[257];
+		powers[0] = 1;
+		for (int i = 1; i < powers.length; i++) {
+			powers[i] = powers[i - 1] * multiplier;
+		}
+		return powers;
+	}
+}
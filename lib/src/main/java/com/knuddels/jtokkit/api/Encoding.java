@@ -1,6 +1,9 @@
 package com.knuddels.jtokkit.api;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.List;
+import java.util.OptionalInt;
 
 public interface Encoding {
 
@@ -106,6 +109,90 @@ public interface Encoding {
 	 */
 	EncodingResult encodeOrdinary(String text, int maxTokens);
 
+	/**
+	 * Encodes the given text into the given array, starting at the given offset. Unlike {@link #encode(String)}, this
+	 * does not allocate any lists or boxed token ids, so it can be called in hot loops that reuse the same array.
+	 * <pre>
+	 * Encoding encoding = EncodingRegistry.getEncoding(EncodingType.CL100K_BASE);
+	 * int[] tokens = new int[1024];
+	 * encoding.encode("hello world", tokens, 0);
+	 * // returns 2, tokens starts with [15339, 1917]
+	 *
+	 * encoding.encode("hello world", tokens, 1023);
+	 * // returns -2, since only one of the tokens fits
+	 * </pre>
+	 * If the tokens do not fit into the array, the tokens that fit are written, and the negated number of tokens of
+	 * the whole text is returned, so that the caller can retry with an array that is large enough.
+	 * <p>
+	 * The built-in encodings keep the state they need to encode in scratch arrays of the calling thread, which are
+	 * reused by the following calls. The default implementation copies the tokens of {@link #encode(String)}.
+	 *
+	 * @param text   the text to encode
+	 * @param out    the array to write the token ids to
+	 * @param offset the index in the array to write the first token id to
+	 * @return the number of token ids written, or the negated number of token ids of the text if they do not fit
+	 * @throws IndexOutOfBoundsException     if the offset is negative or greater than the length of the array
+	 * @throws UnsupportedOperationException if the text contains special tokens which are not supported for now
+	 */
+	default int encode(final String text, final int[] out, final int offset) {
+		return TokenBuffers.copy(encode(text), out, offset);
+	}
+
+	/**
+	 * Encodes the given text into the given array, starting at the given offset, ignoring special tokens. Like
+	 * {@link #encode(String, int[], int)}, this does not allocate any lists or boxed token ids.
+	 * <pre>
+	 * Encoding encoding = EncodingRegistry.getEncoding(EncodingType.CL100K_BASE);
+	 * int[] tokens = new int[1024];
+	 * encoding.encodeOrdinary("hello &lt;|endoftext|&gt; world", tokens, 0);
+	 * // returns 8, tokens starts with [15339, 83739, 8862, 728, 428, 91, 29, 1917]
+	 * </pre>
+	 * If the tokens do not fit into the array, the tokens that fit are written, and the negated number of tokens of
+	 * the whole text is returned. The default implementation copies the tokens of {@link #encodeOrdinary(String)}.
+	 *
+	 * @param text   the text to encode
+	 * @param out    the array to write the token ids to
+	 * @param offset the index in the array to write the first token id to
+	 * @return the number of token ids written, or the negated number of token ids of the text if they do not fit
+	 * @throws IndexOutOfBoundsException if the offset is negative or greater than the length of the array
+	 */
+	default int encodeOrdinary(final String text, final int[] out, final int offset) {
+		return TokenBuffers.copy(encodeOrdinary(text), out, offset);
+	}
+
+	/**
+	 * Encodes the given text into the given buffer, starting at its position, like
+	 * {@link #encode(String, int[], int)}. If the tokens fit before the limit of the buffer, its position is advanced
+	 * past them. Otherwise, its position is left unchanged, the contents of its remaining elements are undefined, and
+	 * the negated number of tokens of the whole text is returned.
+	 * <p>
+	 * The default implementation copies the tokens of {@link #encode(String)}.
+	 *
+	 * @param text the text to encode
+	 * @param out  the buffer to write the token ids to
+	 * @return the number of token ids written, or the negated number of token ids of the text if they do not fit
+	 * @throws UnsupportedOperationException if the text contains special tokens which are not supported for now
+	 */
+	default int encode(final String text, final IntBuffer out) {
+		return TokenBuffers.put(encode(text), out);
+	}
+
+	/**
+	 * Encodes the given text into the given buffer, starting at its position, ignoring special tokens, like
+	 * {@link #encodeOrdinary(String, int[], int)}. If the tokens fit before the limit of the buffer, its position is
+	 * advanced past them. Otherwise, its position is left unchanged, the contents of its remaining elements are
+	 * undefined, and the negated number of tokens of the whole text is returned.
+	 * <p>
+	 * The default implementation copies the tokens of {@link #encodeOrdinary(String)}.
+	 *
+	 * @param text the text to encode
+	 * @param out  the buffer to write the token ids to
+	 * @return the number of token ids written, or the negated number of token ids of the text if they do not fit
+	 */
+	default int encodeOrdinary(final String text, final IntBuffer out) {
+		return TokenBuffers.put(encodeOrdinary(text), out);
+	}
+
 	/**
 	 * Encodes the given text into a list of token ids and returns the amount of tokens.
 	 * This is a convenience method for {@link #encode(String)}, if all you want is to
@@ -146,6 +233,89 @@ public interface Encoding {
 	 */
 	int countTokensOrdinary(String text);
 
+	/**
+	 * Counts the tokens of the given text, but stops as soon as they exceed the given limit. Unlike
+	 * {@link #countTokens(String)}, this only encodes the head of a text that is too long, so that a long text is
+	 * rejected about as fast as a text of the limit is counted.
+	 * <pre>
+	 * Encoding encoding = EncodingRegistry.getEncoding(EncodingType.CL100K_BASE);
+	 * encoding.isWithinTokenLimit("hello world", 2);
+	 * // returns OptionalInt[2]
+	 *
+	 * encoding.isWithinTokenLimit("hello world", 1);
+	 * // returns OptionalInt.empty
+	 *
+	 * encoding.isWithinTokenLimit("hello &lt;|endoftext|&gt; world", 10);
+	 * // raises an UnsupportedOperationException
+	 * </pre>
+	 * Like {@link #countTokens(String)}, this rejects special tokens anywhere in the text, also after the limit.
+	 * <p>
+	 * The default implementation counts all tokens with {@link #countTokens(String)}.
+	 *
+	 * @param text       the text to count tokens for
+	 * @param tokenLimit the maximum number of tokens
+	 * @return the amount of tokens if it does not exceed the limit, or an empty {@link OptionalInt} otherwise
+	 * @throws IllegalArgumentException      if the token limit is negative
+	 * @throws UnsupportedOperationException if the text contains special tokens which are not supported for now
+	 */
+	default OptionalInt isWithinTokenLimit(final String text, final int tokenLimit) {
+		if (tokenLimit < 0) {
+			throw new IllegalArgumentException("Token limit must not be negative, but was " + tokenLimit);
+		}
+
+		final int tokenCount = countTokens(text);
+		return tokenCount <= tokenLimit ? OptionalInt.of(tokenCount) : OptionalInt.empty();
+	}
+
+	/**
+	 * Counts the tokens of the given text, ignoring special tokens, but stops as soon as they exceed the given limit.
+	 * Unlike {@link #countTokensOrdinary(String)}, this only encodes the head of a text that is too long, so that a
+	 * long text is rejected about as fast as a text of the limit is counted.
+	 * <pre>
+	 * Encoding encoding = EncodingRegistry.getEncoding(EncodingType.CL100K_BASE);
+	 * encoding.isWithinTokenLimitOrdinary("hello &lt;|endoftext|&gt; world", 10);
+	 * // returns OptionalInt[8]
+	 * </pre>
+	 * The default implementation counts all tokens with {@link #countTokensOrdinary(String)}.
+	 *
+	 * @param text       the text to count tokens for
+	 * @param tokenLimit the maximum number of tokens
+	 * @return the amount of tokens if it does not exceed the limit, or an empty {@link OptionalInt} otherwise
+	 * @throws IllegalArgumentException if the token limit is negative
+	 */
+	default OptionalInt isWithinTokenLimitOrdinary(final String text, final int tokenLimit) {
+		if (tokenLimit < 0) {
+			throw new IllegalArgumentException("Token limit must not be negative, but was " + tokenLimit);
+		}
+
+		final int tokenCount = countTokensOrdinary(text);
+		return tokenCount <= tokenLimit ? OptionalInt.of(tokenCount) : OptionalInt.empty();
+	}
+
+	/**
+	 * Estimates the number of tokens of the given text, ignoring special tokens, without encoding it. This is meant
+	 * for coarse decisions, like whether a document is closer to a thousand or to a hundred thousand tokens, and is
+	 * several times faster than {@link #countTokensOrdinary(String)} for the predefined encodings.
+	 * <p>
+	 * The estimate comes with a confidence interval. For natural text and source code, the estimate is usually within
+	 * 15% of the exact count, while texts of made up or random words can be off by more, and may even exceed the upper
+	 * bound of the interval.
+	 * <p>
+	 * The default implementation counts the tokens exactly with {@link #countTokensOrdinary(String)}.
+	 * <pre>
+	 * Encoding encoding = EncodingRegistry.getEncoding(EncodingType.CL100K_BASE);
+	 * encoding.estimateTokenCount("hello world").getEstimate();
+	 * // returns 2
+	 * </pre>
+	 *
+	 * @param text the text to estimate the number of tokens of
+	 * @return the estimated number of tokens and its confidence interval
+	 */
+	default TokenCountEstimate estimateTokenCount(final String text) {
+		final int tokenCount = countTokensOrdinary(text);
+		return new TokenCountEstimate(tokenCount, tokenCount, tokenCount);
+	}
+
 	/**
 	 * Decodes the given list of token ids into a text.
 	 * <pre>
@@ -180,6 +350,56 @@ public interface Encoding {
 	 */
 	byte[] decodeBytes(List<Integer> tokens);
 
+	/**
+	 * Decodes the given range of token ids into the given byte array, starting at the given offset. Unlike
+	 * {@link #decodeBytes(List)}, this does not allocate any lists or arrays, so it can be called in hot loops that
+	 * reuse the same arrays.
+	 * <pre>
+	 * Encoding encoding = EncodingRegistry.getEncoding(EncodingType.CL100K_BASE);
+	 * byte[] bytes = new byte[4096];
+	 * encoding.decodeBytes(new int[]{15339, 1917}, 0, 2, bytes, 0);
+	 * // returns 11, bytes starts with [104, 101, 108, 108, 111, 32, 119, 111, 114, 108, 100]
+	 * </pre>
+	 * If the bytes do not fit into the array, the bytes of the leading tokens that fit are written, and the negated
+	 * number of bytes of all tokens is returned, so that the caller can retry with an array that is large enough.
+	 * <p>
+	 * The default implementation copies the bytes of {@link #decodeBytes(List)}.
+	 *
+	 * @param tokens       the array of token ids
+	 * @param tokensOffset the index of the first token id to decode
+	 * @param tokenCount   the number of token ids to decode
+	 * @param out          the array to write the bytes to
+	 * @param offset       the index in the array to write the first byte to
+	 * @return the number of bytes written, or the negated number of bytes of the tokens if they do not fit
+	 * @throws IllegalArgumentException  if the range contains invalid token ids
+	 * @throws IndexOutOfBoundsException if the range of token ids or the offset are out of the bounds of their arrays
+	 */
+	default int decodeBytes(final int[] tokens, final int tokensOffset, final int tokenCount, final byte[] out, final int offset) {
+		return TokenBuffers.copy(decodeBytes(TokenBuffers.asList(tokens, tokensOffset, tokenCount)), out, offset);
+	}
+
+	/**
+	 * Decodes the remaining token ids of the given buffer into the given byte buffer, starting at its position, like
+	 * {@link #decodeBytes(int[], int, int, byte[], int)}. If the bytes fit before the limit of the byte buffer, the
+	 * positions of both buffers are advanced past the token ids and the bytes. Otherwise, both positions are left
+	 * unchanged, the contents of the remaining bytes are undefined, and the negated number of bytes of all tokens is
+	 * returned.
+	 * <p>
+	 * The default implementation copies the bytes of {@link #decodeBytes(List)}.
+	 *
+	 * @param tokens the buffer of token ids
+	 * @param out    the buffer to write the bytes to
+	 * @return the number of bytes written, or the negated number of bytes of the tokens if they do not fit
+	 * @throws IllegalArgumentException if the buffer contains invalid token ids
+	 */
+	default int decodeBytes(final IntBuffer tokens, final ByteBuffer out) {
+		final int byteCount = TokenBuffers.put(decodeBytes(TokenBuffers.asList(tokens)), out);
+		if (byteCount >= 0) {
+			tokens.position(tokens.limit());
+		}
+		return byteCount;
+	}
+
 	/**
 	 * Returns the name of this encoding. This is the name which is used to identify
 	 * the encoding and must be unique for registration in the {@link EncodingRegistry}.
@@ -0,0 +1,88 @@
+package com.knuddels.jtokkit.api;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * The estimated memory footprint and the usage of an encoding in a {@link MemoryAwareEncodingRegistry}.
+ */
+public final class EncodingFootprint {
+	private final EncodingType encodingType;
+	private final boolean loaded;
+	private final long heapBytes;
+	private final Instant lastUsed;
+	private final int loadCount;
+	private final int evictionCount;
+
+	public EncodingFootprint(
+			final EncodingType encodingType,
+			final boolean loaded,
+			final long heapBytes,
+			final Instant lastUsed,
+			final int loadCount,
+			final int evictionCount
+	) {
+		this.encodingType = encodingType;
+		this.loaded = loaded;
+		this.heapBytes = heapBytes;
+		this.lastUsed = lastUsed;
+		this.loadCount = loadCount;
+		this.evictionCount = evictionCount;
+	}
+
+	/**
+	 * @return the type of the encoding
+	 */
+	public EncodingType getEncodingType() {
+		return encodingType;
+	}
+
+	/**
+	 * @return true if the registry currently retains the encoding and counts it against its memory budget
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * @return the estimated number of bytes that the encoding retains on the heap, or that it retained when it was
+	 * last loaded, or 0 if it was never loaded
+	 */
+	public long getHeapBytes() {
+		return heapBytes;
+	}
+
+	/**
+	 * @return the time when the encoding was last returned by the registry, if it ever was
+	 */
+	public Optional<Instant> getLastUsed() {
+		return Optional.ofNullable(lastUsed);
+	}
+
+	/**
+	 * @return the number of times the vocabulary of the encoding was loaded
+	 */
+	public int getLoadCount() {
+		return loadCount;
+	}
+
+	/**
+	 * @return the number of times the registry released the encoding to stay within its memory budget or because it
+	 * was unloaded explicitly
+	 */
+	public int getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public String toString() {
+		return "EncodingFootprint{"
+				+ "encodingType=" + encodingType
+				+ ", loaded=" + loaded
+				+ ", heapBytes=" + heapBytes
+				+ ", lastUsed=" + lastUsed
+				+ ", loadCount=" + loadCount
+				+ ", evictionCount=" + evictionCount
+				+ '}';
+	}
+}
@@ -2,6 +2,7 @@ package com.knuddels.jtokkit.api;
 
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The EncodingRegistry is used to register custom encodings and to retrieve
@@ -27,6 +28,40 @@ public interface EncodingRegistry {
 	 */
 	Encoding getEncoding(EncodingType encodingType);
 
+	/**
+	 * Returns a future of the encoding with the given type, which completes once the encoding is loaded. Unlike
+	 * {@link #getEncoding(EncodingType)}, this method never blocks while a lazily loaded vocabulary is loaded.
+	 * <p>
+	 * The default implementation returns a future that is already completed with the result of
+	 * {@link #getEncoding(EncodingType)}.
+	 *
+	 * @param encodingType the type of the encoding
+	 * @return the future of the encoding, which completes exceptionally if the encoding can not be loaded
+	 */
+	default CompletableFuture<Encoding> getEncodingAsync(final EncodingType encodingType) {
+		final CompletableFuture<Encoding> encoding = new CompletableFuture<>();
+		try {
+			encoding.complete(getEncoding(encodingType));
+		} catch (final RuntimeException e) {
+			encoding.completeExceptionally(e);
+		}
+		return encoding;
+	}
+
+	/**
+	 * Hints that the encodings with the given types will be needed soon. Registries that load encodings lazily start
+	 * loading them in the background, without waiting for them to be loaded.
+	 *
+	 * @param encodingTypes the types of the encodings
+	 * @return the registry for method chaining
+	 */
+	default EncodingRegistry preloadEncodings(final EncodingType... encodingTypes) {
+		for (final EncodingType encodingType : encodingTypes) {
+			getEncodingAsync(encodingType);
+		}
+		return this;
+	}
+
 	/**
 	 * Returns the encoding that is used for the given model type, if it exists. Otherwise, returns an
 	 * empty Optional. Prefer using {@link #getEncodingForModel(ModelType)} for built-in encodings.
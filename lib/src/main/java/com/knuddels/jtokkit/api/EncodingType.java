@@ -7,24 +7,37 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public enum EncodingType {
-	R50K_BASE("r50k_base"),
-	P50K_BASE("p50k_base"),
-	P50K_EDIT("p50k_edit"),
-	CL100K_BASE("cl100k_base");
+	R50K_BASE("r50k_base", 50257),
+	P50K_BASE("p50k_base", 50281),
+	P50K_EDIT("p50k_edit", 50284),
+	CL100K_BASE("cl100k_base", 100277);
 
 	private static final Map<String, EncodingType> nameToEncodingType = Arrays.stream(values())
 			.collect(Collectors.toMap(EncodingType::getName, Function.identity()));
 
 	private final String name;
+	private final int vocabularySize;
 
-	EncodingType(final String name) {
+	EncodingType(final String name, final int vocabularySize) {
 		this.name = name;
+		this.vocabularySize = vocabularySize;
 	}
 
 	public String getName() {
 		return name;
 	}
 
+	/**
+	 * Returns the number of token ids of this encoding, i.e. one more than the largest token id, including the ids
+	 * of the special tokens. Every token of this encoding fits into {@code 32 - Integer.numberOfLeadingZeros(size - 1)}
+	 * bits.
+	 *
+	 * @return the number of token ids
+	 */
+	public int getVocabularySize() {
+		return vocabularySize;
+	}
+
 	public static Optional<EncodingType> fromName(final String name) {
 		return Optional.ofNullable(nameToEncodingType.get(name));
 	}
@@ -0,0 +1,42 @@
+package com.knuddels.jtokkit.api;
+
+import java.util.List;
+
+/**
+ * An {@link EncodingRegistry} that loads the default encodings lazily and keeps the ones it retains within a memory
+ * budget. When loading an encoding exceeds the budget, the least recently used encodings are released, and they are
+ * loaded again transparently the next time they are requested.
+ */
+public interface MemoryAwareEncodingRegistry extends EncodingRegistry {
+
+	/**
+	 * Returns the number of bytes that the retained default encodings may occupy on the heap. The most recently
+	 * loaded encoding is retained even if it exceeds the budget on its own.
+	 *
+	 * @return the memory budget in bytes
+	 */
+	long getMemoryBudget();
+
+	/**
+	 * Returns the estimated number of bytes that the retained default encodings occupy on the heap.
+	 *
+	 * @return the retained bytes
+	 */
+	long getRetainedHeapBytes();
+
+	/**
+	 * Returns the footprint and usage statistics of each default encoding, in the order of {@link EncodingType}.
+	 *
+	 * @return the footprints of the default encodings
+	 */
+	List<EncodingFootprint> getFootprints();
+
+	/**
+	 * Releases the encoding with the given type, so that its vocabulary can be garbage collected once no caller
+	 * references the encoding anymore. It is loaded again the next time it is requested.
+	 *
+	 * @param encodingType the type of the encoding
+	 * @return true if the encoding was loaded
+	 */
+	boolean unloadEncoding(EncodingType encodingType);
+}
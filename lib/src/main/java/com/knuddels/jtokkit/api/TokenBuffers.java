@@ -0,0 +1,102 @@
+package com.knuddels.jtokkit.api;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Copies the results of the list based methods of {@link Encoding} into caller-provided buffers, for the default
+ * implementations of the buffer based methods.
+ */
+final class TokenBuffers {
+
+	static int copy(final List<Integer> tokens, final int[] out, final int offset) {
+		checkRange(out.length, offset, 0);
+		if (tokens.size() > out.length - offset) {
+			return -tokens.size();
+		}
+
+		for (int i = 0; i < tokens.size(); i++) {
+			out[offset + i] = tokens.get(i);
+		}
+		return tokens.size();
+	}
+
+	static int put(final List<Integer> tokens, final IntBuffer out) {
+		if (tokens.size() > out.remaining()) {
+			return -tokens.size();
+		}
+
+		for (final int token : tokens) {
+			out.put(token);
+		}
+		return tokens.size();
+	}
+
+	static int copy(final byte[] bytes, final byte[] out, final int offset) {
+		checkRange(out.length, offset, 0);
+		if (bytes.length > out.length - offset) {
+			return -bytes.length;
+		}
+
+		System.arraycopy(bytes, 0, out, offset, bytes.length);
+		return bytes.length;
+	}
+
+	static int put(final byte[] bytes, final ByteBuffer out) {
+		if (bytes.length > out.remaining()) {
+			return -bytes.length;
+		}
+
+		out.put(bytes);
+		return bytes.length;
+	}
+
+	static List<Integer> asList(final int[] tokens, final int offset, final int count) {
+		checkRange(tokens.length, offset, count);
+		return new IntArrayList(tokens, offset, count);
+	}
+
+	static List<Integer> asList(final IntBuffer tokens) {
+		final int[] array = new int[tokens.remaining()];
+		tokens.duplicate().get(array);
+		return new IntArrayList(array, 0, array.length);
+	}
+
+	static void checkRange(final int length, final int offset, final int count) {
+		if (offset < 0 || count < 0 || offset > length - count) {
+			throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + count + ") out of bounds for length " + length);
+		}
+	}
+
+	private static final class IntArrayList extends AbstractList<Integer> implements RandomAccess {
+
+		private final int[] array;
+		private final int offset;
+		private final int size;
+
+		private IntArrayList(final int[] array, final int offset, final int size) {
+			this.array = array;
+			this.offset = offset;
+			this.size = size;
+		}
+
+		@Override
+		public Integer get(final int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+			}
+			return array[offset + index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	private TokenBuffers() {
+	}
+}
@@ -0,0 +1,388 @@
+package com.knuddels.jtokkit.api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Serializes sequences of token ids into a compact binary format, e.g. to persist cached prompts or training shards
+ * with less space and I/O than JSON or 32-bit ints.
+ * <p>
+ * There are three formats:
+ * <ul>
+ *     <li>{@link #fixedWidth(EncodingType) Fixed width} packs every token id into as many bits as the largest id of
+ *     the vocabulary needs, e.g. 17 bits for {@code cl100k_base}. The size only depends on the number of tokens.</li>
+ *     <li>{@link #varint() Varint} writes every token id with 7 bits per byte, so that small ids take fewer bytes.</li>
+ *     <li>{@link #deltaVarint() Delta varint} writes the difference to the previous token id, zigzag encoded so that
+ *     small negative differences take few bytes too. This pays off for sorted or otherwise correlated ids.</li>
+ * </ul>
+ * A sequence starts with a header of one byte that identifies the format, followed by the number of tokens and the
+ * length of the payload in bytes, both as varints. Sequences can be written back to back and read one after another,
+ * e.g. from a memory mapped file. Instances are immutable and thread-safe.
+ */
+public final class TokenCodec {
+
+	static final int VARINT_TAG = 64;
+	static final int DELTA_VARINT_TAG = 65;
+	static final int MAX_BYTES_PER_TOKEN = 5;
+	private static final int MAX_HEADER_LENGTH = 1 + 2 * MAX_BYTES_PER_TOKEN;
+	private static final int CHUNK_LENGTH = 8192;
+
+	private static final TokenCodec VARINT = new TokenCodec(VARINT_TAG);
+	private static final TokenCodec DELTA_VARINT = new TokenCodec(DELTA_VARINT_TAG);
+
+	// The width of the fixed width format in bits, or one of the tags of the varint formats
+	private final int tag;
+
+	private TokenCodec(final int tag) {
+		this.tag = tag;
+	}
+
+	/**
+	 * Returns a codec that packs every token id of the given encoding into the same number of bits, e.g. 17 bits for
+	 * {@code cl100k_base}.
+	 *
+	 * @param encodingType the encoding of the token ids
+	 * @return the codec
+	 */
+	public static TokenCodec fixedWidth(final EncodingType encodingType) {
+		return fixedWidth(encodingType.getVocabularySize());
+	}
+
+	/**
+	 * Returns a codec that packs every token id into the number of bits needed for ids smaller than the given
+	 * vocabulary size, e.g. for custom encodings.
+	 *
+	 * @param vocabularySize the number of token ids, i.e. one more than the largest token id
+	 * @return the codec
+	 * @throws IllegalArgumentException if the vocabulary size is not positive
+	 */
+	public static TokenCodec fixedWidth(final int vocabularySize) {
+		if (vocabularySize <= 0) {
+			throw new IllegalArgumentException("Vocabulary size must be positive, but was " + vocabularySize);
+		}
+
+		return new TokenCodec(Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(vocabularySize - 1)));
+	}
+
+	/**
+	 * Returns a codec that writes every token id as a varint of 7 bits per byte.
+	 *
+	 * @return the codec
+	 */
+	public static TokenCodec varint() {
+		return VARINT;
+	}
+
+	/**
+	 * Returns a codec that writes the difference of every token id to the previous one as a zigzag encoded varint.
+	 *
+	 * @return the codec
+	 */
+	public static TokenCodec deltaVarint() {
+		return DELTA_VARINT;
+	}
+
+	/**
+	 * Returns the number of bits per token id of the fixed width format.
+	 *
+	 * @return the number of bits, or 0 if this is a varint codec
+	 */
+	public int getBitsPerToken() {
+		return isFixedWidth() ? tag : 0;
+	}
+
+	/**
+	 * Returns the number of bytes that the given token ids take in this format, including the header.
+	 *
+	 * @param tokens the array of token ids
+	 * @param offset the index of the first token id
+	 * @param count  the number of token ids
+	 * @return the number of bytes
+	 * @throws IllegalArgumentException  if a token id does not fit into the bits of the fixed width format, or if
+	 *                                   the encoded sequence would be longer than {@link Integer#MAX_VALUE} bytes
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of the array
+	 */
+	public int getEncodedLength(final int[] tokens, final int offset, final int count) {
+		final int payloadLength = payloadLength(tokens, offset, count);
+		return varintLength(count) + varintLength(payloadLength) + 1 + payloadLength;
+	}
+
+	/**
+	 * Writes the given token ids to the given stream. The tokens are encoded in chunks of a few kilobytes, so that the
+	 * sequence never has to be held in memory as a whole.
+	 *
+	 * @param tokens the array of token ids
+	 * @param offset the index of the first token id
+	 * @param count  the number of token ids
+	 * @param out    the stream to write to
+	 * @throws IOException               if writing to the stream fails
+	 * @throws IllegalArgumentException  if a token id does not fit into the bits of the fixed width format, in which
+	 *                                   case nothing is written
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of the array
+	 */
+	public void write(final int[] tokens, final int offset, final int count, final OutputStream out) throws IOException {
+		Objects.requireNonNull(out, "Output stream must not be null");
+		final byte[] chunk = new byte[CHUNK_LENGTH];
+		final Packer packer = new Packer(tokens, offset, count);
+		int length = writeHeader(chunk, count, payloadLength(tokens, offset, count));
+		do {
+			length = packer.pack(chunk, length, chunk.length);
+			out.write(chunk, 0, length);
+			length = 0;
+		} while (!packer.isDone());
+	}
+
+	/**
+	 * Writes the given token ids to the given channel, in chunks like {@link #write(int[], int, int, OutputStream)}.
+	 *
+	 * @param tokens the array of token ids
+	 * @param offset the index of the first token id
+	 * @param count  the number of token ids
+	 * @param out    the channel to write to
+	 * @throws IOException               if writing to the channel fails
+	 * @throws IllegalArgumentException  if a token id does not fit into the bits of the fixed width format, in which
+	 *                                   case nothing is written
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of the array
+	 */
+	public void write(final int[] tokens, final int offset, final int count, final WritableByteChannel out) throws IOException {
+		Objects.requireNonNull(out, "Channel must not be null");
+		final byte[] chunk = new byte[CHUNK_LENGTH];
+		final ByteBuffer buffer = ByteBuffer.wrap(chunk);
+		final Packer packer = new Packer(tokens, offset, count);
+		int length = writeHeader(chunk, count, payloadLength(tokens, offset, count));
+		do {
+			length = packer.pack(chunk, length, chunk.length);
+			buffer.limit(length).position(0);
+			while (buffer.hasRemaining()) {
+				out.write(buffer);
+			}
+			length = 0;
+		} while (!packer.isDone());
+	}
+
+	/**
+	 * Writes the given token ids to the given buffer, starting at its position, and advances its position past them.
+	 *
+	 * @param tokens the array of token ids
+	 * @param offset the index of the first token id
+	 * @param count  the number of token ids
+	 * @param out    the buffer to write to
+	 * @throws BufferOverflowException   if the remaining bytes of the buffer are fewer than
+	 *                                   {@link #getEncodedLength(int[], int, int)}, in which case nothing is written
+	 * @throws IllegalArgumentException  if a token id does not fit into the bits of the fixed width format, in which
+	 *                                   case nothing is written
+	 * @throws IndexOutOfBoundsException if the range is out of the bounds of the array
+	 */
+	public void write(final int[] tokens, final int offset, final int count, final ByteBuffer out) {
+		final int payloadLength = payloadLength(tokens, offset, count);
+		if (varintLength(count) + varintLength(payloadLength) + 1 + payloadLength > out.remaining()) {
+			throw new BufferOverflowException();
+		}
+
+		final byte[] chunk = out.hasArray() ? out.array() : new byte[CHUNK_LENGTH];
+		final int start = out.hasArray() ? out.arrayOffset() + out.position() : 0;
+		final Packer packer = new Packer(tokens, offset, count);
+		int length = start + writeHeader(chunk, start, count, payloadLength);
+		if (out.hasArray()) {
+			// The whole sequence was checked to fit, so the packer does not need to keep room for a whole token
+			length = packer.pack(chunk, length, Integer.MAX_VALUE);
+			out.position(length - out.arrayOffset());
+			return;
+		}
+
+		do {
+			length = packer.pack(chunk, length, chunk.length);
+			out.put(chunk, 0, length);
+			length = 0;
+		} while (!packer.isDone());
+	}
+
+	/**
+	 * Reads the sequence of token ids at the position of the given buffer, and advances its position past it. The
+	 * bytes are not copied, the returned sequence decodes the token ids from a view of the buffer whenever it is
+	 * read, so the contents of the buffer must not change while it is used.
+	 *
+	 * @param in the buffer to read from
+	 * @return the sequence of token ids
+	 * @throws BufferUnderflowException if the buffer ends before the sequence
+	 * @throws IllegalArgumentException if the sequence was written in another format or is malformed
+	 */
+	public TokenSequence read(final ByteBuffer in) {
+		int position = in.position();
+		if (position >= in.limit()) {
+			throw new BufferUnderflowException();
+		}
+		final int sequenceTag = in.get(position++) & 0xFF;
+		if (sequenceTag != tag) {
+			throw new IllegalArgumentException("Sequence was written in format " + sequenceTag + ", but this codec reads format " + tag);
+		}
+
+		final long count = readVarint(in, position);
+		position += (int) (count >>> 32);
+		final long payloadLength = readVarint(in, position);
+		position += (int) (payloadLength >>> 32);
+		if ((int) payloadLength > in.limit() - position) {
+			throw new BufferUnderflowException();
+		}
+		if (isFixedWidth() && fixedWidthPayloadLength((int) count) != (int) payloadLength) {
+			throw new IllegalArgumentException("Payload of " + (int) payloadLength + " bytes does not match " + (int) count + " tokens of " + tag + " bits");
+		}
+
+		final ByteBuffer payload = in.duplicate();
+		payload.limit(position + (int) payloadLength).position(position);
+		in.position(position + (int) payloadLength);
+		return new TokenSequence(tag, (int) count, payload.slice());
+	}
+
+	private boolean isFixedWidth() {
+		return tag <= Integer.SIZE;
+	}
+
+	private int payloadLength(final int[] tokens, final int offset, final int count) {
+		checkRange(tokens.length, offset, count);
+		if (isFixedWidth()) {
+			for (int i = offset; i < offset + count; i++) {
+				checkWidth(tokens[i]);
+			}
+			return fixedWidthPayloadLength(count);
+		}
+
+		long length = 0;
+		int previous = 0;
+		for (int i = offset; i < offset + count; i++) {
+			length += varintLength(tag == DELTA_VARINT_TAG ? zigzag(tokens[i] - previous) : tokens[i]);
+			previous = tokens[i];
+		}
+		return checkLength(length);
+	}
+
+	private int fixedWidthPayloadLength(final int count) {
+		return checkLength(((long) count * tag + Byte.SIZE - 1) / Byte.SIZE);
+	}
+
+	private void checkWidth(final int token) {
+		if (tag < Integer.SIZE && token >>> tag != 0) {
+			throw new IllegalArgumentException("Token id " + token + " does not fit into " + tag + " bits");
+		}
+	}
+
+	private static int checkLength(final long length) {
+		if (length > Integer.MAX_VALUE - MAX_HEADER_LENGTH) {
+			throw new IllegalArgumentException("Encoded sequence of " + length + " bytes is too long");
+		}
+		return (int) length;
+	}
+
+	private int writeHeader(final byte[] out, final int count, final int payloadLength) {
+		return writeHeader(out, 0, count, payloadLength);
+	}
+
+	private int writeHeader(final byte[] out, final int offset, final int count, final int payloadLength) {
+		out[offset] = (byte) tag;
+		final int position = writeVarint(out, offset + 1, count);
+		return writeVarint(out, position, payloadLength) - offset;
+	}
+
+	static int zigzag(final int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	static int varintLength(final int value) {
+		return value >>> 7 == 0 ? 1 : value >>> 14 == 0 ? 2 : value >>> 21 == 0 ? 3 : value >>> 28 == 0 ? 4 : 5;
+	}
+
+	static int writeVarint(final byte[] out, final int position, final int value) {
+		int index = position;
+		int remaining = value;
+		while (remaining >>> 7 != 0) {
+			out[index++] = (byte) (remaining | 0x80);
+			remaining >>>= 7;
+		}
+		out[index++] = (byte) remaining;
+		return index;
+	}
+
+	/*
+	 * Reads the varint at the given index of the buffer. Returns the value in the low int and the number of its bytes
+	 * in the high int.
+	 */
+	private static long readVarint(final ByteBuffer in, final int index) {
+		int value = 0;
+		for (int i = 0; i < MAX_BYTES_PER_TOKEN; i++) {
+			if (index + i >= in.limit()) {
+				throw new BufferUnderflowException();
+			}
+			final byte b = in.get(index + i);
+			value |= (b & 0x7F) << (7 * i);
+			if (b >= 0) {
+				if (value < 0) {
+					throw new IllegalArgumentException("Header of sequence is malformed");
+				}
+				return ((long) (i + 1) << 32) | value;
+			}
+		}
+		throw new IllegalArgumentException("Header of sequence is malformed");
+	}
+
+	private static void checkRange(final int length, final int offset, final int count) {
+		if (offset < 0 || count < 0 || offset > length - count) {
+			throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + count + ") out of bounds for length " + length);
+		}
+	}
+
+	/*
+	 * Encodes the token ids into consecutive chunks of bytes, carrying the bits of the fixed width format that do not
+	 * fill a whole byte yet over to the next chunk.
+	 */
+	private final class Packer {
+
+		private final int[] tokens;
+		private final int end;
+		private int next;
+		private long bits;
+		private int bitCount;
+		private int previous;
+
+		private Packer(final int[] tokens, final int offset, final int count) {
+			this.tokens = tokens;
+			this.next = offset;
+			this.end = offset + count;
+		}
+
+		/*
+		 * Writes as many token ids as fit before the limit, and returns the index after the last written byte.
+		 */
+		int pack(final byte[] out, final int position, final int limit) {
+			int index = position;
+			while (next < end && limit - index >= MAX_BYTES_PER_TOKEN) {
+				final int token = tokens[next++];
+				if (isFixedWidth()) {
+					bits |= (token & 0xFFFFFFFFL) << bitCount;
+					bitCount += tag;
+					while (bitCount >= Byte.SIZE) {
+						out[index++] = (byte) bits;
+						bits >>>= Byte.SIZE;
+						bitCount -= Byte.SIZE;
+					}
+				} else {
+					index = writeVarint(out, index, tag == DELTA_VARINT_TAG ? zigzag(token - previous) : token);
+					previous = token;
+				}
+			}
+			if (next == end && bitCount > 0 && index < limit) {
+				out[index++] = (byte) bits;
+				bitCount = 0;
+			}
+			return index;
+		}
+
+		boolean isDone() {
+			return next == end && bitCount == 0;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.knuddels.jtokkit.api;
+
+/**
+ * An estimated number of tokens, with the bounds of its confidence interval.
+ *
+ * @see Encoding#estimateTokenCount(String)
+ */
+public final class TokenCountEstimate {
+	private final int estimate;
+	private final int lowerBound;
+	private final int upperBound;
+
+	public TokenCountEstimate(final int estimate, final int lowerBound, final int upperBound) {
+		if (lowerBound < 0) {
+			throw new IllegalArgumentException("Lower bound must not be negative, but was " + lowerBound);
+		}
+		if (lowerBound > estimate || estimate > upperBound) {
+			throw new IllegalArgumentException("Estimate " + estimate + " is not within [" + lowerBound + ", " + upperBound + "]");
+		}
+
+		this.estimate = estimate;
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
+	}
+
+	/**
+	 * @return the estimated number of tokens
+	 */
+	public int getEstimate() {
+		return estimate;
+	}
+
+	/**
+	 * @return the lower bound of the confidence interval of the number of tokens
+	 */
+	public int getLowerBound() {
+		return lowerBound;
+	}
+
+	/**
+	 * @return the upper bound of the confidence interval of the number of tokens
+	 */
+	public int getUpperBound() {
+		return upperBound;
+	}
+
+	/**
+	 * @return true if the number of tokens is exact, i.e. the confidence interval contains only the estimate
+	 */
+	public boolean isExact() {
+		return lowerBound == upperBound;
+	}
+
+	@Override
+	public String toString() {
+		return "TokenCountEstimate{"
+				+ "estimate=" + estimate
+				+ ", lowerBound=" + lowerBound
+				+ ", upperBound=" + upperBound
+				+ '}';
+	}
+}
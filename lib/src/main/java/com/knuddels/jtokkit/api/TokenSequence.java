@@ -0,0 +1,150 @@
+package com.knuddels.jtokkit.api;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A sequence of token ids that was read by a {@link TokenCodec}. It is a view of the bytes of the sequence in the
+ * buffer it was read from, and decodes the token ids whenever they are iterated or copied.
+ */
+public final class TokenSequence implements Iterable<Integer> {
+
+	private final int tag;
+	private final int size;
+	private final ByteBuffer payload;
+
+	TokenSequence(final int tag, final int size, final ByteBuffer payload) {
+		this.tag = tag;
+		this.size = size;
+		this.payload = payload;
+	}
+
+	/**
+	 * Returns the number of token ids of this sequence.
+	 *
+	 * @return the number of token ids
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Decodes the token ids of this sequence into the given array, e.g. to pass them to
+	 * {@link Encoding#decodeBytes(int[], int, int, byte[], int)}.
+	 *
+	 * @param out    the array to write the token ids to
+	 * @param offset the index in the array to write the first token id to
+	 * @return the number of token ids written, which is the size of this sequence
+	 * @throws IllegalArgumentException  if the sequence is malformed
+	 * @throws IndexOutOfBoundsException if the token ids do not fit into the array at the given offset
+	 */
+	public int copyTo(final int[] out, final int offset) {
+		if (offset < 0 || offset > out.length - size) {
+			throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + size + ") out of bounds for length " + out.length);
+		}
+
+		final Decoder decoder = new Decoder();
+		for (int i = 0; i < size; i++) {
+			out[offset + i] = decoder.nextInt();
+		}
+		return size;
+	}
+
+	/**
+	 * Decodes the token ids of this sequence into a new array.
+	 *
+	 * @return the token ids
+	 * @throws IllegalArgumentException if the sequence is malformed
+	 */
+	public int[] toArray() {
+		final int[] tokens = new int[size];
+		copyTo(tokens, 0);
+		return tokens;
+	}
+
+	/**
+	 * Decodes the token ids of this sequence into a new list, e.g. to pass them to
+	 * {@link Encoding#decode(List)}.
+	 *
+	 * @return the token ids
+	 * @throws IllegalArgumentException if the sequence is malformed
+	 */
+	public List<Integer> toList() {
+		final List<Integer> tokens = new ArrayList<>(size);
+		final Decoder decoder = new Decoder();
+		for (int i = 0; i < size; i++) {
+			tokens.add(decoder.nextInt());
+		}
+		return tokens;
+	}
+
+	/**
+	 * Returns an iterator that decodes the token ids of this sequence one after another. Prefer
+	 * {@link PrimitiveIterator.OfInt#nextInt()} over {@link PrimitiveIterator.OfInt#next()} to not box them.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public PrimitiveIterator.OfInt iterator() {
+		return new Decoder();
+	}
+
+	private final class Decoder implements PrimitiveIterator.OfInt {
+
+		private int remaining = size;
+		private int position;
+		private long bits;
+		private int bitCount;
+		private int previous;
+
+		@Override
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		@Override
+		public int nextInt() {
+			if (remaining <= 0) {
+				throw new NoSuchElementException();
+			}
+			remaining--;
+
+			if (tag <= Integer.SIZE) {
+				// The payload length was checked to match the number of tokens, so it holds the bits of every token
+				while (bitCount < tag) {
+					bits |= (payload.get(position++) & 0xFFL) << bitCount;
+					bitCount += Byte.SIZE;
+				}
+				final int token = (int) (bits & ((1L << tag) - 1));
+				bits >>>= tag;
+				bitCount -= tag;
+				return token;
+			}
+
+			final int value = readVarint();
+			if (tag == TokenCodec.DELTA_VARINT_TAG) {
+				previous += (value >>> 1) ^ -(value & 1);
+				return previous;
+			}
+			return value;
+		}
+
+		private int readVarint() {
+			int value = 0;
+			for (int i = 0; i < TokenCodec.MAX_BYTES_PER_TOKEN; i++) {
+				if (position >= payload.limit()) {
+					throw new IllegalArgumentException("Payload of sequence ends within token " + (size - remaining - 1));
+				}
+				final byte b = payload.get(position++);
+				value |= (b & 0x7F) << (7 * i);
+				if (b >= 0) {
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Payload of sequence is malformed at token " + (size - remaining - 1));
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.knuddels.jtokkit.api;
+
+/**
+ * A snapshot of the metrics of a {@link TokenizationService}. Latencies are measured from the submission of a
+ * request until its result is available.
+ */
+public final class TokenizationMetrics {
+	private final long queueDepth;
+	private final long submittedRequests;
+	private final long completedRequests;
+	private final long batches;
+	private final long totalLatencyNanos;
+	private final long maxLatencyNanos;
+
+	public TokenizationMetrics(
+			final long queueDepth,
+			final long submittedRequests,
+			final long completedRequests,
+			final long batches,
+			final long totalLatencyNanos,
+			final long maxLatencyNanos
+	) {
+		this.queueDepth = queueDepth;
+		this.submittedRequests = submittedRequests;
+		this.completedRequests = completedRequests;
+		this.batches = batches;
+		this.totalLatencyNanos = totalLatencyNanos;
+		this.maxLatencyNanos = maxLatencyNanos;
+	}
+
+	/**
+	 * @return the number of requests that are queued and not yet picked up by a worker
+	 */
+	public long getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * @return the number of requests that were submitted so far
+	 */
+	public long getSubmittedRequests() {
+		return submittedRequests;
+	}
+
+	/**
+	 * @return the number of requests that were processed so far, successfully or not
+	 */
+	public long getCompletedRequests() {
+		return completedRequests;
+	}
+
+	/**
+	 * @return the number of batches that were processed so far
+	 */
+	public long getBatches() {
+		return batches;
+	}
+
+	/**
+	 * @return the average number of requests per batch, or 0 if no batch was processed yet
+	 */
+	public double getAverageBatchSize() {
+		return batches == 0 ? 0 : (double) completedRequests / batches;
+	}
+
+	/**
+	 * @return the average latency of the completed requests in nanoseconds, or 0 if none completed yet
+	 */
+	public double getAverageLatencyNanos() {
+		return completedRequests == 0 ? 0 : (double) totalLatencyNanos / completedRequests;
+	}
+
+	/**
+	 * @return the maximum latency of the completed requests in nanoseconds
+	 */
+	public long getMaxLatencyNanos() {
+		return maxLatencyNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "TokenizationMetrics{"
+				+ "queueDepth=" + queueDepth
+				+ ", submittedRequests=" + submittedRequests
+				+ ", completedRequests=" + completedRequests
+				+ ", batches=" + batches
+				+ ", averageBatchSize=" + getAverageBatchSize()
+				+ ", averageLatencyNanos=" + getAverageLatencyNanos()
+				+ ", maxLatencyNanos=" + maxLatencyNanos
+				+ '}';
+	}
+}
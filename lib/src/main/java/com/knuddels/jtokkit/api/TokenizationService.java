@@ -0,0 +1,56 @@
+package com.knuddels.jtokkit.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Tokenizes texts asynchronously on a small pool of dedicated worker threads.
+ * <p>
+ * Many threads calling {@link Encoding#countTokens(String)} on tiny strings at the same time thrash the caches and
+ * contend on the allocator. A service instead queues the requests, and its workers process them in micro-batches,
+ * so that the encoding's data stays hot in the caches of a few cores.
+ * <p>
+ * The service must be {@link #close() closed} to stop its workers. Requests that were submitted before are still
+ * processed, later requests fail with an {@link IllegalStateException}.
+ */
+public interface TokenizationService extends AutoCloseable {
+
+	/**
+	 * Counts the tokens of the given text asynchronously, like {@link Encoding#countTokens(String)}.
+	 *
+	 * @param text the text to count the tokens of
+	 * @return a future that completes with the number of tokens
+	 */
+	CompletableFuture<Integer> countTokens(String text);
+
+	/**
+	 * Encodes the given text asynchronously, like {@link Encoding#encode(String)}.
+	 *
+	 * @param text the text to encode
+	 * @return a future that completes with the tokens, or fails with an {@link UnsupportedOperationException} if the
+	 * text contains special tokens
+	 */
+	CompletableFuture<List<Integer>> encode(String text);
+
+	/**
+	 * Encodes the given text asynchronously, like {@link Encoding#encodeOrdinary(String)}.
+	 *
+	 * @param text the text to encode
+	 * @return a future that completes with the tokens
+	 */
+	CompletableFuture<List<Integer>> encodeOrdinary(String text);
+
+	/**
+	 * Returns a snapshot of the metrics of this service.
+	 *
+	 * @return the metrics
+	 */
+	TokenizationMetrics getMetrics();
+
+	/**
+	 * Stops the worker threads after they processed all requests that were submitted so far, and waits for them to
+	 * terminate.
+	 */
+	@Override
+	void close();
+}
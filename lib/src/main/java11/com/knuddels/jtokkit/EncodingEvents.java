@@ -0,0 +1,56 @@
+package com.knuddels.jtokkit;
+
+/**
+ * Factory for the {@link EncodingEvent}s emitted by {@link GptBytePairEncoding}.
+ * <p>
+ * Emits Java Flight Recorder events, if the {@code jdk.jfr} module is present at runtime. Otherwise, nothing
+ * is recorded. The JFR classes are only loaded after their presence has been verified, so runtimes without
+ * JFR never touch them.
+ * <p>
+ * Only calls that take longer than the threshold of the respective event are recorded. The threshold can be
+ * configured like for any other JFR event, for example with
+ * {@code -XX:StartFlightRecording:com.knuddels.jtokkit.Encode#threshold=5ms}.
+ */
+final class EncodingEvents {
+
+	private static final boolean JFR_AVAILABLE = isJfrAvailable();
+
+	/**
+	 * Begins recording an encode call.
+	 *
+	 * @return the event to complete once the call finished, or {@code null} if encode calls are not recorded
+	 */
+	static EncodingEvent encode() {
+		return JFR_AVAILABLE ? JfrEncodingEvent.encode() : null;
+	}
+
+	/**
+	 * Begins recording a decode call.
+	 *
+	 * @return the event to complete once the call finished, or {@code null} if decode calls are not recorded
+	 */
+	static EncodingEvent decode() {
+		return JFR_AVAILABLE ? JfrEncodingEvent.decode() : null;
+	}
+
+	/**
+	 * Begins recording a count call.
+	 *
+	 * @return the event to complete once the call finished, or {@code null} if count calls are not recorded
+	 */
+	static EncodingEvent count() {
+		return JFR_AVAILABLE ? JfrEncodingEvent.count() : null;
+	}
+
+	private static boolean isJfrAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, EncodingEvents.class.getClassLoader());
+			return true;
+		} catch (final ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private EncodingEvents() {
+	}
+}
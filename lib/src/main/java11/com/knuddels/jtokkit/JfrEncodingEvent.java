@@ -0,0 +1,86 @@
+package com.knuddels.jtokkit;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Base class of the Java Flight Recorder events emitted for encode, decode and count calls. It must only be
+ * loaded if JFR is present, see {@link EncodingEvents}.
+ */
+@Category("JTokkit")
+abstract class JfrEncodingEvent extends Event implements EncodingEvent {
+
+	@Label("Encoding")
+	String encoding;
+
+	@Label("Text Length")
+	@Description("Length of the encoded text in characters, or of the decoded text in bytes")
+	int textLength;
+
+	@Label("Token Count")
+	int tokenCount;
+
+	@Label("Longest Piece")
+	@Description("Length of the longest piece or token in bytes")
+	@DataAmount(DataAmount.BYTES)
+	int longestPiece;
+
+	static EncodingEvent encode() {
+		return begin(new Encode());
+	}
+
+	static EncodingEvent decode() {
+		return begin(new Decode());
+	}
+
+	static EncodingEvent count() {
+		return begin(new Count());
+	}
+
+	private static EncodingEvent begin(final JfrEncodingEvent event) {
+		if (!event.isEnabled()) {
+			return null;
+		}
+
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void complete(final String encodingName, final int textLength, final int tokenCount, final int longestPiece) {
+		end();
+		if (shouldCommit()) {
+			this.encoding = encodingName;
+			this.textLength = textLength;
+			this.tokenCount = tokenCount;
+			this.longestPiece = longestPiece;
+			commit();
+		}
+	}
+
+	@Name("com.knuddels.jtokkit.Encode")
+	@Label("Encode")
+	@Description("Encoding of a text into tokens")
+	@Threshold("10 ms")
+	static final class Encode extends JfrEncodingEvent {
+	}
+
+	@Name("com.knuddels.jtokkit.Decode")
+	@Label("Decode")
+	@Description("Decoding of tokens into a text")
+	@Threshold("10 ms")
+	static final class Decode extends JfrEncodingEvent {
+	}
+
+	@Name("com.knuddels.jtokkit.CountTokens")
+	@Label("Count Tokens")
+	@Description("Counting of the tokens of a text")
+	@Threshold("10 ms")
+	static final class Count extends JfrEncodingEvent {
+	}
+}
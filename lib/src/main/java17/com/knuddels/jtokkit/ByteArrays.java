@@ -0,0 +1,29 @@
+package com.knuddels.jtokkit;
+
+import java.util.Arrays;
+
+/**
+ * Compares ranges of byte arrays, e.g. a part of a piece with a token of the vocabulary.
+ * <p>
+ * The range comparison of {@link Arrays} is an intrinsic, which compares many bytes at once with vector
+ * instructions.
+ */
+final class ByteArrays {
+
+	/**
+	 * Returns whether the given ranges of the given arrays contain the same bytes.
+	 *
+	 * @param bytes      the first array
+	 * @param start      the start of the range of the first array
+	 * @param otherBytes the second array
+	 * @param otherStart the start of the range of the second array
+	 * @param length     the length of both ranges
+	 * @return true if both ranges contain the same bytes
+	 */
+	static boolean equals(final byte[] bytes, final int start, final byte[] otherBytes, final int otherStart, final int length) {
+		return Arrays.equals(bytes, start, start + length, otherBytes, otherStart, otherStart + length);
+	}
+
+	private ByteArrays() {
+	}
+}
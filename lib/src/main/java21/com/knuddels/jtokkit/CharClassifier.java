@@ -0,0 +1,56 @@
+package com.knuddels.jtokkit;
+
+import static com.knuddels.jtokkit.PiecePattern.NON_ASCII;
+
+/**
+ * Classifies blocks of chars into the classes of a {@link PiecePattern}, e.g. {@link PiecePattern#LETTER}, so that
+ * {@link PieceMatcher} can find the boundaries of the pieces.
+ * <p>
+ * If the {@code jdk.incubator.vector} module is present at runtime, e.g. because the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}, a whole vector of chars is classified at once by
+ * {@link VectorCharClassifier}. Otherwise, every char is looked up in the table of the pattern.
+ */
+class CharClassifier {
+
+	/**
+	 * The number of chars that are classified at once.
+	 */
+	static final int BLOCK_LENGTH = 64;
+
+	private final byte[] asciiClasses;
+
+	CharClassifier(final byte[] asciiClasses) {
+		this.asciiClasses = asciiClasses;
+	}
+
+	/**
+	 * Creates a classifier for the given classes of the ASCII chars.
+	 *
+	 * @param asciiClasses the classes of the 128 ASCII chars
+	 * @return the classifier
+	 */
+	static CharClassifier of(final byte[] asciiClasses) {
+		if (VectorApi.AVAILABLE && VectorCharClassifier.supports(asciiClasses)) {
+			return new VectorCharClassifier(asciiClasses);
+		}
+		return new CharClassifier(asciiClasses);
+	}
+
+	/**
+	 * Classifies the first chars of the given block. Non-ASCII chars are classified as {@link PiecePattern#NON_ASCII}.
+	 *
+	 * @param chars   the block of chars
+	 * @param length  the number of chars to classify
+	 * @param classes receives the class of each char
+	 */
+	void classify(final char[] chars, final int length, final byte[] classes) {
+		classify(chars, 0, length, classes);
+	}
+
+	final void classify(final char[] chars, final int start, final int end, final byte[] classes) {
+		for (int i = start; i < end; i++) {
+			final char c = chars[i];
+			classes[i] = c < 128 ? asciiClasses[c] : NON_ASCII;
+		}
+	}
+}
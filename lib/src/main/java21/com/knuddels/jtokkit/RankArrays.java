@@ -0,0 +1,40 @@
+package com.knuddels.jtokkit;
+
+/**
+ * Finds the next merge in the merge loop of {@link GptBytePairEncoding}, which is the one with the lowest rank.
+ * <p>
+ * Every merge scans all remaining ranks of the piece, so merging a long piece takes time quadratic in its length. If
+ * the {@code jdk.incubator.vector} module is present at runtime, the ranks of long pieces are scanned a whole vector
+ * at a time by {@link VectorRankArrays}. Short pieces, which are by far the most common, are scanned one rank at a
+ * time, since there are too few ranks to fill the vectors.
+ */
+final class RankArrays {
+
+	private static final int VECTOR_THRESHOLD = 64;
+
+	/**
+	 * Returns the index of the lowest rank, or the index of the first one if several ranks are the lowest.
+	 *
+	 * @param ranks  the ranks
+	 * @param length the number of ranks to scan
+	 * @return the index of the lowest rank, or 0 if the length is 0
+	 */
+	static int indexOfMinimum(final int[] ranks, final int length) {
+		if (length >= VECTOR_THRESHOLD && VectorApi.AVAILABLE) {
+			return VectorRankArrays.indexOfMinimum(ranks, length);
+		}
+
+		int minIndex = 0;
+		int min = Integer.MAX_VALUE;
+		for (int i = 0; i < length; i++) {
+			if (ranks[i] < min) {
+				min = ranks[i];
+				minIndex = i;
+			}
+		}
+		return minIndex;
+	}
+
+	private RankArrays() {
+	}
+}
@@ -0,0 +1,26 @@
+package com.knuddels.jtokkit;
+
+/**
+ * Tells whether the incubating Vector API can be used. Its module {@code jdk.incubator.vector} is only present if it
+ * was added explicitly, e.g. with {@code --add-modules jdk.incubator.vector}. The classes that use the Vector API must
+ * only be loaded if it is available.
+ */
+final class VectorApi {
+
+	/**
+	 * Whether the {@code jdk.incubator.vector} module is present.
+	 */
+	static final boolean AVAILABLE = isAvailable();
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.incubator.vector.IntVector", false, VectorApi.class.getClassLoader());
+			return true;
+		} catch (final ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private VectorApi() {
+	}
+}
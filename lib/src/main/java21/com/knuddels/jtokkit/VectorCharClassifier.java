@@ -0,0 +1,79 @@
+package com.knuddels.jtokkit;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+import static com.knuddels.jtokkit.PiecePattern.LETTER;
+import static com.knuddels.jtokkit.PiecePattern.NEWLINE;
+import static com.knuddels.jtokkit.PiecePattern.NON_ASCII;
+import static com.knuddels.jtokkit.PiecePattern.NUMBER;
+import static com.knuddels.jtokkit.PiecePattern.OTHER;
+import static com.knuddels.jtokkit.PiecePattern.WHITESPACE;
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.NE;
+import static jdk.incubator.vector.VectorOperators.S2B;
+import static jdk.incubator.vector.VectorOperators.UNSIGNED_LE;
+
+/**
+ * A {@link CharClassifier} that classifies a whole vector of chars at once with the Vector API, by comparing the
+ * chars with the ranges of the ASCII letters, digits and whitespace. It must only be loaded if the
+ * {@code jdk.incubator.vector} module is present, see {@link CharClassifier}.
+ */
+final class VectorCharClassifier extends CharClassifier {
+
+	private static final VectorSpecies<Short> CHARS = ShortVector.SPECIES_PREFERRED;
+	// Each class takes a byte, so the classes of a vector of chars fill a vector of half the size
+	private static final VectorSpecies<Byte> CLASSES = VectorSpecies.of(byte.class, VectorShape.forBitSize(CHARS.vectorBitSize() / 2));
+
+	VectorCharClassifier(final byte[] asciiClasses) {
+		super(asciiClasses);
+	}
+
+	/**
+	 * Returns whether the given classes of the ASCII chars are those computed by this classifier, which is the case
+	 * for the patterns of the predefined encodings.
+	 *
+	 * @param asciiClasses the classes of the 128 ASCII chars
+	 * @return true if this classifier can classify chars for the given classes
+	 */
+	static boolean supports(final byte[] asciiClasses) {
+		final char[] chars = new char[128];
+		for (char c = 0; c < chars.length; c++) {
+			chars[c] = c;
+		}
+		final byte[] classes = new byte[chars.length];
+		classifyVectors(chars, 0, chars.length, classes);
+		return Arrays.equals(classes, asciiClasses);
+	}
+
+	@Override
+	void classify(final char[] chars, final int length, final byte[] classes) {
+		final int vectorEnd = CHARS.loopBound(length);
+		classifyVectors(chars, 0, vectorEnd, classes);
+		classify(chars, vectorEnd, length, classes);
+	}
+
+	private static void classifyVectors(final char[] chars, final int start, final int end, final byte[] classes) {
+		for (int i = start; i < end; i += CHARS.length()) {
+			final ShortVector c = ShortVector.fromCharArray(CHARS, chars, i);
+			// Unsigned comparisons of the difference to the lower bound check a whole range at once
+			final VectorMask<Short> letter = c.or((short) 0x20).sub((short) 'a').compare(UNSIGNED_LE, 'z' - 'a');
+			final VectorMask<Short> number = c.sub((short) '0').compare(UNSIGNED_LE, '9' - '0');
+			final VectorMask<Short> whitespace = c.sub((short) '\t').compare(UNSIGNED_LE, '\r' - '\t').or(c.compare(EQ, ' '));
+			final VectorMask<Short> newline = c.compare(EQ, '\n').or(c.compare(EQ, '\r'));
+			final VectorMask<Short> nonAscii = c.and((short) ~0x7F).compare(NE, 0);
+			final ShortVector charClasses = ShortVector.broadcast(CHARS, OTHER)
+					.blend(LETTER, letter)
+					.blend(NUMBER, number)
+					.blend(WHITESPACE, whitespace)
+					.blend(WHITESPACE | NEWLINE, newline)
+					.blend(NON_ASCII, nonAscii);
+			charClasses.convertShape(S2B, CLASSES, 0).reinterpretAsBytes().intoArray(classes, i);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package com.knuddels.jtokkit;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.EQ;
+import static jdk.incubator.vector.VectorOperators.MIN;
+
+/**
+ * Scans ranks a whole vector at a time with the Vector API. It must only be loaded if the
+ * {@code jdk.incubator.vector} module is present, see {@link RankArrays}.
+ */
+final class VectorRankArrays {
+
+	private static final VectorSpecies<Integer> RANKS = IntVector.SPECIES_PREFERRED;
+
+	static int indexOfMinimum(final int[] ranks, final int length) {
+		final int vectorEnd = RANKS.loopBound(length);
+		IntVector minima = IntVector.broadcast(RANKS, Integer.MAX_VALUE);
+		for (int i = 0; i < vectorEnd; i += RANKS.length()) {
+			minima = minima.min(IntVector.fromArray(RANKS, ranks, i));
+		}
+		int min = minima.reduceLanes(MIN);
+		for (int i = vectorEnd; i < length; i++) {
+			min = Math.min(min, ranks[i]);
+		}
+
+		// The minimum is known now, so the second pass only has to find its first occurrence
+		for (int i = 0; i < vectorEnd; i += RANKS.length()) {
+			final int lane = IntVector.fromArray(RANKS, ranks, i).compare(EQ, min).firstTrue();
+			if (lane < RANKS.length()) {
+				return i + lane;
+			}
+		}
+		for (int i = vectorEnd; i < length; i++) {
+			if (ranks[i] == min) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	private VectorRankArrays() {
+	}
+}
@@ -40,6 +40,15 @@ public abstract class BaseEncodingRegistryTest<T extends AbstractEncodingRegistr
         }
     }
 
+    @Test
+    public void getEncodingAsyncReturnsSameEncodingAsGetEncoding() {
+        for (final EncodingType type : EncodingType.values()) {
+            final Encoding encoding = registry.getEncodingAsync(type).join();
+            assertEquals(type.getName(), encoding.getName());
+            assertSame(registry.getEncoding(type), encoding);
+        }
+    }
+
     @Test
     void getEncodingByNameReturnsCorrectEncoding() {
         for (final EncodingType type : EncodingType.values()) {
@@ -0,0 +1,57 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockedBloomFilterTest {
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 2, 17, 1000, 100_000})
+	public void containsAllAddedKeys(final int size) {
+		final Random random = new Random(size);
+		final long[] keys = random.longs(size).toArray();
+		final long[] words = new long[BlockedBloomFilter.wordCount(size)];
+		for (final long key : keys) {
+			BlockedBloomFilter.add(words, key);
+		}
+
+		for (final long key : keys) {
+			assertTrue(mayContain(words, key));
+		}
+	}
+
+	@Test
+	public void rejectsMostOtherKeys() {
+		final int size = 100_000;
+		final long[] words = new long[BlockedBloomFilter.wordCount(size)];
+		for (long key = 0; key < size; key++) {
+			BlockedBloomFilter.add(words, key);
+		}
+
+		int falsePositives = 0;
+		for (long key = size; key < 11 * size; key++) {
+			if (mayContain(words, key)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 10 * size / 20, falsePositives + " of " + 10 * size + " other keys may be contained");
+	}
+
+	@Test
+	public void hasNoWordsForNoKeys() {
+		assertEquals(0, BlockedBloomFilter.wordCount(0));
+		assertEquals(1, BlockedBloomFilter.wordCount(1));
+	}
+
+	private static boolean mayContain(final long[] words, final long key) {
+		final long hash = BlockedBloomFilter.hash(key);
+		final long mask = BlockedBloomFilter.mask(hash);
+		return (words[BlockedBloomFilter.word(hash, words.length)] & mask) == mask;
+	}
+}
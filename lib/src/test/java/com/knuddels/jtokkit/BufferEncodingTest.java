@@ -0,0 +1,207 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.GptBytePairEncodingParams;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BufferEncodingTest {
+
+	private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+	private static final String TEXT = "Encoding into buffers 🍕 does not allocate,     not even for whitespace.";
+
+	@Test
+	public void writesTheTokensThatFitIfTheArrayIsTooSmall() {
+		final List<Integer> expected = ENCODING.encode(TEXT);
+		final int[] tokens = new int[expected.size() - 3];
+		Arrays.fill(tokens, -1);
+
+		assertEquals(-expected.size(), ENCODING.encode(TEXT, tokens, 2));
+		assertEquals(-1, tokens[1]);
+		assertArrayEquals(expected.subList(0, tokens.length - 2).stream().mapToInt(Integer::intValue).toArray(), Arrays.copyOfRange(tokens, 2, tokens.length));
+		assertEquals(0, ENCODING.encode("", tokens, tokens.length));
+		assertEquals(0, ENCODING.encode(null, tokens, 0));
+	}
+
+	@Test
+	public void advancesBuffersOnlyIfTheResultFits() {
+		final List<Integer> expected = ENCODING.encode(TEXT);
+		final IntBuffer tooSmall = IntBuffer.allocate(expected.size() - 1);
+		assertEquals(-expected.size(), ENCODING.encodeOrdinary(TEXT, tooSmall));
+		assertEquals(0, tooSmall.position());
+
+		final IntBuffer tokens = ByteBuffer.allocateDirect(4 * (expected.size() + 2)).asIntBuffer();
+		tokens.position(2);
+		assertEquals(expected.size(), ENCODING.encodeOrdinary(TEXT, tokens));
+		assertEquals(expected.size() + 2, tokens.position());
+
+		tokens.flip().position(2);
+		final ByteBuffer bytes = ByteBuffer.allocate(TEXT.length());
+		assertEquals(-TEXT.getBytes(StandardCharsets.UTF_8).length, ENCODING.decodeBytes(tokens, bytes));
+		assertEquals(2, tokens.position());
+		assertEquals(0, bytes.position());
+
+		final ByteBuffer slice = ((ByteBuffer) ByteBuffer.allocate(200).position(10)).slice();
+		assertEquals(TEXT.getBytes(StandardCharsets.UTF_8).length, ENCODING.decodeBytes(tokens, slice));
+		assertEquals(tokens.limit(), tokens.position());
+		assertEquals(TEXT, new String(slice.array(), slice.arrayOffset(), slice.position(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void decodesOnlyAPrefixOfWholeTokensIfTheArrayIsTooSmall() {
+		final int[] tokens = ENCODING.encode(TEXT).stream().mapToInt(Integer::intValue).toArray();
+		final byte[] bytes = new byte[20];
+
+		assertEquals(-TEXT.getBytes(StandardCharsets.UTF_8).length, ENCODING.decodeBytes(tokens, 0, tokens.length, bytes, 0));
+		int prefixTokens = 0;
+		while (ENCODING.decodeBytes(ENCODING.encode(TEXT).subList(0, prefixTokens + 1)).length <= bytes.length) {
+			prefixTokens++;
+		}
+		final byte[] prefix = ENCODING.decodeBytes(ENCODING.encode(TEXT).subList(0, prefixTokens));
+		assertArrayEquals(prefix, Arrays.copyOf(bytes, prefix.length));
+	}
+
+	@Test
+	public void decodesSpecialTokens() {
+		final int[] tokens = {15339, 100257, 1917};
+		final byte[] bytes = new byte[32];
+
+		final int byteCount = ENCODING.decodeBytes(tokens, 0, tokens.length, bytes, 0);
+		assertEquals("hello<|endoftext|> world", new String(bytes, 0, byteCount, StandardCharsets.UTF_8));
+		assertThrows(IllegalArgumentException.class, () -> ENCODING.decodeBytes(new int[]{Integer.MAX_VALUE}, 0, 1, bytes, 0));
+	}
+
+	@Test
+	public void rejectsSpecialTokensAndRangesOutOfBounds() {
+		final int[] tokens = new int[16];
+
+		assertThrows(UnsupportedOperationException.class, () -> ENCODING.encode("hello <|endoftext|>", tokens, 0));
+		assertEquals(8, ENCODING.encodeOrdinary("hello <|endoftext|> world", tokens, 0));
+		assertThrows(IndexOutOfBoundsException.class, () -> ENCODING.encode("hello", tokens, 17));
+		assertThrows(IndexOutOfBoundsException.class, () -> ENCODING.decodeBytes(tokens, 10, 7, new byte[64], 0));
+	}
+
+	@Test
+	public void encodesPiecesLongerThanTheScratchArrays() {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < EncodingScratch.MAX_RETAINED_LENGTH; i++) {
+			text.append("ab");
+		}
+		final List<Integer> expected = ENCODING.encode(text.toString());
+		final int[] tokens = new int[expected.size()];
+
+		for (int i = 0; i < 2; i++) {
+			assertEquals(expected.size(), ENCODING.encode(text.toString(), tokens, 0));
+			assertEquals(expected, Arrays.stream(tokens).boxed().collect(Collectors.toList()));
+			assertEquals(2, ENCODING.encode("hello world", tokens, 0));
+		}
+	}
+
+	@Test
+	public void mergesBytesWithoutPairTable() {
+		final Map<byte[], Integer> mergeableRanks = new HashMap<>();
+		final String[] tokens = {"a", "b", "ab", " ", "c"};
+		for (int i = 0; i < tokens.length; i++) {
+			mergeableRanks.put(tokens[i].getBytes(StandardCharsets.UTF_8), i);
+		}
+		final Encoding encoding = new GptBytePairEncoding(new GptBytePairEncodingParams("custom", Pattern.compile("\\S+|\\s+"), mergeableRanks, new HashMap<>()));
+		final int[] out = new int[8];
+
+		assertEquals(6, encoding.encode("ab c abc", out, 0));
+		assertArrayEquals(new int[]{2, 3, 4, 3, 2, 4}, Arrays.copyOf(out, 6));
+	}
+
+	@Test
+	public void defaultImplementationsCopyTheLists() {
+		final Encoding encoding = new DelegatingEncoding(ENCODING);
+		final List<Integer> expected = ENCODING.encode(TEXT);
+		final int[] tokens = new int[expected.size()];
+
+		assertEquals(expected.size(), encoding.encode(TEXT, tokens, 0));
+		assertEquals(-expected.size(), encoding.encodeOrdinary(TEXT, new int[1], 0));
+		final IntBuffer buffer = IntBuffer.allocate(expected.size());
+		assertEquals(expected.size(), encoding.encodeOrdinary(TEXT, buffer));
+		assertArrayEquals(tokens, buffer.array());
+
+		final byte[] bytes = new byte[100];
+		final int byteCount = encoding.decodeBytes(tokens, 0, tokens.length, bytes, 0);
+		assertEquals(TEXT, new String(bytes, 0, byteCount, StandardCharsets.UTF_8));
+		buffer.flip();
+		final ByteBuffer byteBuffer = ByteBuffer.allocate(100);
+		assertEquals(byteCount, encoding.decodeBytes(buffer, byteBuffer));
+		assertEquals(byteCount, byteBuffer.position());
+		assertEquals(expected.size(), buffer.position());
+	}
+
+	/*
+	 * Only implements the abstract methods, so that the default implementations of the others are used.
+	 */
+	private static final class DelegatingEncoding implements Encoding {
+
+		private final Encoding delegate;
+
+		private DelegatingEncoding(final Encoding delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public List<Integer> encode(final String text) {
+			return delegate.encode(text);
+		}
+
+		@Override
+		public EncodingResult encode(final String text, final int maxTokens) {
+			return delegate.encode(text, maxTokens);
+		}
+
+		@Override
+		public List<Integer> encodeOrdinary(final String text) {
+			return delegate.encodeOrdinary(text);
+		}
+
+		@Override
+		public EncodingResult encodeOrdinary(final String text, final int maxTokens) {
+			return delegate.encodeOrdinary(text, maxTokens);
+		}
+
+		@Override
+		public int countTokens(final String text) {
+			return delegate.countTokens(text);
+		}
+
+		@Override
+		public int countTokensOrdinary(final String text) {
+			return delegate.countTokensOrdinary(text);
+		}
+
+		@Override
+		public String decode(final List<Integer> tokens) {
+			return delegate.decode(tokens);
+		}
+
+		@Override
+		public byte[] decodeBytes(final List<Integer> tokens) {
+			return delegate.decodeBytes(tokens);
+		}
+
+		@Override
+		public String getName() {
+			return delegate.getName();
+		}
+	}
+}
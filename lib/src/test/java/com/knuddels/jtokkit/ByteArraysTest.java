@@ -0,0 +1,46 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ByteArraysTest {
+
+	@Test
+	public void comparesRangesOfArrays() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 10_000; i++) {
+			// Only a few distinct bytes, so that equal ranges are common
+			final byte[] bytes = new byte[random.nextInt(100)];
+			final byte[] otherBytes = new byte[random.nextInt(100)];
+			for (int j = 0; j < bytes.length; j++) {
+				bytes[j] = (byte) random.nextInt(2);
+			}
+			for (int j = 0; j < otherBytes.length; j++) {
+				otherBytes[j] = (byte) random.nextInt(2);
+			}
+
+			final int length = random.nextInt(Math.min(bytes.length, otherBytes.length) + 1);
+			final int start = random.nextInt(bytes.length - length + 1);
+			final int otherStart = random.nextInt(otherBytes.length - length + 1);
+			final boolean expected = Arrays.equals(
+					Arrays.copyOfRange(bytes, start, start + length),
+					Arrays.copyOfRange(otherBytes, otherStart, otherStart + length)
+			);
+			assertEquals(expected, ByteArrays.equals(bytes, start, otherBytes, otherStart, length));
+		}
+	}
+
+	@Test
+	public void comparesOnlyTheRanges() {
+		final byte[] bytes = {1, 2, 3, 4};
+		assertTrue(ByteArrays.equals(bytes, 1, new byte[]{9, 9, 2, 3, 9}, 2, 2));
+		assertTrue(ByteArrays.equals(bytes, 4, new byte[0], 0, 0));
+		assertFalse(ByteArrays.equals(bytes, 0, bytes, 1, 3));
+	}
+}
@@ -0,0 +1,47 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that merging token ids with the pair table gives the same tokens as merging bytes, for every piece of the
+ * reference inputs.
+ */
+public class BytePairMergeEnginesTest {
+
+	private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/cl100k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void cl100kBaseEnginesMergeEqually(final String input) {
+		assertEnginesMergeEqually(EncodingType.CL100K_BASE, input);
+	}
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/p50k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void p50kBaseEnginesMergeEqually(final String input) {
+		assertEnginesMergeEqually(EncodingType.P50K_BASE, input);
+	}
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/r50k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void r50kBaseEnginesMergeEqually(final String input) {
+		assertEnginesMergeEqually(EncodingType.R50K_BASE, input);
+	}
+
+	private static void assertEnginesMergeEqually(final EncodingType encodingType, final String input) {
+		final GptBytePairEncoding encoding = (GptBytePairEncoding) REGISTRY.getEncoding(encodingType);
+		final Matcher matcher = encoding.getPattern().matcher(input);
+		while (matcher.find()) {
+			final byte[] piece = matcher.group().getBytes(StandardCharsets.UTF_8);
+			assertEquals(encoding.bytePairMergeBytes(piece), encoding.bytePairMergeTokenIds(piece), matcher.group());
+		}
+	}
+}
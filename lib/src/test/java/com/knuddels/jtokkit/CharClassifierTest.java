@@ -0,0 +1,55 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class CharClassifierTest {
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	public void classifiesCharsLikeTheirLetterNumberAndWhitespaceProperties(final boolean unicodeCharacterClass) {
+		final int flags = unicodeCharacterClass ? Pattern.UNICODE_CHARACTER_CLASS : 0;
+		final Pattern letter = Pattern.compile("\\p{L}", flags);
+		final Pattern number = Pattern.compile("\\p{N}", flags);
+		final Pattern whitespace = Pattern.compile("\\s", flags);
+		final CharClassifier classifier = PiecePattern.of(Pattern.compile(PiecePattern.CL100K_PATTERN, flags)).classifier();
+
+		final Random random = new Random(flags);
+		final char[] chars = new char[CharClassifier.BLOCK_LENGTH];
+		final byte[] classes = new byte[CharClassifier.BLOCK_LENGTH];
+		for (int i = 0; i < 10_000; i++) {
+			final int length = random.nextInt(chars.length + 1);
+			for (int j = 0; j < chars.length; j++) {
+				// Mostly ASCII, with some chars right above it and some from anywhere
+				final int kind = random.nextInt(8);
+				chars[j] = (char) (kind == 0 ? random.nextInt(Character.MAX_VALUE + 1) : random.nextInt(kind == 1 ? 256 : 128));
+			}
+			Arrays.fill(classes, (byte) -1);
+			classifier.classify(chars, length, classes);
+
+			final byte[] expected = new byte[classes.length];
+			Arrays.fill(expected, (byte) -1);
+			for (int j = 0; j < length; j++) {
+				final String c = String.valueOf(chars[j]);
+				if (chars[j] >= 128) {
+					expected[j] = PiecePattern.NON_ASCII;
+				} else if (letter.matcher(c).matches()) {
+					expected[j] = PiecePattern.LETTER;
+				} else if (number.matcher(c).matches()) {
+					expected[j] = PiecePattern.NUMBER;
+				} else if (whitespace.matcher(c).matches()) {
+					expected[j] = (byte) (c.equals("\r") || c.equals("\n") ? PiecePattern.WHITESPACE | PiecePattern.NEWLINE : PiecePattern.WHITESPACE);
+				} else {
+					expected[j] = PiecePattern.OTHER;
+				}
+			}
+			assertArrayEquals(expected, classes, new String(chars, 0, length));
+		}
+	}
+}
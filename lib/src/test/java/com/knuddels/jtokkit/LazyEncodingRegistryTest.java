@@ -1,11 +1,17 @@
 package com.knuddels.jtokkit;
 
 import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LazyEncodingRegistryTest extends BaseEncodingRegistryTest<LazyEncodingRegistry> {
@@ -15,11 +21,38 @@ public class LazyEncodingRegistryTest extends BaseEncodingRegistryTest<LazyEncod
 	}
 
 	@Test
-	@SuppressWarnings("unchecked")
 	public void initializeWithEmptyEncoding() throws NoSuchFieldException, IllegalAccessException {
+		assertTrue(encodings().isEmpty());
+	}
+
+	@Test
+	public void concurrentRequestsShareOneEncoding() {
+		final List<CompletableFuture<Encoding>> encodings = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			encodings.add(registry.getEncodingAsync(EncodingType.R50K_BASE));
+			encodings.add(CompletableFuture.supplyAsync(() -> registry.getEncoding(EncodingType.R50K_BASE)));
+		}
+
+		final Encoding encoding = registry.getEncoding(EncodingType.R50K_BASE);
+		for (final CompletableFuture<Encoding> otherEncoding : encodings) {
+			assertSame(encoding, otherEncoding.join());
+		}
+	}
+
+	@Test
+	public void preloadEncodingsLoadsInBackground() throws NoSuchFieldException, IllegalAccessException {
+		registry.preloadEncodings(EncodingType.P50K_BASE, EncodingType.P50K_EDIT);
+
+		final Encoding encoding = registry.getEncodingAsync(EncodingType.P50K_EDIT).join();
+		assertSame(encoding, encodings().get(EncodingType.P50K_EDIT.getName()));
+		assertSame(registry.getEncoding(EncodingType.P50K_BASE), encodings().get(EncodingType.P50K_BASE.getName()));
+		assertFalse(encodings().containsKey(EncodingType.CL100K_BASE.getName()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private ConcurrentHashMap<String, Encoding> encodings() throws NoSuchFieldException, IllegalAccessException {
 		final Field field = AbstractEncodingRegistry.class.getDeclaredField("encodings");
 		field.setAccessible(true);
-		final ConcurrentHashMap<String, Encoding> encodings = (ConcurrentHashMap<String, Encoding>) field.get(registry);
-		assertTrue(encodings.isEmpty());
+		return (ConcurrentHashMap<String, Encoding>) field.get(registry);
 	}
 }
@@ -0,0 +1,114 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedTokenVocabularyTest {
+
+	private Path directory;
+
+	@BeforeEach
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("jtokkit-vocabulary");
+	}
+
+	@AfterEach
+	public void deleteDirectory() throws IOException {
+		try (final Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"cl100k_base", "p50k_base", "r50k_base"})
+	public void containsAllMergeableRanks(final String encodingName) {
+		final Map<byte[], Integer> mergeableRanks = EncodingFactory.loadMergeableRanks("/com/knuddels/jtokkit/" + encodingName + ".tiktoken");
+		final TokenVocabulary vocabulary = MappedTokenVocabulary.open(directory, encodingName, () -> MergeableRanks.of(mergeableRanks));
+
+		assertEquals(mergeableRanks.size(), vocabulary.size());
+		for (final Map.Entry<byte[], Integer> entry : mergeableRanks.entrySet()) {
+			final byte[] token = entry.getKey();
+			assertEquals(entry.getValue(), vocabulary.getRank(token, 0, token.length));
+			assertArrayEquals(token, vocabulary.getBytes(entry.getValue()));
+		}
+
+		final TokenVocabulary heapVocabulary = TokenVocabulary.from(mergeableRanks);
+		assertEquals(heapVocabulary.pairCount(), vocabulary.pairCount());
+		for (final byte[] token : mergeableRanks.keySet()) {
+			final int left = vocabulary.getRank(token, 0, 1);
+			final int right = vocabulary.getRank(token, 1, token.length);
+			assertEquals(heapVocabulary.getPairRank(left, right), vocabulary.getPairRank(left, right));
+		}
+
+		final byte[] unknown = "not a single token".getBytes(StandardCharsets.UTF_8);
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getRank(unknown, 0, unknown.length));
+		assertNull(vocabulary.getBytes(-1));
+	}
+
+	@Test
+	public void reusesExistingFile() {
+		final Map<byte[], Integer> mergeableRanks = EncodingFactory.loadMergeableRanks("/com/knuddels/jtokkit/r50k_base.tiktoken");
+		MappedTokenVocabulary.open(directory, "r50k_base", () -> MergeableRanks.of(mergeableRanks));
+
+		final TokenVocabulary vocabulary = MappedTokenVocabulary.open(directory, "r50k_base", () -> {
+			throw new AssertionError("The existing file should be mapped");
+		});
+		assertEquals(mergeableRanks.size(), vocabulary.size());
+	}
+
+	@Test
+	public void keepsHashSeed() {
+		final Map<byte[], Integer> mergeableRanks = TokenVocabularyTest.collidingRanks();
+		final TokenVocabulary heapVocabulary = TokenVocabulary.from(mergeableRanks);
+		final TokenVocabulary vocabulary = MappedTokenVocabulary.open(directory, "colliding", () -> MergeableRanks.of(mergeableRanks));
+
+		assertEquals(heapVocabulary.hashSeed(), vocabulary.hashSeed());
+		for (final Map.Entry<byte[], Integer> entry : mergeableRanks.entrySet()) {
+			final byte[] token = entry.getKey();
+			assertEquals(entry.getValue(), vocabulary.getRank(token, 0, token.length));
+		}
+	}
+
+	@Test
+	public void rejectsFilesOfOtherFormats() throws IOException {
+		final Path file = directory.resolve("other");
+		Files.write(file, "not a vocabulary".getBytes(StandardCharsets.UTF_8));
+
+		assertThrows(IllegalStateException.class, () -> MappedTokenVocabulary.map(file));
+	}
+
+	@ParameterizedTest
+	@EnumSource(EncodingType.class)
+	public void encodesLikeHeapVocabulary(final EncodingType encodingType) {
+		final Encoding heapEncoding = Encodings.newLazyEncodingRegistry().getEncoding(encodingType);
+		final Encoding mappedEncoding = Encodings.newLazyEncodingRegistry(directory).getEncoding(encodingType);
+
+		final String text = "Memory mapped vocabularies 🍕 encode like the ones on the heap, even for      whitespace.";
+		assertEquals(heapEncoding.encode(text), mappedEncoding.encode(text));
+		assertEquals(text, mappedEncoding.decode(mappedEncoding.encode(text)));
+
+		final int[] tokens = new int[64];
+		final byte[] bytes = new byte[256];
+		final int tokenCount = mappedEncoding.encode(text, tokens, 0);
+		assertEquals(text, new String(bytes, 0, mappedEncoding.decodeBytes(tokens, 0, tokenCount, bytes, 0), StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,100 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingFootprint;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.GptBytePairEncodingParams;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryBudgetEncodingRegistryTest extends BaseEncodingRegistryTest<MemoryBudgetEncodingRegistry> {
+
+	public MemoryBudgetEncodingRegistryTest() {
+		super(new MemoryBudgetEncodingRegistry(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void tracksFootprintOfLoadedEncodings() {
+		assertEquals(0, registry.getRetainedHeapBytes());
+
+		final Encoding encoding = registry.getEncoding(EncodingType.R50K_BASE);
+		final long loadedHeapBytes = footprint(registry, EncodingType.R50K_BASE).getHeapBytes();
+		// Merging the pieces of an unknown word builds the pair table
+		encoding.encode("antidisestablishmentarianism");
+
+		final EncodingFootprint footprint = footprint(registry, EncodingType.R50K_BASE);
+		assertTrue(footprint.isLoaded());
+		assertTrue(footprint.getHeapBytes() > loadedHeapBytes, footprint::toString);
+		assertTrue(footprint.getHeapBytes() > 1_000_000, footprint::toString);
+		assertTrue(footprint.getLastUsed().isPresent());
+		assertEquals(1, footprint.getLoadCount());
+		assertEquals(footprint.getHeapBytes(), registry.getRetainedHeapBytes());
+		assertFalse(footprint(registry, EncodingType.CL100K_BASE).isLoaded());
+	}
+
+	@Test
+	public void releasesLeastRecentlyUsedEncodingsOverBudget() throws InterruptedException {
+		final MemoryBudgetEncodingRegistry registry = new MemoryBudgetEncodingRegistry(0);
+
+		registry.getEncoding(EncodingType.R50K_BASE);
+		Thread.sleep(2);
+		registry.getEncoding(EncodingType.P50K_BASE);
+
+		assertFalse(footprint(registry, EncodingType.R50K_BASE).isLoaded());
+		assertEquals(1, footprint(registry, EncodingType.R50K_BASE).getEvictionCount());
+		assertTrue(footprint(registry, EncodingType.P50K_BASE).isLoaded());
+		assertEquals(footprint(registry, EncodingType.P50K_BASE).getHeapBytes(), registry.getRetainedHeapBytes());
+
+		final Encoding encoding = registry.getEncoding(EncodingType.R50K_BASE);
+		assertEquals(EncodingType.R50K_BASE.getName(), encoding.getName());
+		assertTrue(footprint(registry, EncodingType.R50K_BASE).isLoaded());
+		assertFalse(footprint(registry, EncodingType.P50K_BASE).isLoaded());
+	}
+
+	@Test
+	public void rejectsCustomEncodingsWithTheNameOfADefaultEncoding() {
+		final GptBytePairEncodingParams params = new GptBytePairEncodingParams(
+				EncodingType.CL100K_BASE.getName(),
+				Pattern.compile("test"),
+				Collections.emptyMap(),
+				Collections.emptyMap()
+		);
+
+		assertThrows(IllegalStateException.class, () -> registry.registerGptBytePairEncoding(params));
+		assertEquals(
+				registry.getEncoding(EncodingType.CL100K_BASE),
+				registry.getEncoding(EncodingType.CL100K_BASE.getName()).orElseThrow(AssertionError::new)
+		);
+	}
+
+	@Test
+	public void reloadsUnloadedEncodings() {
+		final Encoding encoding = registry.getEncoding(EncodingType.P50K_EDIT);
+
+		assertTrue(registry.unloadEncoding(EncodingType.P50K_EDIT));
+		assertFalse(registry.unloadEncoding(EncodingType.P50K_EDIT));
+		assertEquals(0, registry.getRetainedHeapBytes());
+
+		final Encoding reloadedEncoding = registry.getEncoding(EncodingType.P50K_EDIT);
+		assertEquals(encoding.getName(), reloadedEncoding.getName());
+		assertEquals(encoding.encode("reloaded"), reloadedEncoding.encode("reloaded"));
+		assertEquals(2, footprint(registry, EncodingType.P50K_EDIT).getLoadCount());
+		assertEquals(1, footprint(registry, EncodingType.P50K_EDIT).getEvictionCount());
+	}
+
+	@Test
+	public void rejectsNegativeMemoryBudget() {
+		assertThrows(IllegalArgumentException.class, () -> Encodings.newMemoryAwareEncodingRegistry(-1));
+	}
+
+	private static EncodingFootprint footprint(final MemoryBudgetEncodingRegistry registry, final EncodingType encodingType) {
+		return registry.getFootprints().get(encodingType.ordinal());
+	}
+}
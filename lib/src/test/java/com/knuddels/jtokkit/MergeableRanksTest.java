@@ -0,0 +1,84 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MergeableRanksTest {
+
+	@ParameterizedTest
+	@ValueSource(strings = {"cl100k_base", "p50k_base", "r50k_base"})
+	public void parsesLikeReadingLinesAndDecodingBase64(final String encodingName) throws IOException {
+		final String fileName = "/com/knuddels/jtokkit/" + encodingName + ".tiktoken";
+		final List<byte[]> expectedTokens = new ArrayList<>();
+		final List<Integer> expectedRanks = new ArrayList<>();
+		try (final InputStream in = MergeableRanksTest.class.getResourceAsStream(fileName)) {
+			final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] parts = line.split("\\s+", 2);
+				expectedTokens.add(Base64.getDecoder().decode(parts[0]));
+				expectedRanks.add(Integer.parseInt(parts[1]));
+			}
+		}
+
+		final MergeableRanks mergeableRanks = MergeableRanks.load(fileName);
+		assertEquals(expectedTokens.size(), mergeableRanks.size());
+		for (int token = 0; token < mergeableRanks.size(); token++) {
+			final byte[] bytes = Arrays.copyOfRange(mergeableRanks.arena(), mergeableRanks.start(token), mergeableRanks.start(token + 1));
+			assertArrayEquals(expectedTokens.get(token), bytes);
+			assertEquals(expectedRanks.get(token).intValue(), mergeableRanks.rank(token));
+		}
+		assertEquals(mergeableRanks.arena().length, mergeableRanks.start(mergeableRanks.size()));
+	}
+
+	@Test
+	public void parsesPaddingAndLineEndings() {
+		final MergeableRanks mergeableRanks = parse("YQ== 0\r\nYWI= 1\nYWJj  -2\nYWJjZA== 2147483647");
+
+		assertEquals(4, mergeableRanks.size());
+		assertEquals("aababcabcd", new String(mergeableRanks.arena(), StandardCharsets.US_ASCII));
+		assertEquals(0, mergeableRanks.rank(0));
+		assertEquals(1, mergeableRanks.rank(1));
+		assertEquals(-2, mergeableRanks.rank(2));
+		assertEquals(Integer.MAX_VALUE, mergeableRanks.rank(3));
+
+		final Map<byte[], Integer> map = mergeableRanks.toMap();
+		assertEquals(4, map.size());
+		assertEquals(0, parse("").size());
+		assertEquals(1, parse("YQ== 0\n").size());
+	}
+
+	@Test
+	public void rejectsInvalidLines() {
+		assertThrows(IllegalStateException.class, () -> parse("YQ==0"));
+		assertThrows(IllegalStateException.class, () -> parse("YQ= 0"));
+		assertThrows(IllegalStateException.class, () -> parse("Y=Q= 0"));
+		assertThrows(IllegalStateException.class, () -> parse("Y*== 0"));
+		assertThrows(IllegalStateException.class, () -> parse("YQ== "));
+		assertThrows(IllegalStateException.class, () -> parse("YQ== 1x"));
+		assertThrows(IllegalStateException.class, () -> parse("YQ== 2147483648"));
+		assertThrows(IllegalStateException.class, () -> parse("YQ== 0\n\nYg== 1"));
+		assertThrows(IllegalStateException.class, () -> MergeableRanks.load("/does/not/exist.tiktoken"));
+	}
+
+	private static MergeableRanks parse(final String contents) {
+		final byte[] bytes = contents.getBytes(StandardCharsets.US_ASCII);
+		return MergeableRanks.parse(bytes, bytes.length, "test.tiktoken");
+	}
+}
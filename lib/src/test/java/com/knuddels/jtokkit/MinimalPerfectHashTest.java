@@ -0,0 +1,44 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MinimalPerfectHashTest {
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 2, 3, 4, 5, 17, 1000, 100_000})
+	public void mapsHashesToDistinctPositions(final int size) {
+		final Random random = new Random(size);
+		final Set<Long> distinctHashes = new HashSet<>();
+		while (distinctHashes.size() < size) {
+			distinctHashes.add(random.nextLong());
+		}
+		final long[] hashes = distinctHashes.stream().mapToLong(Long::longValue).toArray();
+
+		final int[] displacements = MinimalPerfectHash.build(hashes);
+		assertEquals(MinimalPerfectHash.bucketCount(size), displacements.length);
+
+		final boolean[] taken = new boolean[size];
+		for (final long hash : hashes) {
+			final int displacement = displacements[MinimalPerfectHash.bucket(hash, displacements.length)];
+			final int position = MinimalPerfectHash.position(hash, displacement, size);
+			assertTrue(position >= 0 && position < size);
+			assertTrue(!taken[position], "Position " + position + " is taken twice");
+			taken[position] = true;
+		}
+	}
+
+	@Test
+	public void rejectsDuplicateHashes() {
+		assertThrows(IllegalArgumentException.class, () -> MinimalPerfectHash.build(new long[]{1, 2, 3, 2}));
+	}
+}
@@ -0,0 +1,133 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the ASCII fast path splits texts into exactly the same pieces as the regex.
+ */
+public class PieceMatcherTest {
+
+	private static final String[] FRAGMENTS = {
+			"a", "Z", "7", " ", "  ", "\t", "\n", "\r\n", "\u000B", "\u001C", "'", "'s", "'S", "'re", "'LL", "'ve", "'d",
+			"'x", ".", "!?", "(", "_", "-", "12345", "word", "Word", " the", "é", "ß", "ſ", "٣", "日本", " ", "\u0085",
+			" ", "🍕", "\uD83C", "K"
+	};
+
+	@ParameterizedTest
+	@CsvSource({"GPT2, true", "GPT2, false", "CL100K, true", "CL100K, false"})
+	public void splitsLikeRegex(final String patternName, final boolean unicodeCharacterClass) {
+		final Pattern regex = Pattern.compile(
+				patternName.equals("GPT2") ? PiecePattern.GPT2_PATTERN : PiecePattern.CL100K_PATTERN,
+				unicodeCharacterClass ? Pattern.UNICODE_CHARACTER_CLASS : 0
+		);
+		final PiecePattern pattern = PiecePattern.of(regex);
+		assertTrue(pattern.hasAsciiFastPath());
+
+		final Random random = new Random(patternName.hashCode() + (unicodeCharacterClass ? 1 : 0));
+		for (int i = 0; i < 20_000; i++) {
+			assertSplitsLikeRegex(regex, pattern, randomText(random, 12));
+		}
+	}
+
+	@ParameterizedTest
+	@CsvSource({"GPT2", "CL100K"})
+	public void splitsTextsLongerThanABlockLikeRegex(final String patternName) {
+		final Pattern regex = Pattern.compile(
+				patternName.equals("GPT2") ? PiecePattern.GPT2_PATTERN : PiecePattern.CL100K_PATTERN,
+				Pattern.UNICODE_CHARACTER_CLASS
+		);
+		final PiecePattern pattern = PiecePattern.of(regex);
+
+		final Random random = new Random(patternName.hashCode());
+		for (int i = 0; i < 1_000; i++) {
+			final String text = randomText(random, 200);
+			assertSplitsLikeRegex(regex, pattern, text);
+			assertSplitsLikeRegex(regex, pattern, new StringBuilder(text));
+		}
+	}
+
+	@ParameterizedTest
+	@CsvSource({"GPT2", "CL100K"})
+	public void doesNotChangePiecesWithoutHittingEnd(final String patternName) {
+		final PiecePattern pattern = PiecePattern.of(Pattern.compile(
+				patternName.equals("GPT2") ? PiecePattern.GPT2_PATTERN : PiecePattern.CL100K_PATTERN,
+				Pattern.UNICODE_CHARACTER_CLASS
+		));
+
+		final Random random = new Random(patternName.hashCode());
+		for (int i = 0; i < 20_000; i++) {
+			final String text = randomText(random, 12);
+			final String extendedText = text + randomText(random, 12);
+			final PieceMatcher matcher = pattern.matcher(text);
+			final PieceMatcher extendedMatcher = pattern.matcher(extendedText);
+			while (matcher.find() && !matcher.hitEnd()) {
+				assertTrue(extendedMatcher.find());
+				assertEquals(matcher.start(), extendedMatcher.start(), extendedText);
+				assertEquals(matcher.end(), extendedMatcher.end(), extendedText);
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@CsvSource({"GPT2, true", "GPT2, false", "CL100K, true", "CL100K, false"})
+	public void boundsPieceCountFromBelow(final String patternName, final boolean unicodeCharacterClass) {
+		final Pattern regex = Pattern.compile(
+				patternName.equals("GPT2") ? PiecePattern.GPT2_PATTERN : PiecePattern.CL100K_PATTERN,
+				unicodeCharacterClass ? Pattern.UNICODE_CHARACTER_CLASS : 0
+		);
+		final PiecePattern pattern = PiecePattern.of(regex);
+
+		final Random random = new Random(patternName.hashCode() + (unicodeCharacterClass ? 1 : 0));
+		for (int i = 0; i < 20_000; i++) {
+			final String text = randomText(random, 12);
+			int pieces = 0;
+			final Matcher matcher = regex.matcher(text);
+			while (matcher.find()) {
+				pieces++;
+			}
+
+			final int minimumPieceCount = pattern.minimumPieceCount(text, Integer.MAX_VALUE);
+			assertTrue(minimumPieceCount <= pieces, text);
+			assertTrue(pattern.minimumPieceCount(text, 2) > 2 || pattern.minimumPieceCount(text, 2) == minimumPieceCount, text);
+		}
+		assertEquals(0, PiecePattern.of(Pattern.compile("\\S")).minimumPieceCount("a b c", 1));
+	}
+
+	private static void assertSplitsLikeRegex(final Pattern regex, final PiecePattern pattern, final CharSequence text) {
+		final List<String> expected = new ArrayList<>();
+		final Matcher matcher = regex.matcher(text);
+		while (matcher.find()) {
+			expected.add(matcher.group());
+		}
+
+		final List<String> actual = new ArrayList<>();
+		final PieceMatcher pieceMatcher = pattern.matcher(text);
+		while (pieceMatcher.find()) {
+			final String piece = text.subSequence(pieceMatcher.start(), pieceMatcher.end()).toString();
+			assertArrayEquals(piece.getBytes(StandardCharsets.UTF_8), pieceMatcher.bytes(), piece);
+			actual.add(piece);
+		}
+		assertEquals(expected, actual, text.toString());
+	}
+
+	private static String randomText(final Random random, final int maxFragments) {
+		final StringBuilder text = new StringBuilder();
+		final int fragments = random.nextInt(maxFragments);
+		for (int i = 0; i < fragments; i++) {
+			text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+		}
+		return text.toString();
+	}
+}
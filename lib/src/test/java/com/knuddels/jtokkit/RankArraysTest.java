@@ -0,0 +1,40 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RankArraysTest {
+
+	@Test
+	public void findsFirstIndexOfLowestRank() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 10_000; i++) {
+			// Long enough to be scanned in vectors, with ties and ranks of merges that do not exist
+			final int[] ranks = new int[random.nextInt(300)];
+			for (int j = 0; j < ranks.length; j++) {
+				ranks[j] = random.nextInt(4) == 0 ? TokenVocabulary.NO_RANK : random.nextInt(ranks.length * 4 + 1);
+			}
+			final int length = ranks.length == 0 ? 0 : random.nextInt(ranks.length) + 1;
+
+			int expected = 0;
+			for (int j = 1; j < length; j++) {
+				if (ranks[j] < ranks[expected]) {
+					expected = j;
+				}
+			}
+			assertEquals(expected, RankArrays.indexOfMinimum(ranks, length), Arrays.toString(ranks) + " of length " + length);
+		}
+	}
+
+	@Test
+	public void returnsZeroIfThereAreNoMerges() {
+		assertEquals(0, RankArrays.indexOfMinimum(new int[0], 0));
+		final int[] ranks = new int[100];
+		Arrays.fill(ranks, TokenVocabulary.NO_RANK);
+		assertEquals(0, RankArrays.indexOfMinimum(ranks, ranks.length));
+	}
+}
@@ -0,0 +1,148 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.TokenCodec;
+import com.knuddels.jtokkit.api.TokenSequence;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenCodecTest {
+
+	private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
+	private static final TokenCodec[] CODECS = {
+			TokenCodec.fixedWidth(EncodingType.CL100K_BASE),
+			TokenCodec.varint(),
+			TokenCodec.deltaVarint()
+	};
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/cl100k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void cl100kBaseTokensRoundTrip(final String input) throws IOException {
+		final int[] tokens = REGISTRY.getEncoding(EncodingType.CL100K_BASE).encode(input).stream().mapToInt(Integer::intValue).toArray();
+		for (final TokenCodec codec : CODECS) {
+			assertRoundTrips(codec, tokens);
+		}
+	}
+
+	@Test
+	public void roundTripsTokensAcrossChunks() throws IOException {
+		final Random random = new Random(42);
+		final int[] tokens = new int[20_000];
+		for (int i = 0; i < tokens.length; i++) {
+			tokens[i] = random.nextInt(EncodingType.CL100K_BASE.getVocabularySize());
+		}
+
+		for (final TokenCodec codec : CODECS) {
+			assertRoundTrips(codec, tokens);
+		}
+		assertRoundTrips(TokenCodec.varint(), new int[]{-1, Integer.MAX_VALUE, Integer.MIN_VALUE, 0});
+		assertRoundTrips(TokenCodec.deltaVarint(), new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0});
+		assertRoundTrips(TokenCodec.fixedWidth(Integer.MAX_VALUE), new int[]{Integer.MAX_VALUE - 1, 0, 1});
+		assertRoundTrips(TokenCodec.fixedWidth(1), new int[]{0, 0, 0});
+	}
+
+	@Test
+	public void packsTokensIntoTheBitsOfTheVocabulary() {
+		assertEquals(17, TokenCodec.fixedWidth(EncodingType.CL100K_BASE).getBitsPerToken());
+		assertEquals(16, TokenCodec.fixedWidth(EncodingType.R50K_BASE).getBitsPerToken());
+		assertEquals(0, TokenCodec.varint().getBitsPerToken());
+
+		final int[] tokens = new int[1000];
+		// 3 bytes of header and 2125 bytes of 17 bit tokens
+		assertEquals(1 + 2 + 2 + 2125, TokenCodec.fixedWidth(EncodingType.CL100K_BASE).getEncodedLength(tokens, 0, tokens.length));
+		assertEquals(3, TokenCodec.varint().getEncodedLength(tokens, 0, 0));
+	}
+
+	@ParameterizedTest
+	@EnumSource(EncodingType.class)
+	public void knowsTheVocabularySizeOfEachEncoding(final EncodingType encodingType) {
+		final Encoding encoding = REGISTRY.getEncoding(encodingType);
+
+		encoding.decodeBytes(Collections.singletonList(encodingType.getVocabularySize() - 1));
+		assertThrows(IllegalArgumentException.class, () -> encoding.decodeBytes(Collections.singletonList(encodingType.getVocabularySize())));
+	}
+
+	@Test
+	public void readsSequencesBackToBackWithoutCopying() {
+		final TokenCodec codec = TokenCodec.fixedWidth(EncodingType.CL100K_BASE);
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+		codec.write(new int[]{1, 2, 3}, 0, 3, buffer);
+		codec.write(new int[]{100276, 4}, 0, 2, buffer);
+		buffer.flip();
+
+		final TokenSequence first = codec.read(buffer);
+		final TokenSequence second = codec.read(buffer);
+		assertFalse(buffer.hasRemaining());
+		assertArrayEquals(new int[]{1, 2, 3}, first.toArray());
+		assertEquals(Arrays.asList(100276, 4), second.toList());
+
+		final PrimitiveIterator.OfInt iterator = second.iterator();
+		assertEquals(100276, iterator.nextInt());
+		assertEquals(4, iterator.nextInt());
+		assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void rejectsInvalidTokensAndSequences() {
+		final TokenCodec codec = TokenCodec.fixedWidth(EncodingType.R50K_BASE);
+		final ByteBuffer buffer = ByteBuffer.allocate(16);
+
+		assertThrows(IllegalArgumentException.class, () -> codec.write(new int[]{1 << 16}, 0, 1, buffer));
+		assertThrows(IllegalArgumentException.class, () -> TokenCodec.fixedWidth(0));
+		assertThrows(BufferOverflowException.class, () -> codec.write(new int[20], 0, 20, buffer));
+		assertEquals(0, buffer.position());
+
+		codec.write(new int[]{1, 2, 3}, 0, 3, buffer);
+		buffer.flip();
+		assertThrows(IllegalArgumentException.class, () -> TokenCodec.varint().read(buffer.duplicate()));
+		assertThrows(BufferUnderflowException.class, () -> codec.read((ByteBuffer) buffer.duplicate().limit(buffer.limit() - 1)));
+		assertThrows(BufferUnderflowException.class, () -> codec.read(ByteBuffer.allocate(0)));
+		assertEquals(0, buffer.position());
+	}
+
+	private static void assertRoundTrips(final TokenCodec codec, final int[] tokens) throws IOException {
+		final int encodedLength = codec.getEncodedLength(tokens, 0, tokens.length);
+
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		codec.write(tokens, 0, tokens.length, stream);
+		assertEquals(encodedLength, stream.size());
+		final ByteArrayOutputStream channelStream = new ByteArrayOutputStream();
+		codec.write(tokens, 0, tokens.length, Channels.newChannel(channelStream));
+		assertArrayEquals(stream.toByteArray(), channelStream.toByteArray());
+
+		final ByteBuffer heapBuffer = ByteBuffer.allocate(encodedLength);
+		codec.write(tokens, 0, tokens.length, heapBuffer);
+		assertFalse(heapBuffer.hasRemaining());
+		assertArrayEquals(stream.toByteArray(), heapBuffer.array());
+		final ByteBuffer directBuffer = ByteBuffer.allocateDirect(encodedLength);
+		codec.write(tokens, 0, tokens.length, directBuffer);
+		assertFalse(directBuffer.hasRemaining());
+
+		final ByteBuffer in = ByteBuffer.wrap(stream.toByteArray());
+		final TokenSequence sequence = codec.read(in);
+		assertFalse(in.hasRemaining());
+		assertEquals(tokens.length, sequence.size());
+		assertArrayEquals(tokens, sequence.toArray());
+		assertArrayEquals(tokens, codec.read((ByteBuffer) directBuffer.flip()).toArray());
+	}
+}
@@ -0,0 +1,99 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.TokenCountEstimate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.regex.Matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenCountEstimatorTest {
+
+	private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/cl100k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void cl100kBaseEstimateContainsTokenCount(final String input) {
+		final Encoding encoding = REGISTRY.getEncoding(EncodingType.CL100K_BASE);
+		final TokenCountEstimate estimate = assertConsistentEstimate(EncodingType.CL100K_BASE, input);
+
+		final int tokenCount = encoding.countTokensOrdinary(input);
+		assertTrue(estimate.getLowerBound() <= tokenCount && tokenCount <= estimate.getUpperBound(), tokenCount + " not in " + estimate);
+	}
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/p50k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void p50kBaseEstimateIsConsistent(final String input) {
+		assertConsistentEstimate(EncodingType.P50K_BASE, input);
+	}
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/r50k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void r50kBaseEstimateIsConsistent(final String input) {
+		assertConsistentEstimate(EncodingType.R50K_BASE, input);
+	}
+
+	@Test
+	public void estimatesLongTextsClosely() {
+		final Encoding encoding = REGISTRY.getEncoding(EncodingType.CL100K_BASE);
+		final String[] texts = {
+				String.join("\n", Collections.nCopies(200, "The quick brown fox jumps over the lazy dog.")),
+				String.join("\n", Collections.nCopies(100, "\tfor (int i = 0; i < values.length; i++) {\n\t\tsum += values[i];\n\t}")),
+				String.join(" ", Collections.nCopies(500, "東京は日本の首都です。")),
+				" " + new String(new char[10_000]).replace('\0', ' '),
+				new String(new char[4_000]).replace('\0', '-'),
+				new String(new char[4_000]).replace('\0', 's')
+		};
+		for (final String text : texts) {
+			final int tokenCount = encoding.countTokensOrdinary(text);
+			final TokenCountEstimate estimate = encoding.estimateTokenCount(text);
+			final String message = estimate + " for " + tokenCount + " tokens of " + text.substring(0, 20);
+			assertTrue(Math.abs(estimate.getEstimate() - tokenCount) <= tokenCount * 0.2, message);
+			assertTrue(estimate.getLowerBound() <= tokenCount && tokenCount <= estimate.getUpperBound(), message);
+		}
+	}
+
+	@Test
+	public void estimatesEmptyAndSingleTokenTextsExactly() {
+		final Encoding encoding = REGISTRY.getEncoding(EncodingType.CL100K_BASE);
+
+		assertEquals(0, encoding.estimateTokenCount("").getUpperBound());
+		assertEquals(0, encoding.estimateTokenCount(null).getUpperBound());
+		assertTrue(encoding.estimateTokenCount("a").isExact());
+		assertEquals(1, encoding.estimateTokenCount("a").getEstimate());
+	}
+
+	@Test
+	public void rejectsEstimateOutsideOfBounds() {
+		assertThrows(IllegalArgumentException.class, () -> new TokenCountEstimate(5, 6, 7));
+		assertThrows(IllegalArgumentException.class, () -> new TokenCountEstimate(5, 3, 4));
+		assertThrows(IllegalArgumentException.class, () -> new TokenCountEstimate(-1, -1, 0));
+	}
+
+	/*
+	 * Every piece is at least one token and every byte is at most one token, so the bounds can never be outside of
+	 * the number of pieces and the number of bytes.
+	 */
+	private static TokenCountEstimate assertConsistentEstimate(final EncodingType encodingType, final String input) {
+		final GptBytePairEncoding encoding = (GptBytePairEncoding) REGISTRY.getEncoding(encodingType);
+		final TokenCountEstimate estimate = encoding.estimateTokenCount(input);
+
+		int pieces = 0;
+		final Matcher matcher = encoding.getPattern().matcher(input);
+		while (matcher.find()) {
+			pieces++;
+		}
+		assertTrue(pieces <= estimate.getLowerBound(), pieces + " pieces, but " + estimate);
+		assertTrue(estimate.getUpperBound() <= input.getBytes(StandardCharsets.UTF_8).length, estimate.toString());
+		return estimate;
+	}
+}
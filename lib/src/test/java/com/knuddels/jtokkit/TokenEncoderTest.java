@@ -0,0 +1,40 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenEncoderTest {
+
+	@Test
+	public void buildsDecodingMapOnFirstDecoding() throws NoSuchFieldException, IllegalAccessException {
+		final Map<String, Integer> specialTokens = new HashMap<>();
+		specialTokens.put("<|endoftext|>", 100257);
+		specialTokens.put("<|fim_prefix|>", 100258);
+		final TokenEncoder<String, Integer> encoder = new TokenEncoder<>(specialTokens);
+
+		assertEquals(100258, encoder.encode("<|fim_prefix|>"));
+		assertTrue(encoder.containsDecodedToken("<|endoftext|>"));
+		assertNull(encodedToDecoded(encoder));
+
+		assertEquals(Optional.of("<|endoftext|>"), encoder.decodeIfPresent(100257));
+		assertEquals(Optional.of("<|fim_prefix|>"), encoder.decodeIfPresent(100258));
+		assertFalse(encoder.decodeIfPresent(0).isPresent());
+		assertNotNull(encodedToDecoded(encoder));
+	}
+
+	private static Object encodedToDecoded(final TokenEncoder<?, ?> encoder) throws NoSuchFieldException, IllegalAccessException {
+		final Field field = TokenEncoder.class.getDeclaredField("encodedToDecoded");
+		field.setAccessible(true);
+		return field.get(encoder);
+	}
+}
@@ -0,0 +1,51 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the retained heap of a {@link TokenVocabulary} with the map based {@link TokenEncoder} it replaced, and
+ * with the estimate of the vocabulary itself.
+ */
+public class TokenVocabularyFootprintTest {
+
+	@ParameterizedTest
+	@ValueSource(strings = {"cl100k_base", "p50k_base", "r50k_base"})
+	public void retainsLessThanTokenEncoder(final String encodingName) {
+		final Map<byte[], Integer> mergeableRanks = EncodingFactory.loadMergeableRanks("/com/knuddels/jtokkit/" + encodingName + ".tiktoken");
+
+		final TokenEncoder<ImmutableByteArray, Integer> tokenEncoder = new TokenEncoder<>(mergeableRanks, ImmutableByteArray::from);
+		// Decoding builds the map that TokenEncoder used for the decoding that TokenVocabulary supports as well
+		tokenEncoder.decodeIfPresent(0);
+		final long before = GraphLayout.parseInstance(tokenEncoder).totalSize();
+		final TokenVocabulary vocabulary = TokenVocabulary.from(mergeableRanks);
+		vocabulary.getPairRank(0, 0);
+		final long after = GraphLayout.parseInstance(vocabulary).totalSize();
+
+		assertTrue(after * 4 < before, encodingName + " retains " + after + " bytes, expected less than a quarter of " + before);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"cl100k_base", "p50k_base", "r50k_base"})
+	public void estimatesRetainedHeap(final String encodingName) {
+		final TokenVocabulary vocabulary = TokenVocabulary.from(MergeableRanks.load("/com/knuddels/jtokkit/" + encodingName + ".tiktoken"));
+
+		assertEstimatesRetainedHeap(encodingName, vocabulary);
+
+		// The first lookup of a pair builds the pair table
+		vocabulary.getPairRank(0, 0);
+		assertEstimatesRetainedHeap(encodingName, vocabulary);
+	}
+
+	private static void assertEstimatesRetainedHeap(final String encodingName, final TokenVocabulary vocabulary) {
+		final long retained = GraphLayout.parseInstance(vocabulary).totalSize();
+		final long estimated = vocabulary.heapFootprint();
+
+		assertTrue(Math.abs(estimated - retained) < retained / 100, encodingName + " retains " + retained + " bytes, estimated " + estimated);
+	}
+}
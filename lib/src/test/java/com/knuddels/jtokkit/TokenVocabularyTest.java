@@ -0,0 +1,259 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenVocabularyTest {
+
+	/*
+	 * Two strings whose polynomial hashes with the default multiplier are equal modulo 2^64. The differences of their
+	 * bytes are a short vector of the lattice of all polynomials that vanish at the multiplier.
+	 */
+	private static final String[] COLLIDING_TOKENS = {"PMIB[RZPHKSVNQ", "NNNNNNNNNNNNNN"};
+
+	@ParameterizedTest
+	@ValueSource(strings = {"cl100k_base", "p50k_base", "r50k_base"})
+	public void containsAllMergeableRanks(final String encodingName) {
+		final Map<byte[], Integer> mergeableRanks = EncodingFactory.loadMergeableRanks("/com/knuddels/jtokkit/" + encodingName + ".tiktoken");
+		final TokenVocabulary vocabulary = TokenVocabulary.from(mergeableRanks);
+
+		assertEquals(mergeableRanks.size(), vocabulary.size());
+		for (final Map.Entry<byte[], Integer> entry : mergeableRanks.entrySet()) {
+			final byte[] token = entry.getKey();
+			assertEquals(entry.getValue(), vocabulary.getRank(token, 0, token.length));
+			assertArrayEquals(token, vocabulary.getBytes(entry.getValue()));
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"cl100k_base", "p50k_base", "r50k_base"})
+	public void looksUpCharsOfTokensThatAreValidUtf8(final String encodingName) {
+		final Map<byte[], Integer> mergeableRanks = EncodingFactory.loadMergeableRanks("/com/knuddels/jtokkit/" + encodingName + ".tiktoken");
+		final TokenVocabulary vocabulary = TokenVocabulary.from(mergeableRanks);
+
+		for (final Map.Entry<byte[], Integer> entry : mergeableRanks.entrySet()) {
+			final String token = new String(entry.getKey(), StandardCharsets.UTF_8);
+			if (Arrays.equals(entry.getKey(), token.getBytes(StandardCharsets.UTF_8))) {
+				final String text = "<" + token + ">";
+				assertEquals(entry.getValue().intValue(), vocabulary.getRank(text, 1, text.length() - 1), token);
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+			"a", "ab", "xaby", "é", "日本語", "🍕", "a🍕b", "\uD83C", "\uDF55", "\uDF55\uD83C", "a\uD83C", "\u07FF\u0800\uFFFF", ""
+	})
+	public void looksUpCharsLikeTheirUtf8Bytes(final String text) {
+		final Map<byte[], Integer> ranks = new HashMap<>();
+		for (int start = 0; start < text.length(); start++) {
+			for (int end = start + 1; end <= text.length(); end++) {
+				ranks.put(text.substring(start, end).getBytes(StandardCharsets.UTF_8), ranks.size());
+			}
+		}
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks);
+
+		for (int start = 0; start <= text.length(); start++) {
+			for (int end = start; end <= text.length(); end++) {
+				final byte[] bytes = text.substring(start, end).getBytes(StandardCharsets.UTF_8);
+				assertEquals(vocabulary.getRank(bytes, 0, bytes.length), vocabulary.getRank(text, start, end));
+				assertEquals(bytes.length, TokenVocabulary.utf8Length(text, start, end));
+			}
+		}
+	}
+
+	@Test
+	public void looksUpSlicesOfLargerArrays() {
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks("a", 0, "b", 1, "ab", 2));
+		final byte[] bytes = "xaby".getBytes(StandardCharsets.UTF_8);
+
+		assertEquals(0, vocabulary.getRank(bytes, 1, 2));
+		assertEquals(1, vocabulary.getRank(bytes, 2, 3));
+		assertEquals(2, vocabulary.getRank(bytes, 1, 3));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getRank(bytes, 0, 2));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getRank(bytes, 1, 4));
+	}
+
+	@Test
+	public void supportsSparseRanks() {
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks("a", 7, "b", 3, "ab", 1000));
+		final byte[] bytes = "ab".getBytes(StandardCharsets.UTF_8);
+
+		assertEquals(7, vocabulary.getRank(bytes, 0, 1));
+		assertEquals(3, vocabulary.getRank(bytes, 1, 2));
+		assertEquals(1000, vocabulary.getRank(bytes, 0, 2));
+		assertArrayEquals(bytes, vocabulary.getBytes(1000));
+		assertNull(vocabulary.getBytes(0));
+		assertNull(vocabulary.getBytes(4));
+	}
+
+	@Test
+	public void leavesSlotsOfGapsInRanksEmpty() {
+		final Map<byte[], Integer> ranks = new HashMap<>();
+		for (int rank = 0; rank < 20; rank++) {
+			if (rank != 12) {
+				ranks.put(new byte[]{(byte) rank}, rank);
+			}
+		}
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks);
+
+		assertTrue(vocabulary.hasDenseRanks());
+		assertEquals(19, vocabulary.size());
+		assertEquals(20, vocabulary.slotCount());
+		assertEquals(13, vocabulary.getRank(new byte[]{13}, 0, 1));
+		assertArrayEquals(new byte[]{13}, vocabulary.getBytes(13));
+		assertNull(vocabulary.getBytes(12));
+		assertNull(vocabulary.getBytes(20));
+	}
+
+	@Test
+	public void distinguishesRunsOfZeroBytes() {
+		final Map<byte[], Integer> ranks = new HashMap<>();
+		ranks.put(new byte[]{0}, 0);
+		ranks.put(new byte[]{0, 0}, 1);
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks);
+
+		assertEquals(0, vocabulary.getRank(new byte[]{0, 0, 0}, 0, 1));
+		assertEquals(1, vocabulary.getRank(new byte[]{0, 0, 0}, 0, 2));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getRank(new byte[]{0, 0, 0}, 0, 3));
+	}
+
+	@Test
+	public void looksUpLaterDuplicateOfToken() {
+		final Map<byte[], Integer> ranks = new HashMap<>();
+		ranks.put("a".getBytes(StandardCharsets.UTF_8), 0);
+		ranks.put("b".getBytes(StandardCharsets.UTF_8), 1);
+		ranks.put("a".getBytes(StandardCharsets.UTF_8), 2);
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks);
+
+		assertEquals(2, vocabulary.getRank("a".getBytes(StandardCharsets.UTF_8), 0, 1));
+		assertArrayEquals("a".getBytes(StandardCharsets.UTF_8), vocabulary.getBytes(0));
+		assertArrayEquals("a".getBytes(StandardCharsets.UTF_8), vocabulary.getBytes(2));
+	}
+
+	@Test
+	public void returnsNullForUnknownRanks() {
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks("a", 0, "b", 1));
+
+		assertNull(vocabulary.getBytes(-1));
+		assertNull(vocabulary.getBytes(2));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {0, 1, 2, 17, 256, 257, 1000})
+	public void derivesSliceHashesFromPrefixHashes(final int length) {
+		final byte[] bytes = new byte[length];
+		new Random(length).nextBytes(bytes);
+		for (final TokenVocabulary vocabulary : Arrays.asList(TokenVocabulary.from(ranks("a", 0)), TokenVocabulary.from(collidingRanks()))) {
+			final long[] prefixHashes = vocabulary.prefixHashes(bytes);
+
+			for (int start = 0; start <= length; start += 1 + start / 8) {
+				for (int end = start; end <= length; end += 1 + (end - start) / 8) {
+					assertEquals(vocabulary.hash(bytes, start, end), vocabulary.hash(prefixHashes, start, end));
+				}
+			}
+			assertEquals(vocabulary.hash(bytes, 0, length), vocabulary.hash(prefixHashes, 0, length));
+		}
+	}
+
+	@Test
+	public void looksUpSlicesWithPrecomputedHash() {
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks("a", 0, "b", 1, "ab", 2));
+		final byte[] bytes = "xaby".getBytes(StandardCharsets.UTF_8);
+		final long[] prefixHashes = vocabulary.prefixHashes(bytes);
+
+		assertEquals(2, vocabulary.getRank(bytes, 1, 3, vocabulary.hash(prefixHashes, 1, 3)));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getRank(bytes, 0, 2, vocabulary.hash(prefixHashes, 0, 2)));
+	}
+
+	@Test
+	public void rehashesTokensWithSameHash() {
+		final byte[] first = COLLIDING_TOKENS[0].getBytes(StandardCharsets.UTF_8);
+		final byte[] second = COLLIDING_TOKENS[1].getBytes(StandardCharsets.UTF_8);
+		final long defaultMultiplier = TokenVocabulary.hashMultiplier(0);
+		assertEquals(TokenVocabulary.hash(defaultMultiplier, first, 0, first.length), TokenVocabulary.hash(defaultMultiplier, second, 0, second.length));
+
+		final TokenVocabulary vocabulary = TokenVocabulary.from(collidingRanks());
+
+		assertTrue(vocabulary.hashSeed() > 0);
+		assertEquals(0, vocabulary.getRank(first, 0, first.length));
+		assertEquals(1, vocabulary.getRank(second, 0, second.length));
+		assertEquals(0, vocabulary.getRank(COLLIDING_TOKENS[0], 0, first.length));
+		assertEquals(1, vocabulary.getRank(COLLIDING_TOKENS[1], 0, second.length));
+		final long[] prefixHashes = vocabulary.prefixHashes(second);
+		assertEquals(1, vocabulary.getRank(second, 0, second.length, vocabulary.hash(prefixHashes, 0, second.length)));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getRank(second, 1, second.length));
+		assertArrayEquals(first, vocabulary.getBytes(0));
+		assertArrayEquals(second, vocabulary.getBytes(1));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"cl100k_base", "p50k_base", "r50k_base"})
+	public void containsEverySplitInPairTable(final String encodingName) {
+		final Map<byte[], Integer> mergeableRanks = EncodingFactory.loadMergeableRanks("/com/knuddels/jtokkit/" + encodingName + ".tiktoken");
+		final TokenVocabulary vocabulary = TokenVocabulary.from(mergeableRanks);
+
+		assertTrue(vocabulary.hasPairTable());
+		for (final byte[] token : mergeableRanks.keySet()) {
+			final int rank = vocabulary.getRank(token, 0, token.length);
+			for (int split = 1; split < token.length; split++) {
+				final int left = vocabulary.getRank(token, 0, split);
+				final int right = vocabulary.getRank(token, split, token.length);
+				if (left != TokenVocabulary.NO_RANK && right != TokenVocabulary.NO_RANK) {
+					assertEquals(rank, vocabulary.getPairRank(left, right));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void looksUpPairsOfTokenIds() {
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks("a", 0, "b", 1, "c", 2, "ab", 3, "bc", 4, "abc", 5));
+
+		assertEquals(3, vocabulary.getPairRank(0, 1));
+		assertEquals(4, vocabulary.getPairRank(1, 2));
+		assertEquals(5, vocabulary.getPairRank(3, 2));
+		assertEquals(5, vocabulary.getPairRank(0, 4));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getPairRank(1, 0));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getPairRank(0, 2));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getPairRank(3, 4));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getPairRank(0, 1 << 20));
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getPairRank(-1, 1));
+	}
+
+	@Test
+	public void omitsPairTableForIdsThatDoNotFit() {
+		final TokenVocabulary vocabulary = TokenVocabulary.from(ranks("a", 0, "b", 1, "ab", 1 << TokenVocabulary.MAX_PAIR_ID_BITS));
+
+		assertFalse(vocabulary.hasPairTable());
+		assertEquals(TokenVocabulary.NO_RANK, vocabulary.getPairRank(0, 1));
+	}
+
+	/**
+	 * Returns a vocabulary with two tokens that have the same hash with the default seed, plus their first bytes.
+	 */
+	static Map<byte[], Integer> collidingRanks() {
+		return ranks(COLLIDING_TOKENS[0], 0, COLLIDING_TOKENS[1], 1, "P", 2, "N", 3);
+	}
+
+	private static Map<byte[], Integer> ranks(final Object... tokensAndRanks) {
+		final Map<byte[], Integer> ranks = new HashMap<>();
+		for (int i = 0; i < tokensAndRanks.length; i += 2) {
+			ranks.put(((String) tokensAndRanks[i]).getBytes(StandardCharsets.UTF_8), (Integer) tokensAndRanks[i + 1]);
+		}
+		return ranks;
+	}
+}
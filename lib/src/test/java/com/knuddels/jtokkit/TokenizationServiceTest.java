@@ -0,0 +1,244 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.TokenizationMetrics;
+import com.knuddels.jtokkit.api.TokenizationService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenizationServiceTest {
+
+	private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+	@Test
+	public void tokenizesConcurrentRequestsLikeEncoding() throws Exception {
+		final ExecutorService callers = Executors.newFixedThreadPool(8);
+		try (final TokenizationService service = Encodings.newTokenizationService(ENCODING, 2, 16, Duration.ZERO)) {
+			final List<Future<?>> results = new ArrayList<>();
+			for (int caller = 0; caller < 8; caller++) {
+				final int seed = caller;
+				results.add(callers.submit(() -> {
+					for (int i = 0; i < 500; i++) {
+						final String text = "request " + seed + " number " + i + " with some text";
+						assertEquals(ENCODING.countTokens(text), service.countTokens(text).get(10, TimeUnit.SECONDS));
+						assertEquals(ENCODING.encode(text), service.encode(text).get(10, TimeUnit.SECONDS));
+						assertEquals(ENCODING.encodeOrdinary(text), service.encodeOrdinary(text).get(10, TimeUnit.SECONDS));
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> result : results) {
+				result.get(60, TimeUnit.SECONDS);
+			}
+
+			final TokenizationMetrics metrics = service.getMetrics();
+			assertEquals(8 * 500 * 3, metrics.getSubmittedRequests());
+			assertEquals(8 * 500 * 3, metrics.getCompletedRequests());
+			assertEquals(0, metrics.getQueueDepth());
+			assertTrue(metrics.getAverageBatchSize() >= 1);
+			assertTrue(metrics.getAverageBatchSize() <= 16);
+			assertTrue(metrics.getMaxLatencyNanos() >= metrics.getAverageLatencyNanos());
+		} finally {
+			callers.shutdown();
+		}
+	}
+
+	@Test
+	public void batchesRequestsWithinMaxWait() throws Exception {
+		try (final TokenizationService service = Encodings.newTokenizationService(ENCODING, 1, 4, Duration.ofSeconds(10))) {
+			final List<CompletableFuture<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(service.countTokens("hello world " + i));
+			}
+			for (final CompletableFuture<Integer> result : results) {
+				result.get(10, TimeUnit.SECONDS);
+			}
+
+			final TokenizationMetrics metrics = service.getMetrics();
+			assertEquals(2, metrics.getBatches());
+			assertEquals(4, metrics.getAverageBatchSize());
+		}
+	}
+
+	@Test
+	public void failsRequestsThatFailToEncode() {
+		try (final TokenizationService service = Encodings.newTokenizationService(ENCODING)) {
+			final ExecutionException exception = assertThrows(
+					ExecutionException.class,
+					() -> service.encode("hello <|endoftext|>").get(10, TimeUnit.SECONDS)
+			);
+			assertInstanceOf(UnsupportedOperationException.class, exception.getCause());
+		}
+	}
+
+	@Test
+	public void keepsWorkersAliveIfRequestsFailWithErrors() throws Exception {
+		final Encoding overflowing = new CountingEncoding(text -> {
+			if (text.startsWith("overflow")) {
+				throw new StackOverflowError();
+			}
+			return ENCODING.countTokens(text);
+		});
+		try (final TokenizationService service = Encodings.newTokenizationService(overflowing, 1, 4, Duration.ofSeconds(10))) {
+			final CompletableFuture<Integer> failed = service.countTokens("overflow");
+			final List<CompletableFuture<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(service.countTokens("hello world"));
+			}
+
+			final ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+			assertInstanceOf(StackOverflowError.class, exception.getCause());
+			for (final CompletableFuture<Integer> result : results) {
+				assertEquals(2, result.get(10, TimeUnit.SECONDS));
+			}
+		}
+	}
+
+	@Test
+	public void spreadsRequestsOfASingleThreadAcrossWorkers() throws Exception {
+		final Set<String> workerNames = ConcurrentHashMap.newKeySet();
+		final Encoding recording = new CountingEncoding(text -> {
+			workerNames.add(Thread.currentThread().getName());
+			return ENCODING.countTokens(text);
+		});
+		try (final TokenizationService service = Encodings.newTokenizationService(recording, 4, 1, Duration.ZERO)) {
+			final List<CompletableFuture<Integer>> results = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				results.add(service.countTokens("hello world"));
+			}
+			for (final CompletableFuture<Integer> result : results) {
+				result.get(10, TimeUnit.SECONDS);
+			}
+		}
+
+		assertEquals(4, workerNames.size());
+	}
+
+	@Test
+	public void completesRequestsThatRaceWithClose() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			final TokenizationService service = Encodings.newTokenizationService(ENCODING, 2, 4, Duration.ZERO);
+			final List<CompletableFuture<Integer>> results = new ArrayList<>();
+			final Thread submitter = new Thread(() -> {
+				CompletableFuture<Integer> result;
+				do {
+					result = service.countTokens("hello world");
+					results.add(result);
+				} while (!result.isCompletedExceptionally());
+			});
+			submitter.start();
+			service.close();
+			submitter.join();
+
+			assertEquals(0, service.getMetrics().getQueueDepth());
+			for (final CompletableFuture<Integer> result : results) {
+				assertTrue(result.isDone());
+			}
+		}
+	}
+
+	@Test
+	public void processesQueuedRequestsOnClose() throws Exception {
+		final CompletableFuture<Integer> result;
+		try (final TokenizationService service = Encodings.newTokenizationService(ENCODING, 1, 64, Duration.ofSeconds(10))) {
+			result = service.countTokens("hello world");
+		}
+
+		assertEquals(2, result.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void rejectsRequestsAfterClose() {
+		final TokenizationService service = Encodings.newTokenizationService(ENCODING);
+		service.close();
+
+		final ExecutionException exception = assertThrows(
+				ExecutionException.class,
+				() -> service.countTokens("hello world").get(10, TimeUnit.SECONDS)
+		);
+		assertInstanceOf(IllegalStateException.class, exception.getCause());
+	}
+
+	@Test
+	public void rejectsInvalidConfiguration() {
+		assertThrows(IllegalArgumentException.class, () -> Encodings.newTokenizationService(ENCODING, 0, 1, Duration.ZERO));
+		assertThrows(IllegalArgumentException.class, () -> Encodings.newTokenizationService(ENCODING, 1, 0, Duration.ZERO));
+		assertThrows(IllegalArgumentException.class, () -> Encodings.newTokenizationService(ENCODING, 1, 1, Duration.ofMillis(-1)));
+	}
+
+	/*
+	 * Counts the tokens with the given function and delegates everything else.
+	 */
+	private static final class CountingEncoding implements Encoding {
+
+		private final ToIntFunction<String> countTokens;
+
+		private CountingEncoding(final ToIntFunction<String> countTokens) {
+			this.countTokens = countTokens;
+		}
+
+		@Override
+		public List<Integer> encode(final String text) {
+			return ENCODING.encode(text);
+		}
+
+		@Override
+		public EncodingResult encode(final String text, final int maxTokens) {
+			return ENCODING.encode(text, maxTokens);
+		}
+
+		@Override
+		public List<Integer> encodeOrdinary(final String text) {
+			return ENCODING.encodeOrdinary(text);
+		}
+
+		@Override
+		public EncodingResult encodeOrdinary(final String text, final int maxTokens) {
+			return ENCODING.encodeOrdinary(text, maxTokens);
+		}
+
+		@Override
+		public int countTokens(final String text) {
+			return countTokens.applyAsInt(text);
+		}
+
+		@Override
+		public int countTokensOrdinary(final String text) {
+			return ENCODING.countTokensOrdinary(text);
+		}
+
+		@Override
+		public String decode(final List<Integer> tokens) {
+			return ENCODING.decode(tokens);
+		}
+
+		@Override
+		public byte[] decodeBytes(final List<Integer> tokens) {
+			return ENCODING.decodeBytes(tokens);
+		}
+
+		@Override
+		public String getName() {
+			return ENCODING.getName();
+		}
+	}
+}
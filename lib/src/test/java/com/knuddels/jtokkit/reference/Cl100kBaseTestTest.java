@@ -1,13 +1,18 @@
 package com.knuddels.jtokkit.reference;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.knuddels.jtokkit.Encodings;
 import com.knuddels.jtokkit.api.Encoding;
 import com.knuddels.jtokkit.api.EncodingResult;
 import com.knuddels.jtokkit.api.EncodingType;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.List;
+import java.util.OptionalInt;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvFileSource;
@@ -102,6 +107,40 @@ public class Cl100kBaseTestTest {
 		assertTrue(input.startsWith(actual));
 	}
 
+	@ParameterizedTest
+	@CsvFileSource(resources = "/cl100k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void cl100kBaseEncodesIntoBuffersCorrectly(
+			final String input,
+			final String output
+	) {
+		final List<Integer> expected = TestUtils.parseEncodingString(output);
+		final int[] tokens = new int[expected.size() + 1];
+
+		assertEquals(expected.size(), ENCODING.encode(input, tokens, 1));
+		assertEquals(expected, TestUtils.toList(tokens, 1, tokens.length));
+		assertEquals(-expected.size(), ENCODING.encodeOrdinary(input, new int[expected.size() - 1], 0));
+
+		final byte[] expectedBytes = ENCODING.decodeBytes(expected);
+		final ByteBuffer bytes = ByteBuffer.allocateDirect(expectedBytes.length);
+		assertEquals(expectedBytes.length, ENCODING.decodeBytes(IntBuffer.wrap(tokens, 1, expected.size()), bytes));
+		final byte[] actualBytes = new byte[expectedBytes.length];
+		((ByteBuffer) bytes.flip()).get(actualBytes);
+		assertArrayEquals(expectedBytes, actualBytes);
+	}
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/cl100k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void cl100kBaseIsWithinTokenLimitCountsCorrectly(
+			final String input,
+			final String output
+	) {
+		final int expected = TestUtils.parseEncodingString(output).size();
+
+		assertEquals(OptionalInt.of(expected), ENCODING.isWithinTokenLimit(input, expected));
+		assertEquals(OptionalInt.of(expected), ENCODING.isWithinTokenLimitOrdinary(input, expected + 10));
+		assertEquals(OptionalInt.empty(), ENCODING.isWithinTokenLimitOrdinary(input, expected - 1));
+	}
+
 	@Test
 	public void cl100kBaseEncodeOrdinaryEncodesSpecialTokensCorrectly() {
 		final String input = "Hello<|endoftext|>, <|fim_prefix|> <|fim_middle|> world <|fim_suffix|> ! <|endofprompt|>";
@@ -109,4 +148,23 @@ public class Cl100kBaseTestTest {
 
 		assertEquals(input, actual);
 	}
+
+	@Test
+	public void cl100kBaseIsWithinTokenLimitOnlyEncodesHead() {
+		final StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 100_000; i++) {
+			input.append("hello world ");
+		}
+		assertEquals(OptionalInt.empty(), ENCODING.isWithinTokenLimit(input.toString(), 8_192));
+
+		// Like countTokens, special tokens are rejected even if they come after the limit
+		input.append("<|endoftext|>");
+		assertThrows(UnsupportedOperationException.class, () -> ENCODING.isWithinTokenLimit(input.toString(), 8_192));
+		assertEquals(OptionalInt.empty(), ENCODING.isWithinTokenLimitOrdinary(input.toString(), 8_192));
+		assertThrows(UnsupportedOperationException.class, () -> ENCODING.isWithinTokenLimit("hello <|endoftext|>", 10));
+		assertThrows(UnsupportedOperationException.class, () -> ENCODING.isWithinTokenLimit("<|endoftext <|fim_suffix|>", 100));
+		assertEquals(OptionalInt.of(ENCODING.countTokens("< <| <|endoftext|")), ENCODING.isWithinTokenLimit("< <| <|endoftext|", 100));
+		assertThrows(IllegalArgumentException.class, () -> ENCODING.isWithinTokenLimit("hello", -1));
+		assertEquals(OptionalInt.of(0), ENCODING.isWithinTokenLimit(null, 0));
+	}
 }
@@ -8,8 +8,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvFileSource;
 
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.List;
+import java.util.OptionalInt;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -103,6 +107,40 @@ public class R50kBaseTest {
 		assertTrue(input.startsWith(actual));
 	}
 
+	@ParameterizedTest
+	@CsvFileSource(resources = "/r50k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void r50kBaseEncodesIntoBuffersCorrectly(
+			final String input,
+			final String output
+	) {
+		final List<Integer> expected = TestUtils.parseEncodingString(output);
+		final int[] tokens = new int[expected.size() + 1];
+
+		assertEquals(expected.size(), ENCODING.encode(input, tokens, 1));
+		assertEquals(expected, TestUtils.toList(tokens, 1, tokens.length));
+		assertEquals(-expected.size(), ENCODING.encodeOrdinary(input, new int[expected.size() - 1], 0));
+
+		final byte[] expectedBytes = ENCODING.decodeBytes(expected);
+		final ByteBuffer bytes = ByteBuffer.allocateDirect(expectedBytes.length);
+		assertEquals(expectedBytes.length, ENCODING.decodeBytes(IntBuffer.wrap(tokens, 1, expected.size()), bytes));
+		final byte[] actualBytes = new byte[expectedBytes.length];
+		((ByteBuffer) bytes.flip()).get(actualBytes);
+		assertArrayEquals(expectedBytes, actualBytes);
+	}
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/r50k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void r50kBaseIsWithinTokenLimitCountsCorrectly(
+			final String input,
+			final String output
+	) {
+		final int expected = TestUtils.parseEncodingString(output).size();
+
+		assertEquals(OptionalInt.of(expected), ENCODING.isWithinTokenLimit(input, expected));
+		assertEquals(OptionalInt.of(expected), ENCODING.isWithinTokenLimitOrdinary(input, expected + 10));
+		assertEquals(OptionalInt.empty(), ENCODING.isWithinTokenLimitOrdinary(input, expected - 1));
+	}
+
 	@Test
 	public void r50kBaseBaseEncodeOrdinaryEncodesSpecialTokensCorrectly() {
 		final String input = "Hello<|endoftext|>, <|fim_prefix|> <|fim_middle|> world <|fim_suffix|> ! <|endofprompt|>";
@@ -14,4 +14,8 @@ public class TestUtils {
 				).map(Integer::parseInt)
 				.collect(Collectors.toList());
 	}
+
+	public static List<Integer> toList(final int[] tokens, final int from, final int to) {
+		return Arrays.stream(tokens, from, to).boxed().collect(Collectors.toList());
+	}
 }
@@ -0,0 +1,82 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EncodingEventsTest {
+
+	private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+	@Test
+	public void recordsEncodeDecodeAndCountCalls() throws IOException {
+		final List<RecordedEvent> events = record(Duration.ZERO, () -> {
+			ENCODING.encode("hello world");
+			ENCODING.countTokensOrdinary("hello world");
+			ENCODING.decode(Arrays.asList(15339, 1917));
+		});
+
+		final RecordedEvent encode = single(events, "com.knuddels.jtokkit.Encode");
+		assertEquals("cl100k_base", encode.getString("encoding"));
+		assertEquals(11, encode.getInt("textLength"));
+		assertEquals(2, encode.getInt("tokenCount"));
+		assertEquals(6, encode.getInt("longestPiece"));
+
+		final RecordedEvent count = single(events, "com.knuddels.jtokkit.CountTokens");
+		assertEquals(2, count.getInt("tokenCount"));
+
+		final RecordedEvent decode = single(events, "com.knuddels.jtokkit.Decode");
+		assertEquals(11, decode.getInt("textLength"));
+		assertEquals(2, decode.getInt("tokenCount"));
+		assertEquals(6, decode.getInt("longestPiece"));
+	}
+
+	@Test
+	public void doesNotRecordCallsFasterThanThreshold() throws IOException {
+		final List<RecordedEvent> events = record(Duration.ofHours(1), () -> ENCODING.encode("hello world"));
+
+		assertTrue(events.isEmpty());
+	}
+
+	private static List<RecordedEvent> record(final Duration threshold, final Runnable calls) throws IOException {
+		final Path file = Files.createTempFile("jtokkit", ".jfr");
+		try (final Recording recording = new Recording()) {
+			for (final String name : Arrays.asList("Encode", "Decode", "CountTokens")) {
+				recording.enable("com.knuddels.jtokkit." + name).withThreshold(threshold);
+			}
+
+			recording.start();
+			calls.run();
+			recording.stop();
+			recording.dump(file);
+
+			return RecordingFile.readAllEvents(file).stream()
+					.filter(it -> it.getEventType().getName().startsWith("com.knuddels.jtokkit."))
+					.collect(Collectors.toList());
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static RecordedEvent single(final List<RecordedEvent> events, final String name) {
+		final List<RecordedEvent> matching = events.stream()
+				.filter(it -> it.getEventType().getName().equals(name))
+				.collect(Collectors.toList());
+		assertEquals(1, matching.size());
+		return matching.get(0);
+	}
+}
@@ -0,0 +1,188 @@
+package com.knuddels.jtokkit;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EncodingProcessorTest {
+
+	private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.CL100K_BASE);
+
+	@ParameterizedTest
+	@CsvFileSource(resources = "/cl100k_base_encodings.csv", numLinesToSkip = 1, maxCharsPerColumn = 1_000_000)
+	public void encodesChunksLikeWholeText(final String input) {
+		final List<Integer> expected = ENCODING.encodeOrdinary(input);
+		for (final int chunkSize : new int[]{1, 2, 3, 7, 64}) {
+			final ChunkPublisher publisher = new ChunkPublisher(chunk(input, chunkSize));
+			final CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+			final Flow.Processor<CharSequence, int[]> processor = EncodingProcessors.newEncodingProcessor(ENCODING);
+			publisher.subscribe(processor);
+			processor.subscribe(subscriber);
+
+			assertTrue(subscriber.completed.isDone());
+			assertEquals(expected, subscriber.tokens());
+		}
+	}
+
+	@Test
+	public void respectsDemandOfSubscriber() {
+		final ChunkPublisher publisher = new ChunkPublisher(chunk("hello world, this is a streamed text", 4));
+		final CollectingSubscriber subscriber = new CollectingSubscriber(1);
+		final Flow.Processor<CharSequence, int[]> processor = EncodingProcessors.newEncodingProcessor(ENCODING);
+		publisher.subscribe(processor);
+		processor.subscribe(subscriber);
+
+		assertEquals(1, subscriber.batches.size());
+		assertTrue(publisher.requested < publisher.chunks.size());
+
+		subscriber.subscription.request(2);
+		assertEquals(3, subscriber.batches.size());
+		assertEquals(1, publisher.maxOutstanding);
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertTrue(subscriber.completed.isDone());
+		assertEquals(ENCODING.encodeOrdinary("hello world, this is a streamed text"), subscriber.tokens());
+	}
+
+	@Test
+	public void encodesOnExecutor() throws Exception {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final String text = "Streaming text across several chunks, with 12345 numbers and   whitespace.\n";
+			final ChunkPublisher publisher = new ChunkPublisher(chunk(text, 5));
+			final CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+			final Flow.Processor<CharSequence, int[]> processor = EncodingProcessors.newEncodingProcessor(ENCODING, executor);
+			publisher.subscribe(processor);
+			processor.subscribe(subscriber);
+
+			subscriber.completed.get(10, TimeUnit.SECONDS);
+			assertEquals(ENCODING.encodeOrdinary(text), subscriber.tokens());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void forwardsUpstreamErrors() {
+		final Flow.Processor<CharSequence, int[]> processor = EncodingProcessors.newEncodingProcessor(ENCODING);
+		final CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		processor.subscribe(subscriber);
+		processor.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(final long n) {
+			}
+
+			@Override
+			public void cancel() {
+			}
+		});
+		processor.onError(new IllegalStateException("broken stream"));
+
+		assertTrue(subscriber.completed.isCompletedExceptionally());
+	}
+
+	private static List<String> chunk(final String text, final int chunkSize) {
+		final List<String> chunks = new ArrayList<>();
+		for (int i = 0; i < text.length(); i += chunkSize) {
+			chunks.add(text.substring(i, Math.min(text.length(), i + chunkSize)));
+		}
+		return chunks;
+	}
+
+	private static final class ChunkPublisher implements Flow.Publisher<CharSequence> {
+		private final List<String> chunks;
+		private int next;
+		private long requested;
+		private long maxOutstanding;
+
+		ChunkPublisher(final List<String> chunks) {
+			this.chunks = chunks;
+		}
+
+		@Override
+		public void subscribe(final Flow.Subscriber<? super CharSequence> subscriber) {
+			subscriber.onSubscribe(new ChunkSubscription(subscriber));
+		}
+
+		final class ChunkSubscription implements Flow.Subscription {
+			private final Flow.Subscriber<? super CharSequence> subscriber;
+
+			ChunkSubscription(final Flow.Subscriber<? super CharSequence> subscriber) {
+				this.subscriber = subscriber;
+			}
+
+			@Override
+			public void request(final long n) {
+				requested += n;
+				maxOutstanding = Math.max(maxOutstanding, requested - next);
+				for (long i = 0; i < n && next < chunks.size(); i++) {
+					subscriber.onNext(chunks.get(next++));
+				}
+				if (next == chunks.size()) {
+					next++;
+					subscriber.onComplete();
+				}
+			}
+
+			@Override
+			public void cancel() {
+				next = chunks.size() + 1;
+			}
+		}
+	}
+
+	private static final class CollectingSubscriber implements Flow.Subscriber<int[]> {
+		private final long initialDemand;
+		private final List<int[]> batches = new ArrayList<>();
+		private final CompletableFuture<Void> completed = new CompletableFuture<>();
+		private Flow.Subscription subscription;
+
+		CollectingSubscriber(final long initialDemand) {
+			this.initialDemand = initialDemand;
+		}
+
+		@Override
+		public void onSubscribe(final Flow.Subscription subscription) {
+			this.subscription = subscription;
+			subscription.request(initialDemand);
+		}
+
+		@Override
+		public void onNext(final int[] batch) {
+			batches.add(batch);
+		}
+
+		@Override
+		public void onError(final Throwable throwable) {
+			completed.completeExceptionally(throwable);
+		}
+
+		@Override
+		public void onComplete() {
+			completed.complete(null);
+		}
+
+		List<Integer> tokens() {
+			final List<Integer> tokens = new ArrayList<>();
+			for (final int[] batch : batches) {
+				for (final int token : batch) {
+					tokens.add(token);
+				}
+			}
+			return tokens;
+		}
+	}
+}
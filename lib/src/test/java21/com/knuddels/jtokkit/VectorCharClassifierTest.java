@@ -0,0 +1,16 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+public class VectorCharClassifierTest {
+
+	@Test
+	public void classifiesPredefinedPatternsWithVectorApi() {
+		assertInstanceOf(VectorCharClassifier.class, PiecePattern.of(Pattern.compile(PiecePattern.GPT2_PATTERN)).classifier());
+		assertInstanceOf(VectorCharClassifier.class, PiecePattern.of(Pattern.compile(PiecePattern.CL100K_PATTERN, Pattern.UNICODE_CHARACTER_CLASS)).classifier());
+	}
+}
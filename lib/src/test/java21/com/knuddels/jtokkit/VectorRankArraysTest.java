@@ -0,0 +1,30 @@
+package com.knuddels.jtokkit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class VectorRankArraysTest {
+
+	@Test
+	public void findsSameIndexAsScanningOneRankAtATime() {
+		final Random random = new Random(0);
+		for (int i = 0; i < 10_000; i++) {
+			final int[] ranks = new int[random.nextInt(200)];
+			for (int j = 0; j < ranks.length; j++) {
+				ranks[j] = random.nextInt(ranks.length + 1);
+			}
+			final int length = random.nextInt(ranks.length + 1);
+
+			int expected = 0;
+			for (int j = 1; j < length; j++) {
+				if (ranks[j] < ranks[expected]) {
+					expected = j;
+				}
+			}
+			assertEquals(expected, VectorRankArrays.indexOfMinimum(ranks, length));
+		}
+	}
+}
@@ -1,2 +1,7 @@
+plugins {
+    // Provisions the additional toolchains used for the multi-release classes, if they are not installed locally
+    id("org.gradle.toolchains.foojay-resolver-convention") version "0.7.0"
+}
+
 rootProject.name = "jtokkit"
 include("lib", "benchmark")